@@ -0,0 +1,99 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.agent.Agent;
+import com.matrixhero.ollama.client.agent.WeatherAgent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of routing a chat message through {@link Agent#canHandle} for every registered agent, as the
+ * client does before each chat call: the weather agent plus a number of keyword agents, with inputs
+ * that match early, late or not at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentRoutingBenchmark {
+    private static final String[] INPUTS = {
+            "北京今天天气怎么样？",
+            "What's the weather like in Shanghai tomorrow?",
+            "Please convert 100 USD to EUR",
+            "Explain the difference between a process and a thread in a few sentences.",
+            "写一首关于秋天的诗",
+    };
+
+    @Param({"1", "8", "32"})
+    private int agentCount;
+
+    private OllamaClient client;
+    private List<Agent> agents;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("openweathermap.api.key", "benchmark");
+        client = new OllamaClient("http://localhost:11434");
+        client.withAgent(new WeatherAgent(client));
+        for (int i = 1; i < agentCount; i++) {
+            client.withAgent(new KeywordAgent("keyword-" + i, "topic" + i));
+        }
+        client.withAgent(new KeywordAgent("currency", "usd"));
+        agents = client.getAgents();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public Agent route() {
+        String input = INPUTS[next++ % INPUTS.length];
+        for (Agent agent : agents) {
+            if (agent.canHandle(input)) {
+                return agent;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stand-in for simple agents that match on a keyword.
+     */
+    private static final class KeywordAgent implements Agent {
+        private final String name;
+        private final String keyword;
+
+        KeywordAgent(String name, String keyword) {
+            this.name = name;
+            this.keyword = keyword;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Handles questions about " + keyword;
+        }
+
+        @Override
+        public boolean canHandle(String input) {
+            return input.toLowerCase(Locale.ROOT).contains(keyword);
+        }
+
+        @Override
+        public String execute(String input) {
+            return keyword;
+        }
+    }
+}
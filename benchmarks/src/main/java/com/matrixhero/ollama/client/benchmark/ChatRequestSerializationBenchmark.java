@@ -0,0 +1,72 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.Message;
+import com.matrixhero.ollama.client.model.Options;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a chat request body: serializing to a JSON string and copying it into the sink,
+ * against streaming it into the sink with a cached writer. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm} (bytes per request).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatRequestSerializationBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({"10", "100", "1000"})
+    private int messages;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter writer;
+    private ChatRequest request;
+    private BufferedSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = objectMapper.writerFor(ChatRequest.class);
+        sink = Okio.buffer(Okio.blackhole());
+        List<Message> history = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            Message.Role role = i % 2 == 0 ? Message.Role.USER : Message.Role.ASSISTANT;
+            history.add(new Message(role, "Turn " + i + ": the quick brown fox jumps over the lazy dog, "
+                    + "then explains in some detail why it did so and what it plans to do next. 天气怎么样？"));
+        }
+        request = new ChatRequest();
+        request.setModel("llama3");
+        request.setMessages(history);
+        Options options = new Options();
+        options.setTemperature(0.7);
+        options.setNumCtx(8192);
+        request.setOptions(options);
+    }
+
+    @Benchmark
+    public void writeValueAsString() throws IOException {
+        RequestBody.create(objectMapper.writeValueAsString(request), JSON).writeTo(sink);
+        sink.flush();
+    }
+
+    @Benchmark
+    public void streamingBody() throws IOException {
+        new JsonRequestBody(writer, request).writeTo(sink);
+        sink.flush();
+    }
+}
@@ -0,0 +1,87 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.matrixhero.ollama.client.embed.EmbeddingMatrixDeserializer;
+import com.matrixhero.ollama.client.model.EmbedBatchResponse;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.FloatEmbedBatchResponse;
+import com.matrixhero.ollama.client.model.FloatEmbedResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generic {@code double[]} embedding path with the streaming float32 path.
+ * Run with {@code -prof gc} to see the allocation per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingDeserializationBenchmark {
+    @Param({"768", "1024"})
+    private int dimension;
+
+    @Param({"32"})
+    private int batchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectReader doubleReader;
+    private ObjectReader floatReader;
+    private ObjectReader doubleBatchReader;
+    private ObjectReader floatBatchReader;
+    private byte[] single;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        single = ("{\"model\":\"nomic-embed-text\",\"embedding\":" + vector(random) + "}")
+                .getBytes(StandardCharsets.UTF_8);
+        StringBuilder json = new StringBuilder("{\"model\":\"nomic-embed-text\",\"embeddings\":[");
+        for (int i = 0; i < batchSize; i++) {
+            json.append(i == 0 ? "" : ",").append(vector(random));
+        }
+        batch = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+
+        doubleReader = objectMapper.readerFor(EmbedResponse.class);
+        floatReader = objectMapper.readerFor(FloatEmbedResponse.class);
+        doubleBatchReader = objectMapper.readerFor(EmbedBatchResponse.class);
+        floatBatchReader = objectMapper.readerFor(FloatEmbedBatchResponse.class)
+                .withAttribute(EmbeddingMatrixDeserializer.EXPECTED_ROWS, batchSize);
+    }
+
+    private String vector(Random random) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < dimension; i++) {
+            json.append(i == 0 ? "" : ",").append(random.nextGaussian() * 0.05);
+        }
+        return json.append(']').toString();
+    }
+
+    @Benchmark
+    public EmbedResponse singleDouble() throws IOException {
+        return doubleReader.readValue(single);
+    }
+
+    @Benchmark
+    public FloatEmbedResponse singleFloat() throws IOException {
+        return floatReader.readValue(single);
+    }
+
+    @Benchmark
+    public EmbedBatchResponse batchDouble() throws IOException {
+        return doubleBatchReader.readValue(batch);
+    }
+
+    @Benchmark
+    public FloatEmbedBatchResponse batchFloat() throws IOException {
+        return floatBatchReader.readValue(batch);
+    }
+}
@@ -0,0 +1,144 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import com.matrixhero.ollama.client.model.Message;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ServerSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Calls per second through the whole client stack (serialization, interceptors, connection pool,
+ * HTTP, parsing) against an in-process MockWebServer that answers instantly with canned responses.
+ * The server shares the machine, so results are for comparing client versions, not absolute.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String chat = "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\",\"content\":\"The sky is blue because of "
+                + "Rayleigh scattering.\"},\"done\":true,\"eval_count\":12,\"eval_duration\":120000000}";
+        String generateStream = RecordedStreams.generate(64);
+        StringBuilder embedding = new StringBuilder("{\"embedding\":[");
+        Random random = new Random(42);
+        for (int i = 0; i < 768; i++) {
+            embedding.append(i == 0 ? "" : ",").append(random.nextGaussian());
+        }
+        String embed = embedding.append("]}").toString();
+
+        server = new MockWebServer();
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                switch (request.getPath()) {
+                    case "/api/chat":
+                        return new MockResponse().setBody(chat);
+                    case "/api/generate":
+                        return new MockResponse().setBody(generateStream);
+                    case "/api/embeddings":
+                        return new MockResponse().setBody(embed);
+                    default:
+                        return new MockResponse().setResponseCode(404);
+                }
+            }
+        });
+        server.start();
+        client = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .maxRequestsPerHost(64)
+                .tcpNoDelay(true)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    /**
+     * Disables Nagle's algorithm on accepted connections. Otherwise the server's separate header and
+     * body writes meet the client's delayed ACK and every call stalls for about 40 ms.
+     */
+    private static final class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Benchmark
+    public ChatResponse chat() throws Exception {
+        ChatRequest request = new ChatRequest();
+        request.setModel("llama3");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "Why is the sky blue?")));
+        return client.chat(request);
+    }
+
+    @Benchmark
+    public long generateStream() throws IOException {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llama3");
+        request.setPrompt("Why is the sky blue?");
+        try (Stream<GenerateResponse> frames = client.generateStream(request)) {
+            return frames.count();
+        }
+    }
+
+    @Benchmark
+    public EmbedResponse embed() throws IOException {
+        EmbedRequest request = new EmbedRequest();
+        request.setModel("nomic-embed-text");
+        request.setInput("Why is the sky blue?");
+        return client.embed(request);
+    }
+}
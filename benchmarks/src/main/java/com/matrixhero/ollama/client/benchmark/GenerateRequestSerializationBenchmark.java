@@ -0,0 +1,68 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.Options;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a generate request body for short and long prompts, as a JSON string copied into
+ * the sink against streaming into the sink with a cached writer. Run with {@code -prof gc} for the
+ * allocation per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenerateRequestSerializationBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({"100", "10000", "100000"})
+    private int promptChars;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter writer;
+    private GenerateRequest request;
+    private BufferedSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = objectMapper.writerFor(GenerateRequest.class);
+        sink = Okio.buffer(Okio.blackhole());
+        StringBuilder prompt = new StringBuilder(promptChars);
+        while (prompt.length() < promptChars) {
+            prompt.append("Summarize the following report in three sentences. 请用中文总结。\n");
+        }
+        request = new GenerateRequest();
+        request.setModel("llama3");
+        request.setPrompt(prompt.substring(0, promptChars));
+        request.setSystem("You are a concise assistant.");
+        Options options = new Options();
+        options.setTemperature(0.2);
+        options.setNumPredict(256);
+        request.setOptions(options);
+    }
+
+    @Benchmark
+    public void writeValueAsString() throws IOException {
+        RequestBody.create(objectMapper.writeValueAsString(request), JSON).writeTo(sink);
+        sink.flush();
+    }
+
+    @Benchmark
+    public void streamingBody() throws IOException {
+        new JsonRequestBody(writer, request).writeTo(sink);
+        sink.flush();
+    }
+}
@@ -0,0 +1,100 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.Image;
+import com.matrixhero.ollama.client.model.Message;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap cost of writing multimodal request bodies: the eager path that reads the image, encodes it to
+ * a Base64 string and serializes the request to a JSON string, against lazy images encoded straight
+ * into the sink. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} (bytes per request).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageRequestBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({"1048576", "10485760"})
+    private int imageBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Path file;
+    private BufferedSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] data = new byte[imageBytes];
+        new Random(42).nextBytes(data);
+        file = Files.createTempFile("image-bench", ".png");
+        Files.write(file, data);
+        sink = Okio.buffer(Okio.blackhole());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void generateEager() throws IOException {
+        GenerateRequest request = generateRequest(new Image(Base64.getEncoder().encodeToString(Files.readAllBytes(file))));
+        RequestBody.create(objectMapper.writeValueAsString(request), JSON).writeTo(sink);
+        sink.flush();
+    }
+
+    @Benchmark
+    public void generateStreaming() throws IOException {
+        new JsonRequestBody(objectMapper, generateRequest(new Image(file))).writeTo(sink);
+        sink.flush();
+    }
+
+    @Benchmark
+    public void chatEager() throws IOException {
+        ChatRequest request = chatRequest(new Image(Base64.getEncoder().encodeToString(Files.readAllBytes(file))));
+        RequestBody.create(objectMapper.writeValueAsString(request), JSON).writeTo(sink);
+        sink.flush();
+    }
+
+    @Benchmark
+    public void chatStreaming() throws IOException {
+        new JsonRequestBody(objectMapper, chatRequest(new Image(file))).writeTo(sink);
+        sink.flush();
+    }
+
+    private static GenerateRequest generateRequest(Image image) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llava");
+        request.setPrompt("Describe this image");
+        request.setImages(Collections.singletonList(image));
+        return request;
+    }
+
+    private static ChatRequest chatRequest(Image image) {
+        Message message = new Message(Message.Role.USER, "Describe this image");
+        message.setImages(Collections.singletonList(image));
+        ChatRequest request = new ChatRequest();
+        request.setModel("llava");
+        request.setMessages(Collections.singletonList(message));
+        return request;
+    }
+}
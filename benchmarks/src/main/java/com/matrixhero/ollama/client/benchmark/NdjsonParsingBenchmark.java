@@ -0,0 +1,94 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.matrixhero.ollama.client.json.JsonCodec;
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import com.matrixhero.ollama.client.stream.NdjsonDecoder;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second when parsing recorded NDJSON token streams of {@code /api/chat} and
+ * {@code /api/generate}. {@code stringPerLine} is the old path, binding each line from a {@code String}
+ * with {@code readValue(String, Class)}; {@code decoder} uses {@link NdjsonDecoder} with a cached reader
+ * on the raw bytes, with a plain or bytecode-accelerated {@link JsonCodec}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NdjsonParsingBenchmark {
+    static final int FRAMES = 512;
+    private static final MediaType NDJSON = MediaType.parse("application/x-ndjson");
+
+    @Param({"plain", "accelerated"})
+    private String codec;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader chatReader;
+    private ObjectReader generateReader;
+    private byte[] chatStream;
+    private byte[] generateStream;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JsonCodec json = "accelerated".equals(codec) ? JsonCodec.accelerated() : new JsonCodec(new ObjectMapper());
+        objectMapper = json.getObjectMapper();
+        chatReader = json.reader(ChatResponse.class);
+        generateReader = json.reader(GenerateResponse.class);
+        chatStream = RecordedStreams.chat(FRAMES).getBytes(StandardCharsets.UTF_8);
+        generateStream = RecordedStreams.generate(FRAMES).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void chatDecoder(Blackhole blackhole) throws IOException {
+        decode(chatStream, chatReader, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void generateDecoder(Blackhole blackhole) throws IOException {
+        decode(generateStream, generateReader, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void chatStringPerLine(Blackhole blackhole) throws IOException {
+        perLine(chatStream, ChatResponse.class, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void generateStringPerLine(Blackhole blackhole) throws IOException {
+        perLine(generateStream, GenerateResponse.class, blackhole);
+    }
+
+    private static void decode(byte[] stream, ObjectReader reader, Blackhole blackhole) throws IOException {
+        try (NdjsonDecoder<Object> decoder = new NdjsonDecoder<>(ResponseBody.create(stream, NDJSON), reader)) {
+            while (decoder.hasNext()) {
+                blackhole.consume(decoder.next());
+            }
+        }
+    }
+
+    private void perLine(byte[] stream, Class<?> type, Blackhole blackhole) throws IOException {
+        BufferedReader lines = new BufferedReader(new StringReader(new String(stream, StandardCharsets.UTF_8)));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            blackhole.consume(objectMapper.readValue(line, type));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.matrixhero.ollama.client.benchmark;
+
+/**
+ * NDJSON bodies shaped like those recorded from a local Ollama server: one frame per token, with the
+ * statistics on the final frame.
+ */
+final class RecordedStreams {
+    private static final String[] TOKENS = {"The", " sky", " appears", " blue", " because", " of", " Ray", "leigh",
+            " scattering", ",", " which", " 散", "射", " shorter", " wave", "lengths", " more", " strongly", ".", "\\n"};
+    private static final String CREATED_AT = "2024-05-01T09:30:15.123456789Z";
+
+    private RecordedStreams() {
+    }
+
+    static String chat(int frames) {
+        StringBuilder body = new StringBuilder(frames * 160);
+        for (int i = 0; i < frames - 1; i++) {
+            body.append("{\"model\":\"llama3:8b\",\"created_at\":\"").append(CREATED_AT)
+                    .append("\",\"message\":{\"role\":\"assistant\",\"content\":\"").append(TOKENS[i % TOKENS.length])
+                    .append("\"},\"done\":false}\n");
+        }
+        body.append("{\"model\":\"llama3:8b\",\"created_at\":\"").append(CREATED_AT)
+                .append("\",\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done_reason\":\"stop\",\"done\":true,")
+                .append(STATS).append("}\n");
+        return body.toString();
+    }
+
+    static String generate(int frames) {
+        StringBuilder body = new StringBuilder(frames * 120);
+        for (int i = 0; i < frames - 1; i++) {
+            body.append("{\"model\":\"llama3:8b\",\"created_at\":\"").append(CREATED_AT)
+                    .append("\",\"response\":\"").append(TOKENS[i % TOKENS.length]).append("\",\"done\":false}\n");
+        }
+        body.append("{\"model\":\"llama3:8b\",\"created_at\":\"").append(CREATED_AT)
+                .append("\",\"response\":\"\",\"done\":true,\"done_reason\":\"stop\",\"context\":[128006,882,128007,271],")
+                .append(STATS).append("}\n");
+        return body.toString();
+    }
+
+    private static final String STATS = "\"total_duration\":5191566416,\"load_duration\":2154458,"
+            + "\"prompt_eval_count\":26,\"prompt_eval_duration\":383809000,\"eval_count\":298,\"eval_duration\":4799921000";
+}
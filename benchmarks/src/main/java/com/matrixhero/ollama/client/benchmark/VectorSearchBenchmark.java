@@ -0,0 +1,116 @@
+package com.matrixhero.ollama.client.benchmark;
+
+import com.matrixhero.ollama.client.vector.HnswIndex;
+import com.matrixhero.ollama.client.vector.SearchResult;
+import com.matrixhero.ollama.client.vector.VectorStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Top-k latency of the HNSW index against a brute-force scan of the same store.
+ * The recall of each {@code ef} setting is printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorSearchBenchmark {
+    private static final int QUERIES = 256;
+    private static final int K = 10;
+
+    @Param({"50000"})
+    private int size;
+
+    @Param({"768"})
+    private int dimension;
+
+    @Param({"16"})
+    private int m;
+
+    @Param({"32", "128"})
+    private int ef;
+
+    private Path directory;
+    private VectorStore store;
+    private HnswIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("vector-bench");
+        store = new VectorStore(directory, dimension);
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            store.add(i, randomVector(random));
+        }
+        index = new HnswIndex(store, m, 200);
+        index.addAll();
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomVector(random);
+        }
+        System.out.printf("%nrecall@%d at ef=%d: %.3f%n", K, ef, recall());
+    }
+
+    private double recall() {
+        int hits = 0;
+        for (float[] query : queries) {
+            Set<Long> exact = new HashSet<>();
+            for (SearchResult result : store.search(query, K)) {
+                exact.add(result.getId());
+            }
+            for (SearchResult result : index.search(query, K, ef)) {
+                if (exact.contains(result.getId())) {
+                    hits++;
+                }
+            }
+        }
+        return hits / (double) (QUERIES * K);
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    @Benchmark
+    public List<SearchResult> hnsw() {
+        return index.search(nextQuery(), K, ef);
+    }
+
+    @Benchmark
+    public List<SearchResult> bruteForce() {
+        return store.search(nextQuery(), K);
+    }
+}
@@ -1,24 +1,45 @@
 package com.matrixhero.ollama.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.matrixhero.ollama.client.agent.Agent;
+import com.matrixhero.ollama.client.embed.EmbeddingMatrixDeserializer;
 import com.matrixhero.ollama.client.model.*;
+import com.matrixhero.ollama.client.exception.CircuitOpenException;
+import com.matrixhero.ollama.client.exception.ConcurrencyLimitException;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
 import com.matrixhero.ollama.client.exception.OllamaTimeoutException;
+import com.matrixhero.ollama.client.health.HealthMonitor;
+import com.matrixhero.ollama.client.json.JsonCodec;
+import com.matrixhero.ollama.client.metrics.ClientMetrics;
+import com.matrixhero.ollama.client.metrics.HdrHistogramMetrics;
+import com.matrixhero.ollama.client.metrics.MetricsInterceptor;
+import com.matrixhero.ollama.client.metrics.ServerTimings;
+import com.matrixhero.ollama.client.metrics.StreamTimer;
+import com.matrixhero.ollama.client.resilience.AdaptiveConcurrencyLimiter;
+import com.matrixhero.ollama.client.resilience.ExponentialBackoff;
+import com.matrixhero.ollama.client.resilience.RetryInterceptor;
+import com.matrixhero.ollama.client.resilience.RetryPolicy;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import com.matrixhero.ollama.client.stream.NdjsonDecoder;
+import com.matrixhero.ollama.client.stream.NdjsonPublisher;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.reactivestreams.Publisher;
+import javax.net.SocketFactory;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
-import java.util.Iterator;
-import java.util.Spliterators;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.NoSuchElementException;
-import java.util.Spliterator;
 
 /**
  * Main client class for interacting with the Ollama API.
@@ -31,13 +52,34 @@ public class OllamaClient implements AutoCloseable {
     private static final String HOST_PROPERTY = "ollama.host";
     private static final String HOST_ENV = "OLLAMA_HOST";
     private static final String CONFIG_FILE = "application.properties";
+    private static final long DEFAULT_TIMEOUT_SECONDS = 30;
+    /** Appended to the system prompt of every non-streaming chat call */
+    private static final String SYSTEM_PROMPT = "你是一个专业的助手。请遵循以下规则：\n" +
+            "1. 用简洁的语言回答问题\n" +
+            "2. 始终用中文回答\n" +
+            "3. 参考历史对话内容\n" +
+            "4. 避免重复回答";
 
     /** HTTP client */
     private final OkHttpClient client;
+    /** Whether this client created the HTTP client and may shut it down */
+    private final boolean ownsHttpClient;
     /** JSON processor */
     private final ObjectMapper objectMapper;
+    /** Readers and writers cached per model type */
+    private final JsonCodec codec;
     /** Server base URL */
     private final String host;
+    /** Per-host circuit breakers, or null when health checking is off */
+    private final HealthMonitor healthMonitor;
+    /** Whether this client registered the host with the health monitor and must unregister it on close */
+    private final AtomicBoolean watching;
+    /** Retries failed calls, or null for a single attempt */
+    private final RetryInterceptor retryInterceptor;
+    /** Limits calls in flight per host and model, or null when unlimited */
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    /** Receives call timings, {@link ClientMetrics#NONE} when metrics are off */
+    private final ClientMetrics metrics;
     /** Whether to enable streaming responses */
     private boolean stream = false;
 
@@ -51,13 +93,7 @@ public class OllamaClient implements AutoCloseable {
      * 3. Configuration file: ollama.properties
      */
     public OllamaClient() {
-        this.host = getConfiguredHost();
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this(builder());
     }
 
     /**
@@ -66,13 +102,7 @@ public class OllamaClient implements AutoCloseable {
      * @param host The custom host URL
      */
     public OllamaClient(String host) {
-        this.host = host;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this(builder().host(host));
     }
 
     /**
@@ -84,13 +114,40 @@ public class OllamaClient implements AutoCloseable {
      * @param writeTimeout Write timeout in seconds
      */
     public OllamaClient(String host, long connectTimeout, long readTimeout, long writeTimeout) {
-        this.host = host;
-        this.client = new OkHttpClient.Builder()
+        this(builder().host(host)
                 .connectTimeout(connectTimeout, TimeUnit.SECONDS)
                 .readTimeout(readTimeout, TimeUnit.SECONDS)
-                .writeTimeout(writeTimeout, TimeUnit.SECONDS)
-                .build();
-        this.objectMapper = new ObjectMapper();
+                .writeTimeout(writeTimeout, TimeUnit.SECONDS));
+    }
+
+    private OllamaClient(Builder builder) {
+        this.host = builder.host != null ? builder.host : getConfiguredHost();
+        this.ownsHttpClient = builder.httpClient == null;
+        this.client = builder.buildHttpClient();
+        this.retryInterceptor = builder.retryInterceptor;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.metrics = builder.metrics != null ? builder.metrics : ClientMetrics.NONE;
+        this.codec = builder.codec != null ? builder.codec
+                : builder.objectMapper != null ? new JsonCodec(builder.objectMapper) : JsonCodec.defaults();
+        this.objectMapper = codec.getObjectMapper();
+        this.agents.addAll(builder.agents);
+        this.healthMonitor = builder.healthMonitor;
+        this.watching = new AtomicBoolean(healthMonitor != null);
+        if (healthMonitor != null) {
+            healthMonitor.watch(host, client);
+        }
+        if (builder.prewarmConnections > 0) {
+            prewarm(builder.prewarmConnections);
+        }
+    }
+
+    /**
+     * Creates a builder for configuring the HTTP connection pool, dispatcher limits and protocols.
+     *
+     * @return A new builder with the same defaults as {@link #OllamaClient(String)}
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -103,7 +160,7 @@ public class OllamaClient implements AutoCloseable {
         OkHttpClient newClient = client.newBuilder()
                 .connectTimeout(timeout, TimeUnit.SECONDS)
                 .build();
-        return new OllamaClient(host, newClient, objectMapper);
+        return new OllamaClient(this, newClient);
     }
 
     /**
@@ -116,7 +173,7 @@ public class OllamaClient implements AutoCloseable {
         OkHttpClient newClient = client.newBuilder()
                 .readTimeout(timeout, TimeUnit.SECONDS)
                 .build();
-        return new OllamaClient(host, newClient, objectMapper);
+        return new OllamaClient(this, newClient);
     }
 
     /**
@@ -129,20 +186,60 @@ public class OllamaClient implements AutoCloseable {
         OkHttpClient newClient = client.newBuilder()
                 .writeTimeout(timeout, TimeUnit.SECONDS)
                 .build();
-        return new OllamaClient(host, newClient, objectMapper);
+        return new OllamaClient(this, newClient);
     }
 
     /**
-     * Creates a new OllamaClient with the specified host, client, and object mapper.
-     * This is a private constructor used internally for creating new instances with modified settings.
+     * Creates a copy of a client that uses a modified HTTP client.
+     * The copy keeps the agents registered so far; the HTTP clients share their connection pool and dispatcher.
      */
-    private OllamaClient(String host, OkHttpClient client, ObjectMapper objectMapper) {
-        this.host = host;
+    private OllamaClient(OllamaClient source, OkHttpClient client) {
+        this.host = source.host;
         this.client = client;
-        this.objectMapper = objectMapper;
+        this.ownsHttpClient = source.ownsHttpClient;
+        this.objectMapper = source.objectMapper;
+        this.codec = source.codec;
+        this.healthMonitor = source.healthMonitor;
+        this.watching = new AtomicBoolean();
+        this.retryInterceptor = source.retryInterceptor;
+        this.concurrencyLimiter = source.concurrencyLimiter;
+        this.metrics = source.metrics;
+        this.stream = source.stream;
+        this.agents.addAll(source.agents);
     }
 
-    private String getConfiguredHost() {
+    /**
+     * Opens connections to the server ahead of the first real request so that it does not pay for the
+     * TCP (and TLS) handshake. Each connection is opened by a lightweight request to the server root,
+     * issued concurrently so that HTTP/1.1 opens one connection per request.
+     *
+     * @param connections The number of connections to open
+     * @return A future completed once every warm-up request has finished; failures are logged, not propagated
+     */
+    public CompletableFuture<Void> prewarm(int connections) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            futures[i] = future;
+            Request request = new Request.Builder().url(host + "/").head().build();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    log.debug("Connection pre-warming failed for {}", host, e);
+                    future.complete(null);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    future.complete(null);
+                }
+            });
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    private static String getConfiguredHost() {
         // Try system property first
         String host = System.getProperty(HOST_PROPERTY);
         if (host != null && !host.trim().isEmpty()) {
@@ -158,7 +255,7 @@ public class OllamaClient implements AutoCloseable {
         // Try configuration file
         try {
             java.util.Properties props = new java.util.Properties();
-            java.io.InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE);
+            java.io.InputStream input = OllamaClient.class.getClassLoader().getResourceAsStream(CONFIG_FILE);
             if (input != null) {
                 props.load(input);
                 host = props.getProperty(HOST_PROPERTY);
@@ -174,6 +271,34 @@ public class OllamaClient implements AutoCloseable {
     }
 
 
+    /**
+     * @return The server base URL this client talks to
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return Whether requests to the host are currently admitted; always true without a health monitor
+     */
+    public boolean isAvailable() {
+        return healthMonitor == null || healthMonitor.isAvailable(host);
+    }
+
+    /**
+     * @return The retry counters, or null if the client was built without a retry policy
+     */
+    public RetryInterceptor.Stats getRetryStats() {
+        return retryInterceptor != null ? retryInterceptor.getStats() : null;
+    }
+
+    /**
+     * @return The agents registered on this client
+     */
+    public List<Agent> getAgents() {
+        return Collections.unmodifiableList(agents);
+    }
+
     /**
      * Add an agent to the client.
      * @param agent The agent to add
@@ -184,6 +309,20 @@ public class OllamaClient implements AutoCloseable {
         return this;
     }
 
+    /**
+     * @return The listener receiving call timings, {@link ClientMetrics#NONE} when metrics are off
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The codec used to serialize requests and bind responses
+     */
+    public JsonCodec getJsonCodec() {
+        return codec;
+    }
+
     /**
      * Generates text based on the provided prompt.
      * @param request The generation request containing model and prompt
@@ -193,30 +332,29 @@ public class OllamaClient implements AutoCloseable {
      */
     public GenerateResponse generate(GenerateRequest request) throws IOException {
         request.setStream(stream);
-        String json = objectMapper.writeValueAsString(request);
         Request httpRequest = new Request.Builder()
                 .url(host + "/api/generate")
-                .post(RequestBody.create(json, MediaType.parse("application/json")))
+                .post(jsonBody(request))
                 .build();
 
         try {
             if (stream) {
                 try (Response response = client.newCall(httpRequest).execute()) {
                     if (!response.isSuccessful()) {
-                        throw new IOException("Unexpected response code: " + response);
+                        throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
                     }
                     ResponseBody body = response.body();
                     if (body == null) {
                         throw new IOException("Empty response body");
                     }
-                    return objectMapper.readValue(body.string(), GenerateResponse.class);
+                    return observe(response, codec.read(body, GenerateResponse.class));
                 }
             } else {
                 try (Response response = client.newCall(httpRequest).execute()) {
                     if (!response.isSuccessful()) {
-                        throw new IOException("Unexpected response code: " + response);
+                        throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
                     }
-                    return objectMapper.readValue(response.body().string(), GenerateResponse.class);
+                    return observe(response, codec.read(response.body(), GenerateResponse.class));
                 }
             }
         } catch (SocketTimeoutException e) {
@@ -224,6 +362,24 @@ public class OllamaClient implements AutoCloseable {
         }
     }
 
+    /**
+     * Generates text asynchronously based on the provided prompt.
+     * The call is queued on the HTTP dispatcher instead of blocking the calling thread,
+     * and cancelling the returned future cancels the underlying HTTP call.
+     * @param request The generation request containing model and prompt
+     * @return A future completed with the generation response
+     */
+    public CompletableFuture<GenerateResponse> generateAsync(GenerateRequest request) {
+        request.setStream(false);
+        Request httpRequest;
+        try {
+            httpRequest = postJson("/api/generate", request);
+        } catch (IOException e) {
+            return failedFuture(e);
+        }
+        return enqueue(httpRequest, GenerateResponse.class, "generating text");
+    }
+
     /**
      * Generates text based on the provided prompt with streaming support.
      * @param request The generation request containing model and prompt
@@ -232,18 +388,34 @@ public class OllamaClient implements AutoCloseable {
      * @throws OllamaTimeoutException if the request times out
      */
     public Stream<GenerateResponse> generateStream(GenerateRequest request) throws IOException {
+        return generateStream(request, call -> { });
+    }
+
+    /**
+     * Generates text with streaming support, handing out the HTTP call before it is sent.
+     * Unlike closing the stream, {@link Call#cancel()} may be called from any thread; a read blocked
+     * in the consuming thread then fails.
+     * @param request The generation request containing model and prompt
+     * @param onCall Receives the HTTP call, for example to cancel it from another thread
+     * @return A stream of generation responses
+     * @throws IOException if there's an error communicating with the server
+     * @throws OllamaTimeoutException if the request times out
+     */
+    public Stream<GenerateResponse> generateStream(GenerateRequest request, Consumer<Call> onCall) throws IOException {
         request.setStream(true);
-        String json = objectMapper.writeValueAsString(request);
         Request httpRequest = new Request.Builder()
                 .url(host + "/api/generate")
-                .post(RequestBody.create(json, MediaType.parse("application/json")))
+                .post(jsonBody(request))
                 .build();
 
         try {
-            Response response = client.newCall(httpRequest).execute();
+            long start = System.nanoTime();
+            Call call = client.newCall(httpRequest);
+            onCall.accept(call);
+            Response response = call.execute();
             if (!response.isSuccessful()) {
                 response.close();
-                throw new IOException("Unexpected response code: " + response);
+                throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
             }
 
             ResponseBody body = response.body();
@@ -252,43 +424,34 @@ public class OllamaClient implements AutoCloseable {
                 throw new IOException("Empty response body");
             }
 
-            return StreamSupport.stream(
-                Spliterators.<GenerateResponse>spliteratorUnknownSize(
-                    new Iterator<GenerateResponse>() {
-                        private final String[] lines = body.string().split("\n");
-                        private int currentIndex = 0;
-
-                        @Override
-                        public boolean hasNext() {
-                            return currentIndex < lines.length;
-                        }
-
-                        @Override
-                        public GenerateResponse next() {
-                            try {
-                                return objectMapper.readValue(lines[currentIndex++], GenerateResponse.class);
-                            } catch (IOException e) {
-                                throw new RuntimeException("Error parsing response", e);
-                            }
-                        }
-                    },
-                    0
-                ),
-                false
-            ).onClose(() -> {
-                try {
-                    response.close();
-                } catch (Exception e) {
-                    log.error("Error closing response", e);
-                }
-            });
+            return timed(new NdjsonDecoder<GenerateResponse>(body, codec.reader(GenerateResponse.class)).stream(),
+                    "/api/generate", start);
         } catch (SocketTimeoutException e) {
             throw new OllamaTimeoutException("Request timed out while streaming text generation", e);
         }
     }
 
     /**
-     * Chat with the model, with agent support.
+     * Generates text as a backpressure-aware reactive stream.
+     * The HTTP call starts when the subscriber first requests frames, frames are read from the
+     * socket only while there is outstanding demand, and cancelling the subscription cancels the call.
+     * On Java 9+ the publisher can be adapted to {@code java.util.concurrent.Flow} with
+     * {@code org.reactivestreams.FlowAdapters}.
+     * @param request The generation request containing model and prompt
+     * @return A single-subscriber publisher of generation responses
+     * @throws IOException if the request cannot be serialized
+     */
+    public Publisher<GenerateResponse> generatePublisher(GenerateRequest request) throws IOException {
+        request.setStream(true);
+        Call call = newAsyncCall(postJson("/api/generate", request));
+        return timed(new NdjsonPublisher<>(call, codec.reader(GenerateResponse.class), client.dispatcher().executorService()),
+                "/api/generate");
+    }
+
+    /**
+     * Chat with the model, with agent support. On success the system prompt that was sent and the
+     * replies are added to the request, so it can be sent again to continue the conversation; a
+     * failed call leaves it untouched.
      * @param request The chat request
      * @return The chat response
      * @throws IOException if there's an error communicating with the server
@@ -300,6 +463,83 @@ public class OllamaClient implements AutoCloseable {
             throw new IllegalArgumentException("Chat request and messages cannot be null or empty");
         }
 
+        ChatRequest sent = copyOf(request);
+        prepareChat(sent);
+        // If no suitable agent found or agents disabled, use model
+        ChatResponse response = callModel(sent);
+        adopt(request, sent);
+        return response;
+    }
+
+    /**
+     * Chat with the model asynchronously, with agent support.
+     * Agents run synchronously, so requests that an agent can handle are prepared on the
+     * HTTP dispatcher's executor; the model call itself is queued on the dispatcher.
+     * Cancelling the returned future cancels the underlying HTTP call. The request is updated as
+     * by {@link #chat} before the future completes.
+     * @param request The chat request
+     * @return A future completed with the chat response
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request) {
+        if (request == null || request.getMessages() == null || request.getMessages().isEmpty()) {
+            return failedFuture(new IllegalArgumentException("Chat request and messages cannot be null or empty"));
+        }
+
+        ChatRequest sent = copyOf(request);
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        if (!hasMatchingAgent(request)) {
+            try {
+                prepareChat(sent);
+            } catch (Exception e) {
+                return failedFuture(e);
+            }
+            callModelAsync(request, sent, result);
+            return result;
+        }
+
+        client.dispatcher().executorService().execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                prepareChat(sent);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            callModelAsync(request, sent, result);
+        });
+        return result;
+    }
+
+    /**
+     * Copies a chat request with its own message list, so that preparing and answering the copy
+     * leaves the caller's request as it was.
+     */
+    private static ChatRequest copyOf(ChatRequest request) {
+        ChatRequest copy = new ChatRequest();
+        copy.setModel(request.getModel());
+        copy.setMessages(request.getMessages());
+        copy.setSystem(request.getSystem());
+        copy.setTools(request.getTools());
+        copy.setOptions(request.getOptions());
+        copy.setFormat(request.getFormat());
+        copy.setKeepAlive(request.getKeepAlive());
+        copy.setUseAgents(request.isUseAgents());
+        return copy;
+    }
+
+    /**
+     * Applies what a successful call added to its copy of the request to the caller's request.
+     */
+    private static void adopt(ChatRequest request, ChatRequest sent) {
+        List<Message> messages = request.getMessages();
+        messages.addAll(sent.getMessages().subList(messages.size(), sent.getMessages().size()));
+        request.setSystem(sent.getSystem());
+        request.setStream(false);
+    }
+
+    private void prepareChat(ChatRequest request) throws Exception {
         // Ensure non-streaming mode
         request.setStream(false);
         Message lastMessage = getLastMessage(request);
@@ -310,14 +550,33 @@ public class OllamaClient implements AutoCloseable {
             request.getMessages().add(new Message(Message.Role.ASSISTANT,
                     agentResponse.getMessage().getContent()));
         }
-        String systemPrompt = "你是一个专业的助手。请遵循以下规则：\n" +
-                "1. 用简洁的语言回答问题\n" +
-                "2. 始终用中文回答\n" +
-                "3. 参考历史对话内容\n" +
-                "4. 避免重复回答";
-        request.setSystem(request.getSystem() + ", " + systemPrompt);
-        // If no suitable agent found or agents disabled, use model
-        return callModel(request);
+        request.setSystem(request.getSystem() + ", " + SYSTEM_PROMPT);
+    }
+
+    /**
+     * Updates a chat request as a successful {@link #chat} call that no agent handled would: sets the
+     * system prompt sent with it and appends the reply to the conversation. For decorators that answer
+     * a chat request without sending it themselves, such as a cache.
+     * @param request The chat request
+     * @param response The reply to the request
+     */
+    public void recordChat(ChatRequest request, ChatResponse response) {
+        request.setStream(false);
+        request.setSystem(request.getSystem() + ", " + SYSTEM_PROMPT);
+        request.getMessages().add(response.getMessage());
+    }
+
+    private boolean hasMatchingAgent(ChatRequest request) {
+        if (!request.isUseAgents() || agents.isEmpty()) {
+            return false;
+        }
+        String content = getLastMessage(request).getContent();
+        for (Agent agent : agents) {
+            if (agent.canHandle(content)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private Message getLastMessage(ChatRequest request) {
@@ -347,23 +606,21 @@ public class OllamaClient implements AutoCloseable {
 
     private ChatResponse callModel(ChatRequest request) throws IOException {
         String url = host + "/api/chat";
-        String json = objectMapper.writeValueAsString(request);
         
         log.debug("Sending chat request to model: {}", request.getModel());
         Request httpRequest = new Request.Builder()
             .url(url)
-            .post(RequestBody.create(json, MediaType.parse("application/json")))
+            .post(jsonBody(request))
             .build();
 
         try (Response response = client.newCall(httpRequest).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "No error body";
-                throw new IOException(String.format("Chat request failed with code %d: %s", 
+                throw new OllamaResponseException(response.code(), String.format("Chat request failed with code %d: %s",
                     response.code(), errorBody));
             }
 
-            String responseBody = response.body().string();
-            ChatResponse chatResponse = objectMapper.readValue(responseBody, ChatResponse.class);
+            ChatResponse chatResponse = observe(response, codec.read(response.body(), ChatResponse.class));
             request.getMessages().add(chatResponse.getMessage());  // Add model response to conversation history
             return chatResponse;
         } catch (SocketTimeoutException e) {
@@ -374,6 +631,33 @@ public class OllamaClient implements AutoCloseable {
         }
     }
 
+    private void callModelAsync(ChatRequest request, ChatRequest sent, CompletableFuture<ChatResponse> result) {
+        Request httpRequest;
+        try {
+            httpRequest = postJson("/api/chat", sent);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        log.debug("Sending async chat request to model: {}", sent.getModel());
+        CompletableFuture<ChatResponse> call = enqueue(httpRequest, ChatResponse.class, "chatting");
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        call.whenComplete((chatResponse, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            sent.getMessages().add(chatResponse.getMessage());  // Add model response to conversation history
+            adopt(request, sent);
+            result.complete(chatResponse);
+        });
+    }
+
     /**
      * Chat with the model with streaming support, with agent support.
      * @param request The chat request
@@ -381,6 +665,19 @@ public class OllamaClient implements AutoCloseable {
      * @throws IOException if there's an error communicating with the server
      */
     public Stream<ChatResponse> chatStream(ChatRequest request) throws IOException {
+        return chatStream(request, call -> { });
+    }
+
+    /**
+     * Chat with the model with streaming support, with agent support, handing out the HTTP call
+     * before it is sent. Unlike closing the stream, {@link Call#cancel()} may be called from any
+     * thread; a read blocked in the consuming thread then fails.
+     * @param request The chat request
+     * @param onCall Receives the HTTP call, unless an agent answers, for example to cancel it from another thread
+     * @return A stream of chat responses
+     * @throws IOException if there's an error communicating with the server
+     */
+    public Stream<ChatResponse> chatStream(ChatRequest request, Consumer<Call> onCall) throws IOException {
 
         // If no suitable agent found or agent execution failed, use model directly
         request.setStream(true);
@@ -400,67 +697,48 @@ public class OllamaClient implements AutoCloseable {
                 }
             }
         }
-        String json = objectMapper.writeValueAsString(request);
         Request httpRequest = new Request.Builder()
             .url(host + "/api/chat")
-            .post(RequestBody.create(json, MediaType.parse("application/json")))
+            .post(jsonBody(request))
             .build();
 
-        Response response = client.newCall(httpRequest).execute();
-        if (!response.isSuccessful()) {
-            response.close();
-            throw new IOException("Unexpected response code: " + response);
-        }
-
-        ResponseBody body = response.body();
-        if (body == null) {
-            response.close();
-            throw new IOException("Empty response body");
-        }
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(body.byteStream()));
-        Iterator<ChatResponse> iterator = new Iterator<ChatResponse>() {
-            private String nextLine = null;
-
-            @Override
-            public boolean hasNext() {
-                try {
-                    nextLine = reader.readLine();
-                    return nextLine != null;
-                } catch (IOException e) {
-                    try {
-                        reader.close();
-                    } catch (IOException ex) {
-                        // Ignore
-                    }
-                    return false;
-                }
+        try {
+            long start = System.nanoTime();
+            Call call = client.newCall(httpRequest);
+            onCall.accept(call);
+            Response response = call.execute();
+            if (!response.isSuccessful()) {
+                response.close();
+                throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
             }
 
-            @Override
-            public ChatResponse next() {
-                if (nextLine == null) {
-                    throw new NoSuchElementException();
-                }
-                try {
-                    return objectMapper.readValue(nextLine, ChatResponse.class);
-                } catch (IOException e) {
-                    throw new RuntimeException("Failed to parse response", e);
-                }
+            ResponseBody body = response.body();
+            if (body == null) {
+                response.close();
+                throw new IOException("Empty response body");
             }
-        };
 
-        return StreamSupport.stream(
-            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED),
-            false
-        ).onClose(() -> {
-            try {
-                reader.close();
-            } catch (IOException e) {
-                // Ignore
-            }
-            response.close();
-        });
+            return timed(new NdjsonDecoder<ChatResponse>(body, codec.reader(ChatResponse.class)).stream(),
+                    "/api/chat", start);
+        } catch (SocketTimeoutException e) {
+            throw new OllamaTimeoutException("Request timed out while streaming chat", e);
+        }
+    }
+
+    /**
+     * Chat with the model as a backpressure-aware reactive stream.
+     * Agents execute synchronously and are therefore not consulted on this path; use
+     * {@link #chatStream(ChatRequest)} when agent support is needed.
+     * @param request The chat request
+     * @return A single-subscriber publisher of chat responses
+     * @throws IOException if the request cannot be serialized
+     * @see #generatePublisher(GenerateRequest)
+     */
+    public Publisher<ChatResponse> chatPublisher(ChatRequest request) throws IOException {
+        request.setStream(true);
+        Call call = newAsyncCall(postJson("/api/chat", request));
+        return timed(new NdjsonPublisher<>(call, codec.reader(ChatResponse.class), client.dispatcher().executorService()),
+                "/api/chat");
     }
 
     /**
@@ -471,24 +749,130 @@ public class OllamaClient implements AutoCloseable {
      * @throws OllamaTimeoutException if the request times out
      */
     public EmbedResponse embed(EmbedRequest request) throws IOException {
-        String json = objectMapper.writeValueAsString(request);
         Request httpRequest = new Request.Builder()
                 .url(host + "/api/embeddings")
-                .post(RequestBody.create(json, MediaType.parse("application/json")))
+                .post(jsonBody(request))
                 .build();
 
         try {
             try (Response response = client.newCall(httpRequest).execute()) {
                 if (!response.isSuccessful()) {
-                    throw new IOException("Unexpected response code: " + response);
+                    throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
                 }
-                return objectMapper.readValue(response.body().string(), EmbedResponse.class);
+                return observe(response, codec.read(response.body(), EmbedResponse.class));
             }
         } catch (SocketTimeoutException e) {
             throw new OllamaTimeoutException("Request timed out while generating embeddings", e);
         }
     }
 
+    /**
+     * Generates embeddings for the input text asynchronously.
+     * Cancelling the returned future cancels the underlying HTTP call.
+     * @param request The embedding request containing model and input text
+     * @return A future completed with the embedding response
+     */
+    public CompletableFuture<EmbedResponse> embedAsync(EmbedRequest request) {
+        Request httpRequest;
+        try {
+            httpRequest = postJson("/api/embeddings", request);
+        } catch (IOException e) {
+            return failedFuture(e);
+        }
+        return enqueue(httpRequest, EmbedResponse.class, "generating embeddings");
+    }
+
+    /**
+     * Generates embeddings for several input texts in one round trip using {@code /api/embed}.
+     * @param request The batch embedding request containing model and input texts
+     * @return The batch embedding response with one vector per input, in input order
+     * @throws IOException if there's an error communicating with the server
+     * @throws OllamaTimeoutException if the request times out
+     * @see com.matrixhero.ollama.client.embed.BatchEmbedder
+     */
+    public EmbedBatchResponse embedBatch(EmbedBatchRequest request) throws IOException {
+        Request httpRequest = postJson("/api/embed", request);
+        try (Response response = client.newCall(httpRequest).execute()) {
+            return readResponse(response, EmbedBatchResponse.class);
+        } catch (SocketTimeoutException e) {
+            throw new OllamaTimeoutException("Request timed out while generating batch embeddings", e);
+        }
+    }
+
+    /**
+     * Generates embeddings for several input texts asynchronously using {@code /api/embed}.
+     * Cancelling the returned future cancels the underlying HTTP call.
+     * @param request The batch embedding request containing model and input texts
+     * @return A future completed with the batch embedding response
+     */
+    public CompletableFuture<EmbedBatchResponse> embedBatchAsync(EmbedBatchRequest request) {
+        Request httpRequest;
+        try {
+            httpRequest = postJson("/api/embed", request);
+        } catch (IOException e) {
+            return failedFuture(e);
+        }
+        return enqueue(httpRequest, EmbedBatchResponse.class, "generating batch embeddings");
+    }
+
+    /**
+     * Generates an embedding for the input text with float32 precision.
+     * The vector is parsed straight into a {@code float[]}, halving the heap held per vector
+     * compared to {@link #embed(EmbedRequest)}.
+     * @param request The embedding request containing model and input text
+     * @return The float32 embedding response
+     * @throws IOException if there's an error communicating with the server
+     * @throws OllamaTimeoutException if the request times out
+     */
+    public FloatEmbedResponse embedFloat(EmbedRequest request) throws IOException {
+        Request httpRequest = postJson("/api/embeddings", request);
+        try (Response response = client.newCall(httpRequest).execute()) {
+            return readResponse(response, FloatEmbedResponse.class);
+        } catch (SocketTimeoutException e) {
+            throw new OllamaTimeoutException("Request timed out while generating embeddings", e);
+        }
+    }
+
+    /**
+     * Generates float32 embeddings for several input texts in one round trip using {@code /api/embed}.
+     * All vectors land in one contiguous, row-major {@code float[inputs * dimension]}.
+     * @param request The batch embedding request containing model and input texts
+     * @return The float32 batch embedding response
+     * @throws IOException if there's an error communicating with the server
+     * @throws OllamaTimeoutException if the request times out
+     */
+    public FloatEmbedBatchResponse embedBatchFloat(EmbedBatchRequest request) throws IOException {
+        Request httpRequest = postJson("/api/embed", request);
+        try (Response response = client.newCall(httpRequest).execute()) {
+            return readResponse(response, floatBatchReader(request));
+        } catch (SocketTimeoutException e) {
+            throw new OllamaTimeoutException("Request timed out while generating batch embeddings", e);
+        }
+    }
+
+    /**
+     * Generates float32 embeddings for several input texts asynchronously using {@code /api/embed}.
+     * Cancelling the returned future cancels the underlying HTTP call.
+     * @param request The batch embedding request containing model and input texts
+     * @return A future completed with the float32 batch embedding response
+     */
+    public CompletableFuture<FloatEmbedBatchResponse> embedBatchFloatAsync(EmbedBatchRequest request) {
+        Request httpRequest;
+        try {
+            httpRequest = postJson("/api/embed", request);
+        } catch (IOException e) {
+            return failedFuture(e);
+        }
+        return enqueue(httpRequest, floatBatchReader(request), "generating batch embeddings");
+    }
+
+    private ObjectReader floatBatchReader(EmbedBatchRequest request) {
+        ObjectReader reader = codec.reader(FloatEmbedBatchResponse.class);
+        // Lets the deserializer allocate the whole matrix once the dimension is known
+        return request.getInput() == null ? reader
+                : reader.withAttribute(EmbeddingMatrixDeserializer.EXPECTED_ROWS, request.getInput().size());
+    }
+
     /**
      * Lists all available models.
      * @return The list response containing model information
@@ -504,15 +888,60 @@ public class OllamaClient implements AutoCloseable {
         try {
             try (Response response = client.newCall(httpRequest).execute()) {
                 if (!response.isSuccessful()) {
-                    throw new IOException("Unexpected response code: " + response);
+                    throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
                 }
-                return objectMapper.readValue(response.body().string(), ListResponse.class);
+                return codec.read(response.body(), ListResponse.class);
             }
         } catch (SocketTimeoutException e) {
             throw new OllamaTimeoutException("Request timed out while listing models", e);
         }
     }
 
+    /**
+     * Lists all available models asynchronously.
+     * Cancelling the returned future cancels the underlying HTTP call.
+     * @return A future completed with the list response
+     */
+    public CompletableFuture<ListResponse> listAsync() {
+        Request httpRequest = new Request.Builder()
+                .url(host + "/api/tags")
+                .get()
+                .build();
+        return enqueue(httpRequest, ListResponse.class, "listing models");
+    }
+
+    /**
+     * Lists the models currently loaded into memory.
+     * @return The running models response
+     * @throws IOException if there's an error communicating with the server
+     * @throws OllamaTimeoutException if the request times out
+     */
+    public RunningModelsResponse listRunning() throws IOException {
+        Request httpRequest = new Request.Builder()
+                .url(host + "/api/ps")
+                .get()
+                .build();
+
+        try (Response response = client.newCall(httpRequest).execute()) {
+            return readResponse(response, RunningModelsResponse.class);
+        } catch (SocketTimeoutException e) {
+            throw new OllamaTimeoutException("Request timed out while listing running models", e);
+        }
+    }
+
+    /**
+     * Lists the models currently loaded into memory asynchronously.
+     * Cancelling the returned future cancels the underlying HTTP call.
+     * @return A future completed with the running models response
+     */
+    public CompletableFuture<RunningModelsResponse> listRunningAsync() {
+        Request httpRequest = new Request.Builder()
+                .url(host + "/api/ps")
+                .get()
+                .build();
+        return enqueue(httpRequest, RunningModelsResponse.class, "listing running models");
+    }
+
     /**
      * Delete a model.
      *
@@ -521,16 +950,15 @@ public class OllamaClient implements AutoCloseable {
      * @throws OllamaTimeoutException if the request times out
      */
     public void delete(DeleteRequest request) throws IOException {
-        String json = objectMapper.writeValueAsString(request);
         Request httpRequest = new Request.Builder()
             .url(host + "/api/delete")
-            .delete(RequestBody.create(json, MediaType.parse("application/json")))
+            .delete(jsonBody(request))
             .build();
 
         try {
             try (Response response = client.newCall(httpRequest).execute()) {
                 if (!response.isSuccessful()) {
-                    throw new IOException("Unexpected response code: " + response);
+                    throw new OllamaResponseException(response.code(), "Unexpected response code: " + response);
                 }
             }
         } catch (SocketTimeoutException e) {
@@ -539,10 +967,488 @@ public class OllamaClient implements AutoCloseable {
     }
 
     /**
-     * Closes the client and releases resources.
+     * Creates a body that serializes the payload into the connection's sink when the request is written,
+     * with a writer cached for the payload's type.
+     */
+    private RequestBody jsonBody(Object payload) {
+        return new JsonRequestBody(codec.writer(payload.getClass()), payload);
+    }
+
+    private Request postJson(String path, Object payload) throws IOException {
+        return new Request.Builder()
+                .url(host + path)
+                .post(jsonBody(payload))
+                .build();
+    }
+
+    /**
+     * Queues the request on the OkHttp dispatcher and binds the response body to the given type.
+     * No thread is held while the call is in flight; cancelling the future cancels the call.
+     */
+    private <T> CompletableFuture<T> enqueue(Request httpRequest, Class<T> responseType, String operation) {
+        return enqueue(httpRequest, codec.reader(responseType), operation);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Request httpRequest, ObjectReader reader, String operation) {
+        Call call = newAsyncCall(httpRequest);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((value, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (e instanceof SocketTimeoutException) {
+                    future.completeExceptionally(new OllamaTimeoutException("Request timed out while " + operation, e));
+                } else {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    future.complete(readResponse(r, reader));
+                } catch (SocketTimeoutException e) {
+                    future.completeExceptionally(new OllamaTimeoutException("Request timed out while " + operation, e));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates a call to be enqueued on the dispatcher. With a retry policy, every attempt is enqueued
+     * on its own, so that backoff delays are not waited out on a dispatcher thread. With a concurrency
+     * limiter, every attempt waits for a slot before it is enqueued, for the same reason.
+     */
+    private Call newAsyncCall(Request httpRequest) {
+        Call.Factory direct = request ->
+                client.newCall(metrics == ClientMetrics.NONE ? request : MetricsInterceptor.enqueued(request));
+        Call.Factory factory = concurrencyLimiter != null
+                ? request -> concurrencyLimiter.newCall(direct, request) : direct;
+        return retryInterceptor != null ? retryInterceptor.newCall(factory, httpRequest) : factory.newCall(httpRequest);
+    }
+
+    private <T> T readResponse(Response response, Class<T> responseType) throws IOException {
+        return readResponse(response, codec.reader(responseType));
+    }
+
+    private <T> T readResponse(Response response, ObjectReader reader) throws IOException {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            String errorBody = body != null ? body.string() : "No error body";
+            throw new OllamaResponseException(response.code(),
+                    String.format("Request failed with code %d: %s", response.code(), errorBody));
+        }
+        if (body == null) {
+            throw new IOException("Empty response body");
+        }
+        return observe(response, reader.readValue(body.byteStream()));
+    }
+
+    /**
+     * Reports the server timings of a final response, if metrics are on.
+     */
+    private <T> T observe(Response response, T value) {
+        if (metrics != ClientMetrics.NONE) {
+            ServerTimings timings = ServerTimings.of(value);
+            if (timings != null) {
+                Request request = response.request();
+                metrics.serverTimings(request.url().encodedPath(), MetricsInterceptor.modelOf(request), timings);
+            }
+        }
+        return value;
+    }
+
+    private <T> Stream<T> timed(Stream<T> frames, String endpoint, long start) {
+        if (metrics == ClientMetrics.NONE) {
+            return frames;
+        }
+        StreamTimer timer = new StreamTimer(metrics, endpoint, start);
+        return frames.peek(timer::onFrame);
+    }
+
+    private <T> Publisher<T> timed(Publisher<T> frames, String endpoint) {
+        return metrics == ClientMetrics.NONE ? frames : StreamTimer.observe(metrics, endpoint, frames);
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * Closes the client and releases resources, including the health probes it started.
+     * An HTTP client supplied through {@link Builder#httpClient(OkHttpClient)} is left running,
+     * since other clients may share it.
      */
     @Override
     public void close() {
-        client.dispatcher().executorService().shutdown();
+        if (watching.compareAndSet(true, false)) {
+            healthMonitor.unwatch(host);
+        }
+        if (ownsHttpClient) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Builder for {@link OllamaClient}s that need more than the default HTTP settings.
+     * <p>
+     * OkHttp's defaults allow 64 concurrent requests in total but only 5 per host, which limits the
+     * number of parallel generations against a single Ollama server. Raise
+     * {@link #maxRequestsPerHost(int)} to match the server's {@code OLLAMA_NUM_PARALLEL}.
+     */
+    public static final class Builder {
+        private String host;
+        private OkHttpClient httpClient;
+        private ObjectMapper objectMapper;
+        private JsonCodec codec;
+        private final List<Agent> agents = new ArrayList<>();
+        private Long connectTimeoutMillis;
+        private Long readTimeoutMillis;
+        private Long writeTimeoutMillis;
+        private Long callTimeoutMillis;
+        private int maxRequests = -1;
+        private int maxRequestsPerHost = -1;
+        private int maxIdleConnections = -1;
+        private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+        private boolean h2cPriorKnowledge = false;
+        private boolean tcpNoDelay = false;
+        private int prewarmConnections = 0;
+        private HealthMonitor healthMonitor;
+        private RetryPolicy retryPolicy;
+        private RetryInterceptor retryInterceptor;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter;
+        private ClientMetrics metrics;
+
+        private Builder() {
+        }
+
+        /**
+         * @param host The server base URL; defaults to the configured host as for {@link OllamaClient#OllamaClient()}
+         */
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * Uses an existing HTTP client, sharing its connection pool and dispatcher with every other
+         * {@link OllamaClient} built from it. Settings made on this builder are applied to a derived
+         * client via {@link OkHttpClient#newBuilder()}, which still shares the pool and dispatcher;
+         * dispatcher limits therefore change the shared dispatcher. Timeouts not set on this builder
+         * keep the shared client's values. Closing the resulting {@link OllamaClient} leaves the
+         * shared client running.
+         */
+        public Builder httpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder objectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        /**
+         * Reports call latency, dispatcher queue time, time to first token, inter-token gaps and the
+         * server's own timings to a listener, e.g. {@link HdrHistogramMetrics} or a bridge to a metrics registry.
+         */
+        public Builder metrics(ClientMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Uses a codec with cached readers and writers, e.g. {@link JsonCodec#accelerated()}.
+         * Takes precedence over {@link #objectMapper(ObjectMapper)}.
+         */
+        public Builder jsonCodec(JsonCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        public Builder agent(Agent agent) {
+            this.agents.add(agent);
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder connectTimeout(Duration timeout) {
+            return connectTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder readTimeout(Duration timeout) {
+            return readTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(Duration timeout) {
+            return writeTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @param timeout Limit on a whole call including redirects and reading the body; 0 for none
+         */
+        public Builder callTimeout(long timeout, TimeUnit unit) {
+            this.callTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder callTimeout(Duration timeout) {
+            return callTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @param maxRequests Maximum number of concurrent asynchronous requests (OkHttp default 64)
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests must be at least 1");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerHost Maximum number of concurrent asynchronous requests per host (OkHttp default 5)
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sizes the connection pool. Idle connections beyond the limit, or idle for longer than the
+         * keep-alive, are closed.
+         *
+         * @param maxIdleConnections Idle connections kept open (OkHttp default 5)
+         * @param keepAlive How long an idle connection is kept (OkHttp default 5 minutes)
+         */
+        public Builder connectionPool(int maxIdleConnections, Duration keepAlive) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must not be negative");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMillis = keepAlive.toMillis();
+            return this;
+        }
+
+        /**
+         * Speaks HTTP/2 over cleartext without an upgrade handshake, multiplexing all requests to a
+         * host over one connection. The server must accept h2c, for example behind a proxy such as
+         * Envoy or nginx; Ollama itself serves HTTP/1.1 only. Not valid for https hosts.
+         */
+        public Builder h2cPriorKnowledge(boolean enabled) {
+            this.h2cPriorKnowledge = enabled;
+            return this;
+        }
+
+        /**
+         * Disables Nagle's algorithm on new sockets so small request writes are sent immediately.
+         */
+        public Builder tcpNoDelay(boolean enabled) {
+            this.tcpNoDelay = enabled;
+            return this;
+        }
+
+        /**
+         * Opens connections when the client is built; see {@link OllamaClient#prewarm(int)}.
+         *
+         * @param connections The number of connections to open, 0 to disable
+         */
+        public Builder prewarmConnections(int connections) {
+            this.prewarmConnections = connections;
+            return this;
+        }
+
+        /**
+         * Guards the host with a circuit breaker and probes it periodically. Requests to a host whose
+         * breaker is open fail immediately with a {@link CircuitOpenException}.
+         *
+         * @param healthMonitor The monitor, which may be shared by several clients
+         */
+        public Builder healthMonitor(HealthMonitor healthMonitor) {
+            this.healthMonitor = healthMonitor;
+            return this;
+        }
+
+        /**
+         * Retries failed calls according to the policy, such as {@link ExponentialBackoff}.
+         * Retries happen before the response headers arrive, so streams are never replayed halfway.
+         *
+         * @param retryPolicy The policy, or null for a single attempt per call
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Limits concurrent calls per host and model to what the server handles without queueing,
+         * adapting the limit to observed latency. Calls over the limit wait for a slot or fail with a
+         * {@link ConcurrencyLimitException}. Unless {@link #maxRequestsPerHost(int)} is set, the
+         * dispatcher's per-host limit is raised so that it does not cap the adaptive one.
+         *
+         * @param concurrencyLimiter The limiter, which may be shared by several clients
+         */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        public OllamaClient build() {
+            return new OllamaClient(this);
+        }
+
+        /**
+         * Builds a client for another host with this configuration, such as one client per node of a
+         * cluster. The builder's own host is left unchanged.
+         *
+         * @param host The server base URL of the client
+         * @return The client
+         */
+        public OllamaClient build(String host) {
+            String configured = this.host;
+            this.host = host;
+            try {
+                return new OllamaClient(this);
+            } finally {
+                this.host = configured;
+            }
+        }
+
+        private OkHttpClient buildHttpClient() {
+            OkHttpClient.Builder builder;
+            if (httpClient != null) {
+                builder = httpClient.newBuilder();
+            } else {
+                builder = new OkHttpClient.Builder()
+                        .connectTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .readTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                        .writeTimeout(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            if (connectTimeoutMillis != null) {
+                builder.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (readTimeoutMillis != null) {
+                builder.readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (writeTimeoutMillis != null) {
+                builder.writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (callTimeoutMillis != null) {
+                builder.callTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            boolean widenPerHost = concurrencyLimiter != null && maxRequestsPerHost <= 0 && httpClient == null;
+            if (maxRequests > 0 || maxRequestsPerHost > 0 || widenPerHost) {
+                Dispatcher dispatcher = httpClient != null ? httpClient.dispatcher() : new Dispatcher();
+                if (maxRequests > 0) {
+                    dispatcher.setMaxRequests(maxRequests);
+                }
+                if (maxRequestsPerHost > 0) {
+                    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+                } else if (widenPerHost) {
+                    // Leave the per-host cap to the adaptive limiter
+                    dispatcher.setMaxRequestsPerHost(Math.max(dispatcher.getMaxRequestsPerHost(),
+                            Math.min(dispatcher.getMaxRequests(), concurrencyLimiter.getMaxLimit())));
+                }
+                builder.dispatcher(dispatcher);
+            }
+            if (maxIdleConnections >= 0) {
+                builder.connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS));
+            }
+            if (h2cPriorKnowledge) {
+                builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+            }
+            if (healthMonitor != null && !builder.interceptors().contains(healthMonitor)) {
+                builder.addInterceptor(healthMonitor);
+            }
+            if (concurrencyLimiter != null && !builder.interceptors().contains(concurrencyLimiter)) {
+                // Inside the retry loop, so that every attempt takes a slot and reports its latency
+                builder.interceptors().add(0, concurrencyLimiter);
+            }
+            retryInterceptor = null;
+            if (retryPolicy != null) {
+                // Outermost, so that every attempt passes through the circuit breaker
+                retryInterceptor = new RetryInterceptor(retryPolicy);
+                builder.interceptors().add(0, retryInterceptor);
+            }
+            if (metrics != null) {
+                // Outermost of all, so that latency covers retries
+                builder.interceptors().add(0, new MetricsInterceptor(metrics));
+            }
+            if (tcpNoDelay) {
+                builder.socketFactory(new NoDelaySocketFactory(SocketFactory.getDefault()));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Socket factory that enables TCP_NODELAY on every socket it creates.
+     * OkHttp creates unconnected sockets, so only {@link #createSocket()} is used in practice.
+     */
+    private static final class NoDelaySocketFactory extends SocketFactory {
+        private final SocketFactory delegate;
+
+        private NoDelaySocketFactory(SocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private static Socket noDelay(Socket socket) throws IOException {
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return noDelay(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return noDelay(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return noDelay(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return noDelay(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return noDelay(delegate.createSocket(address, port, localAddress, localPort));
+        }
     }
 } 
\ No newline at end of file
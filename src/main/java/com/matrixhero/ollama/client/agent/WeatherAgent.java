@@ -1,8 +1,8 @@
 package com.matrixhero.ollama.client.agent;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.json.JsonCodec;
 import com.matrixhero.ollama.client.model.ChatRequest;
 import com.matrixhero.ollama.client.model.Message;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +28,7 @@ public class WeatherAgent implements Agent {
     );
     private final String apiKey;
     private final OkHttpClient client;
-    private final ObjectMapper objectMapper;
+    private final JsonCodec codec;
     private final OllamaClient ollamaClient;
 
     public WeatherAgent(OllamaClient ollamaClient) {
@@ -43,7 +43,7 @@ public class WeatherAgent implements Agent {
             );
         }
         this.client = new OkHttpClient();
-        this.objectMapper = new ObjectMapper();
+        this.codec = ollamaClient != null ? ollamaClient.getJsonCodec() : JsonCodec.defaults();
     }
 
     private String getApiKey() {
@@ -115,8 +115,7 @@ public class WeatherAgent implements Agent {
                 return "Sorry, failed to get weather information. Please check if the city name is correct.";
             }
 
-            String responseBody = response.body().string();
-            WeatherResponse weatherResponse = objectMapper.readValue(responseBody, WeatherResponse.class);
+            WeatherResponse weatherResponse = codec.read(response.body(), WeatherResponse.class);
             
             return formatWeatherResponse(weatherResponse);
         }
@@ -0,0 +1,514 @@
+package com.matrixhero.ollama.client.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.schedule.Priority;
+import com.matrixhero.ollama.client.schedule.RequestScheduler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs a JSONL file of generate and chat requests through a client with bounded parallelism,
+ * writing results incrementally and checkpointing progress so that a restarted job skips finished work.
+ * <p>
+ * Each non-blank input line is one request: a {@link ChatRequest} if it has a {@code messages}
+ * field, otherwise a {@link GenerateRequest}. An optional {@code id} field is not sent but copied to
+ * the result. Each success appends one line to the output, in completion order:
+ * <pre>{"line":12,"id":"doc-7","response":{...}}</pre>
+ * where {@code line} is the zero-based line number in the input.
+ * <p>
+ * The checkpoint holds a bitmap of the finished input lines and the length of the output at the
+ * time it was written. On restart the output is truncated to that length and only lines missing
+ * from the bitmap are sent again, so every input line appears in the output exactly once even if
+ * the previous run crashed halfway. Failed lines are logged and counted but not written, and are
+ * retried by the next run. Without a checkpoint file the job starts from the beginning and the
+ * output is overwritten.
+ * <p>
+ * Instances are not thread-safe; configure one per job.
+ */
+@Slf4j
+public class BatchRunner {
+    private static final int CHECKPOINT_MAGIC = 0x4F4C4243;
+    private static final int CHECKPOINT_VERSION = 1;
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_CHECKPOINT_EVERY = 1000;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final OllamaClient client;
+    private final ObjectMapper mapper;
+    private final Path input;
+    private final Path output;
+    private Path checkpoint;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int checkpointEvery = DEFAULT_CHECKPOINT_EVERY;
+    private long checkpointIntervalMillis = DEFAULT_CHECKPOINT_INTERVAL_MILLIS;
+    private long maxFailures = -1;
+    private RequestScheduler scheduler;
+    private String tenant;
+    private Consumer<Progress> progressListener;
+    private long progressIntervalMillis;
+
+    /**
+     * Creates a runner with default settings (4 requests in flight, a checkpoint every 1000 results
+     * or 10 seconds, stored next to the output with a {@code .checkpoint} suffix).
+     *
+     * @param client The client that makes the calls
+     * @param input The JSONL file of requests
+     * @param output The JSONL file of results
+     */
+    public BatchRunner(OllamaClient client, Path input, Path output) {
+        this.client = client;
+        this.mapper = client.getJsonCodec().getObjectMapper();
+        this.input = input;
+        this.output = output;
+        this.checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * @param parallelism Requests in flight at once
+     * @return This runner for method chaining
+     */
+    public BatchRunner withParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param checkpoint Where to keep the checkpoint
+     * @return This runner for method chaining
+     */
+    public BatchRunner withCheckpoint(Path checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Sets how often the checkpoint is written; whichever limit is reached first triggers a write.
+     * Each write flushes the output to disk, so very frequent checkpoints cost throughput.
+     *
+     * @param results Results since the last checkpoint
+     * @param interval Time since the last checkpoint
+     * @return This runner for method chaining
+     */
+    public BatchRunner withCheckpointEvery(int results, long interval, TimeUnit unit) {
+        if (results <= 0) {
+            throw new IllegalArgumentException("Checkpoint frequency must be positive");
+        }
+        this.checkpointEvery = results;
+        this.checkpointIntervalMillis = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Stops sending new requests once more than the given number have failed, e.g. when the server
+     * went away; the run then ends with an exception after the requests in flight have finished.
+     *
+     * @param maxFailures Failures tolerated, or -1 for no limit (the default)
+     * @return This runner for method chaining
+     */
+    public BatchRunner withMaxFailures(long maxFailures) {
+        this.maxFailures = maxFailures;
+        return this;
+    }
+
+    /**
+     * Sends the requests through a scheduler as {@link Priority#BATCH} work, so that the job yields
+     * to interactive traffic on the same client.
+     *
+     * @param scheduler The scheduler
+     * @param tenant The tenant the job is accounted to
+     * @return This runner for method chaining
+     */
+    public BatchRunner withScheduler(RequestScheduler scheduler, String tenant) {
+        this.scheduler = scheduler;
+        this.tenant = tenant;
+        return this;
+    }
+
+    /**
+     * @param listener Receives progress periodically and once more when the run ends
+     * @param interval Time between reports
+     * @return This runner for method chaining
+     */
+    public BatchRunner withProgressListener(Consumer<Progress> listener, long interval, TimeUnit unit) {
+        this.progressListener = listener;
+        this.progressIntervalMillis = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Runs the job until every line has been attempted.
+     *
+     * @return The final progress
+     * @throws IOException if the input, output or checkpoint cannot be read or written, or the failure limit was exceeded
+     */
+    public Progress run() throws IOException {
+        Job job = new Job();
+        ScheduledExecutorService reporter = null;
+        if (progressListener != null && progressIntervalMillis > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ollama-batch-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> progressListener.accept(job.progress()),
+                    progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            job.execute();
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+        Progress progress = job.progress();
+        if (progressListener != null) {
+            progressListener.accept(progress);
+        }
+        if (job.aborted) {
+            throw new IOException("Batch aborted after " + progress.getFailed() + " failures");
+        }
+        return progress;
+    }
+
+    /**
+     * State of one run.
+     */
+    private final class Job {
+        private final BitSet done = new BitSet();
+        private final Semaphore slots = new Semaphore(parallelism);
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final long startNanos = System.nanoTime();
+        private long total;
+        private long skipped;
+        private FileOutputStream file;
+        private OutputStream out;
+        private long outputLength;
+        private int sinceCheckpoint;
+        private long lastCheckpointMillis = System.currentTimeMillis();
+        private IOException writeError;
+        private volatile boolean aborted;
+
+        void execute() throws IOException {
+            long resumeLength = loadCheckpoint();
+            skipped = done.cardinality();
+            total = countRecords();
+            file = new FileOutputStream(output.toFile(), true);
+            try {
+                FileChannel channel = file.getChannel();
+                if (channel.size() < resumeLength) {
+                    throw new IOException("Output " + output + " is shorter than its checkpoint");
+                }
+                // Drop results written after the last checkpoint; their lines are sent again
+                channel.truncate(resumeLength);
+                outputLength = resumeLength;
+                out = new BufferedOutputStream(file);
+                if (skipped > 0) {
+                    log.info("Resuming {}: {} of {} lines already done", input, skipped, total);
+                }
+                submitAll();
+                awaitIdle();
+                synchronized (this) {
+                    if (writeError == null) {
+                        saveCheckpoint();
+                    }
+                }
+            } finally {
+                file.close();
+            }
+            if (writeError != null) {
+                throw writeError;
+            }
+        }
+
+        private void submitAll() throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                int number = -1;
+                while ((line = reader.readLine()) != null) {
+                    number++;
+                    if (line.trim().isEmpty() || isDone(number)) {
+                        continue;
+                    }
+                    if (aborted || writeError != null) {
+                        break;
+                    }
+                    try {
+                        slots.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while submitting batch requests");
+                    }
+                    submit(number, line);
+                }
+            }
+        }
+
+        private void submit(int number, String line) {
+            JsonNode id;
+            CompletableFuture<?> call;
+            try {
+                ObjectNode record = (ObjectNode) mapper.readTree(line);
+                id = record.remove("id");
+                call = record.has("messages") ? chat(mapper.treeToValue(record, ChatRequest.class))
+                        : generate(mapper.treeToValue(record, GenerateRequest.class));
+            } catch (IOException | RuntimeException e) {
+                slots.release();
+                onFailure(number, e);
+                return;
+            }
+            inFlight.incrementAndGet();
+            call.whenComplete((response, error) -> {
+                try {
+                    if (error == null) {
+                        onSuccess(number, id, response);
+                    } else {
+                        onFailure(number, error);
+                    }
+                } finally {
+                    inFlight.decrementAndGet();
+                    slots.release();
+                }
+            });
+        }
+
+        private CompletableFuture<?> generate(GenerateRequest request) {
+            return scheduler != null ? scheduler.generateAsync(Priority.BATCH, tenant, request)
+                    : client.generateAsync(request);
+        }
+
+        private CompletableFuture<?> chat(ChatRequest request) {
+            return scheduler != null ? scheduler.chatAsync(Priority.BATCH, tenant, request)
+                    : client.chatAsync(request);
+        }
+
+        private void onSuccess(int number, JsonNode id, Object response) {
+            ObjectNode result = mapper.createObjectNode();
+            result.put("line", number);
+            if (id != null) {
+                result.set("id", id);
+            }
+            result.putPOJO("response", response);
+            synchronized (this) {
+                if (writeError != null) {
+                    return;
+                }
+                try {
+                    byte[] bytes = mapper.writeValueAsBytes(result);
+                    out.write(bytes);
+                    out.write('\n');
+                    outputLength += bytes.length + 1;
+                    done.set(number);
+                    completed.increment();
+                    if (++sinceCheckpoint >= checkpointEvery
+                            || System.currentTimeMillis() - lastCheckpointMillis >= checkpointIntervalMillis) {
+                        saveCheckpoint();
+                    }
+                } catch (IOException e) {
+                    writeError = e;
+                    log.error("Failed to write batch result for line {}", number, e);
+                }
+            }
+        }
+
+        private void onFailure(int number, Throwable error) {
+            failed.increment();
+            log.warn("Batch line {} failed: {}", number, error.toString());
+            if (maxFailures >= 0 && failed.sum() > maxFailures) {
+                aborted = true;
+            }
+        }
+
+        private synchronized boolean isDone(int number) {
+            return done.get(number);
+        }
+
+        private void awaitIdle() throws IOException {
+            try {
+                slots.acquire(parallelism);
+                slots.release(parallelism);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for batch requests");
+            }
+        }
+
+        private long countRecords() throws IOException {
+            long count = 0;
+            try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return The output length recorded in the checkpoint, or 0 to start over
+         */
+        private long loadCheckpoint() throws IOException {
+            if (!Files.exists(checkpoint)) {
+                return 0;
+            }
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+                if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                    throw new IOException("Not a batch checkpoint: " + checkpoint);
+                }
+                long length = in.readLong();
+                long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                done.or(BitSet.valueOf(words));
+                return length;
+            }
+        }
+
+        /**
+         * Flushes the output to disk, then atomically replaces the checkpoint. Called with the monitor held.
+         */
+        private void saveCheckpoint() throws IOException {
+            out.flush();
+            file.getFD().sync();
+            Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            long[] words = done.toLongArray();
+            try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)))) {
+                data.writeInt(CHECKPOINT_MAGIC);
+                data.writeInt(CHECKPOINT_VERSION);
+                data.writeLong(outputLength);
+                data.writeInt(words.length);
+                for (long word : words) {
+                    data.writeLong(word);
+                }
+            }
+            try {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+            }
+            sinceCheckpoint = 0;
+            lastCheckpointMillis = System.currentTimeMillis();
+        }
+
+        Progress progress() {
+            return new Progress(total, skipped, completed.sum(), failed.sum(), inFlight.get(),
+                    System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Counters of a run at the time of the snapshot.
+     */
+    public static final class Progress {
+        private final long total;
+        private final long skipped;
+        private final long completed;
+        private final long failed;
+        private final int inFlight;
+        private final long elapsedNanos;
+
+        private Progress(long total, long skipped, long completed, long failed, int inFlight, long elapsedNanos) {
+            this.total = total;
+            this.skipped = skipped;
+            this.completed = completed;
+            this.failed = failed;
+            this.inFlight = inFlight;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** @return Requests in the input */
+        public long getTotal() {
+            return total;
+        }
+
+        /** @return Requests finished by earlier runs and skipped */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /** @return Requests completed by this run */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /** @return Requests that failed in this run */
+        public long getFailed() {
+            return failed;
+        }
+
+        /** @return Requests currently being processed */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /** @return Requests neither finished nor failed yet */
+        public long getRemaining() {
+            return Math.max(0, total - skipped - completed - failed);
+        }
+
+        public long getElapsed(TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /** @return Requests completed per second by this run */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0.0 : completed / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return Estimated time until every remaining request is done at the current throughput, or -1 before any completed
+         */
+        public long getEta(TimeUnit unit) {
+            double throughput = getThroughput();
+            if (throughput == 0) {
+                return getRemaining() == 0 ? 0 : -1;
+            }
+            return unit.convert((long) (getRemaining() / throughput * 1e9), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            long eta = getEta(TimeUnit.SECONDS);
+            return String.format("%d/%d done (%d skipped), %d failed, %d in flight, %.1f req/s, ETA %s",
+                    skipped + completed, total, skipped, failed, inFlight, getThroughput(),
+                    eta < 0 ? "unknown" : eta + "s");
+        }
+    }
+}
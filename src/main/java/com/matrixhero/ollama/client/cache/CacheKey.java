@@ -0,0 +1,61 @@
+package com.matrixhero.ollama.client.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * SHA-256 content key for cache entries.
+ */
+final class CacheKey {
+    static final int SIZE = 32;
+
+    private final byte[] digest;
+    private final int hash;
+
+    CacheKey(byte[] digest) {
+        this.digest = digest;
+        this.hash = Arrays.hashCode(digest);
+    }
+
+    /**
+     * Hashes the given parts, separated so that ("ab", "c") and ("a", "bc") differ.
+     */
+    static CacheKey of(String... parts) {
+        MessageDigest sha256 = sha256();
+        for (String part : parts) {
+            if (part != null) {
+                sha256.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            sha256.update((byte) 0);
+        }
+        return new CacheKey(sha256.digest());
+    }
+
+    static CacheKey of(byte[] content) {
+        return new CacheKey(sha256().digest(content));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    byte[] digest() {
+        return digest;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof CacheKey && Arrays.equals(digest, ((CacheKey) o).digest));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
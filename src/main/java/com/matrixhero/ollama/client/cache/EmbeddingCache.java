@@ -0,0 +1,224 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caching decorator around {@link OllamaClient#embed(EmbedRequest)}.
+ * Entries are keyed by model name plus a SHA-256 hash of the input text. Lookups go through a
+ * size-bounded in-memory LRU tier first and, when configured, an append-only memory-mapped disk
+ * tier that survives restarts. Only misses reach the server.
+ * <p>
+ * This class is thread-safe.
+ */
+public class EmbeddingCache implements Closeable {
+    /** Approximate per-entry overhead of the map node, key and array header */
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final OllamaClient client;
+    private final long maxMemoryBytes;
+    private final EmbeddingDiskTier diskTier;
+    private final LinkedHashMap<CacheKey, double[]> memoryTier = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes = 0;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a memory-only cache.
+     *
+     * @param client The client used on cache misses
+     * @param maxMemoryBytes Approximate heap budget of the in-memory tier
+     */
+    public EmbeddingCache(OllamaClient client, long maxMemoryBytes) {
+        this.client = client;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskTier = null;
+    }
+
+    /**
+     * Creates a cache with an in-memory tier backed by a persistent disk tier.
+     * Existing entries in the file are available immediately.
+     *
+     * @param client The client used on cache misses
+     * @param maxMemoryBytes Approximate heap budget of the in-memory tier
+     * @param file The disk tier file, created if it does not exist
+     * @throws IOException if the file cannot be opened or is not a cache file
+     */
+    public EmbeddingCache(OllamaClient client, long maxMemoryBytes, Path file) throws IOException {
+        this.client = client;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskTier = new EmbeddingDiskTier(file);
+    }
+
+    /**
+     * Returns the cached embedding for the request, or embeds it on the server and caches the result.
+     * @param request The embedding request containing model and input text
+     * @return The embedding response; cache hits only carry the model and embedding
+     * @throws IOException if there's an error communicating with the server
+     */
+    public EmbedResponse embed(EmbedRequest request) throws IOException {
+        CacheKey key = CacheKey.of(request.getModel(), request.getInput());
+
+        double[] embedding = getFromMemory(key);
+        if (embedding != null) {
+            memoryHits.increment();
+            return hit(request, embedding);
+        }
+
+        if (diskTier != null) {
+            embedding = diskTier.get(key);
+            if (embedding != null) {
+                diskHits.increment();
+                putInMemory(key, embedding);
+                return hit(request, embedding);
+            }
+        }
+
+        misses.increment();
+        EmbedResponse response = client.embed(request);
+        if (response.getEmbedding() != null) {
+            double[] copy = response.getEmbedding().clone();
+            putInMemory(key, copy);
+            if (diskTier != null) {
+                diskTier.put(key, copy);
+            }
+        }
+        return response;
+    }
+
+    private EmbedResponse hit(EmbedRequest request, double[] embedding) {
+        EmbedResponse response = new EmbedResponse();
+        response.setModel(request.getModel());
+        // Callers may modify the returned vector, so the cached one is never handed out
+        response.setEmbedding(embedding.clone());
+        return response;
+    }
+
+    private synchronized double[] getFromMemory(CacheKey key) {
+        return memoryTier.get(key);
+    }
+
+    private synchronized void putInMemory(CacheKey key, double[] embedding) {
+        long weight = weight(embedding);
+        if (weight > maxMemoryBytes) {
+            return;
+        }
+        double[] previous = memoryTier.put(key, embedding);
+        memoryBytes += weight;
+        if (previous != null) {
+            memoryBytes -= weight(previous);
+        }
+        Iterator<Map.Entry<CacheKey, double[]>> eldest = memoryTier.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= weight(eldest.next().getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long weight(double[] embedding) {
+        return ENTRY_OVERHEAD + (long) embedding.length * Double.BYTES;
+    }
+
+    /**
+     * @return A snapshot of the cache counters
+     */
+    public synchronized Stats stats() {
+        return new Stats(memoryHits.sum(), diskHits.sum(), misses.sum(), evictions.sum(),
+                memoryTier.size(), memoryBytes, diskTier == null ? 0 : diskTier.size());
+    }
+
+    /**
+     * Flushes and closes the disk tier, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (diskTier != null) {
+            diskTier.close();
+        }
+    }
+
+    /**
+     * Point-in-time cache counters for sizing the tiers.
+     */
+    public static final class Stats {
+        private final long memoryHits;
+        private final long diskHits;
+        private final long misses;
+        private final long evictions;
+        private final int memoryEntries;
+        private final long memoryBytes;
+        private final int diskEntries;
+
+        Stats(long memoryHits, long diskHits, long misses, long evictions,
+              int memoryEntries, long memoryBytes, int diskEntries) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.memoryEntries = memoryEntries;
+            this.memoryBytes = memoryBytes;
+            this.diskEntries = diskEntries;
+        }
+
+        /** Lookups served by the in-memory tier */
+        public long getMemoryHits() {
+            return memoryHits;
+        }
+
+        /** Lookups served by the disk tier */
+        public long getDiskHits() {
+            return diskHits;
+        }
+
+        /** Lookups that went to the server */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Entries evicted from the in-memory tier */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Entries currently held in memory */
+        public int getMemoryEntries() {
+            return memoryEntries;
+        }
+
+        /** Approximate heap held by the in-memory tier */
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /** Entries persisted in the disk tier */
+        public int getDiskEntries() {
+            return diskEntries;
+        }
+
+        /** Fraction of lookups served without a server round trip */
+        public double getHitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0.0 : (double) (memoryHits + diskHits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("EmbeddingCache.Stats(memoryHits=%d, diskHits=%d, misses=%d, evictions=%d, "
+                            + "memoryEntries=%d, memoryBytes=%d, diskEntries=%d)",
+                    memoryHits, diskHits, misses, evictions, memoryEntries, memoryBytes, diskEntries);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.matrixhero.ollama.client.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only, memory-mapped file of cached embeddings.
+ * <p>
+ * Layout: an 8-byte header ({@code magic, version}) followed by records of
+ * {@code [32-byte key][int dimension][dimension * float64]}. The key-to-offset index is rebuilt
+ * by scanning the mapped file on open; a torn record left by a crash is truncated away.
+ * The file is capped at 2 GB, after which new entries are no longer persisted.
+ */
+@Slf4j
+class EmbeddingDiskTier implements Closeable {
+    private static final int MAGIC = 0x4F454D42; // "OEMB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final Map<CacheKey, Long> index = new HashMap<>();
+    private MappedByteBuffer mapped;
+    private long size;
+
+    EmbeddingDiskTier(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+        }
+        this.size = channel.size();
+        remap();
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not an embedding cache file: " + file);
+        }
+        load();
+    }
+
+    /**
+     * Rebuilds the index from the records on disk.
+     */
+    private void load() throws IOException {
+        long offset = HEADER_SIZE;
+        while (offset + CacheKey.SIZE + 4 <= size) {
+            int dimension = mapped.getInt((int) offset + CacheKey.SIZE);
+            long end = offset + recordSize(dimension);
+            if (dimension < 0 || end > size) {
+                break;
+            }
+            byte[] digest = new byte[CacheKey.SIZE];
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) offset);
+            view.get(digest);
+            index.put(new CacheKey(digest), offset);
+            offset = end;
+        }
+        if (offset != size) {
+            log.warn("Truncating {} bytes of incomplete embedding cache record", size - offset);
+            channel.truncate(offset);
+            size = offset;
+            remap();
+        }
+    }
+
+    synchronized double[] get(CacheKey key) throws IOException {
+        Long offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        if (offset >= mapped.capacity()) {
+            remap();
+        }
+        int position = (int) (long) offset + CacheKey.SIZE;
+        double[] embedding = new double[mapped.getInt(position)];
+        ByteBuffer view = mapped.duplicate();
+        view.position(position + 4);
+        view.asDoubleBuffer().get(embedding);
+        return embedding;
+    }
+
+    synchronized void put(CacheKey key, double[] embedding) throws IOException {
+        if (index.containsKey(key)) {
+            return;
+        }
+        long recordSize = recordSize(embedding.length);
+        if (size + recordSize > MAX_SIZE) {
+            log.warn("Embedding cache file is full, entry not persisted");
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize);
+        record.put(key.digest()).putInt(embedding.length);
+        record.asDoubleBuffer().put(embedding);
+        record.clear();
+        long offset = size;
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        size += recordSize;
+        // The mapping is extended lazily by the first read past its end
+        index.put(key, offset);
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private static long recordSize(int dimension) {
+        return CacheKey.SIZE + 4 + (long) dimension * Double.BYTES;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+}
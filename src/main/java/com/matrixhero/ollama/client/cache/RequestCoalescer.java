@@ -0,0 +1,504 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Singleflight decorator around {@link OllamaClient}: concurrent identical calls share one request
+ * to the server.
+ * <p>
+ * Requests are identified by their canonical serialized form. While a call is in flight, identical
+ * calls wait for it and receive the same parsed response object, so responses must be treated as
+ * read-only. Embedding calls are always coalesced; generate and chat calls only when their options
+ * make sampling reproducible (temperature 0 or a fixed seed), and chat calls only when no agent may
+ * run, since agents append to the caller's conversation. Every caller of a shared chat call has its
+ * request updated as if it had made the call itself.
+ * <p>
+ * Streams are shared too: a caller joining a stream that is already running first receives the
+ * frames read so far, then the remaining frames as they arrive. Whichever subscriber is furthest
+ * ahead reads the next frame from the server, and the server call is cancelled once every subscriber
+ * has closed its stream. Nothing is kept once a call completes.
+ * <p>
+ * This class is thread-safe.
+ */
+public class RequestCoalescer {
+    private final OllamaClient client;
+    private final ConcurrentHashMap<CacheKey, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CacheKey, SharedStream<?>> streams = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param client The client that makes the calls
+     */
+    public RequestCoalescer(OllamaClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#embed}.
+     */
+    public EmbedResponse embed(EmbedRequest request) throws IOException {
+        return await(embedAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#embedAsync}.
+     */
+    public CompletableFuture<EmbedResponse> embedAsync(EmbedRequest request) {
+        return join(RequestKeys.of("embed", request), () -> client.embedAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#embedBatch}.
+     */
+    public EmbedBatchResponse embedBatch(EmbedBatchRequest request) throws IOException {
+        return await(embedBatchAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#embedBatchAsync}.
+     */
+    public CompletableFuture<EmbedBatchResponse> embedBatchAsync(EmbedBatchRequest request) {
+        return join(RequestKeys.of("embedBatch", request), () -> client.embedBatchAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#generate}.
+     */
+    public GenerateResponse generate(GenerateRequest request) throws IOException {
+        return await(generateAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#generateAsync}.
+     */
+    public CompletableFuture<GenerateResponse> generateAsync(GenerateRequest request) {
+        if (!RequestKeys.isDeterministic(request.getOptions())) {
+            calls.increment();
+            return client.generateAsync(request);
+        }
+        request.setStream(false);
+        return join(RequestKeys.of("generate", request), () -> client.generateAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#generateStream}.
+     */
+    public Stream<GenerateResponse> generateStream(GenerateRequest request) throws IOException {
+        if (!RequestKeys.isDeterministic(request.getOptions())) {
+            calls.increment();
+            return client.generateStream(request);
+        }
+        request.setStream(true);
+        return joinStream(RequestKeys.of("generate", request), () -> client.generateStream(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#chat}.
+     */
+    public ChatResponse chat(ChatRequest request) throws IOException {
+        return await(chatAsync(request));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#chatAsync}.
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request) {
+        if (!isShareable(request)) {
+            calls.increment();
+            return client.chatAsync(request);
+        }
+        request.setStream(false);
+        return join(RequestKeys.of("chat", request), () -> client.chatAsync(request),
+                response -> client.recordChat(request, response));
+    }
+
+    /**
+     * Coalesced {@link OllamaClient#chatStream}.
+     */
+    public Stream<ChatResponse> chatStream(ChatRequest request) throws IOException {
+        if (!isShareable(request)) {
+            calls.increment();
+            return client.chatStream(request);
+        }
+        request.setStream(true);
+        return joinStream(RequestKeys.of("chat", request), () -> client.chatStream(request));
+    }
+
+    private boolean isShareable(ChatRequest request) {
+        return RequestKeys.isDeterministic(request.getOptions())
+                && (!request.isUseAgents() || client.getAgents().isEmpty());
+    }
+
+    /**
+     * @return A snapshot of the coalescing counters
+     */
+    public Stats getStats() {
+        return new Stats(calls.sum(), coalesced.sum());
+    }
+
+    private <T> CompletableFuture<T> join(CacheKey key, Supplier<CompletableFuture<T>> call) {
+        return join(key, call, null);
+    }
+
+    /**
+     * @param joined Applied to the shared result for each caller that joined a call already in flight, or null
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> join(CacheKey key, Supplier<CompletableFuture<T>> call, Consumer<T> joined) {
+        calls.increment();
+        while (true) {
+            Flight<T> flight = (Flight<T>) flights.get(key);
+            if (flight == null) {
+                Flight<T> created = new Flight<>();
+                if (flights.putIfAbsent(key, created) != null) {
+                    continue;
+                }
+                CompletableFuture<T> subscription = created.subscribe(null);
+                created.start(call);
+                created.result.whenComplete((value, error) -> flights.remove(key, created));
+                return subscription;
+            }
+            CompletableFuture<T> subscription = flight.subscribe(joined);
+            if (subscription != null) {
+                coalesced.increment();
+                return subscription;
+            }
+            // Every earlier caller cancelled; start over
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Stream<T> joinStream(CacheKey key, StreamCall<T> call) throws IOException {
+        calls.increment();
+        while (true) {
+            SharedStream<T> shared = (SharedStream<T>) streams.get(key);
+            if (shared == null) {
+                SharedStream<T> created = new SharedStream<>(key, streams);
+                if (streams.putIfAbsent(key, created) != null) {
+                    continue;
+                }
+                Stream<T> subscription = created.subscribe();
+                created.open(call);
+                return subscription;
+            }
+            Stream<T> subscription = shared.subscribe();
+            if (subscription != null) {
+                coalesced.increment();
+                return subscription;
+            }
+            streams.remove(key, shared);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * A streaming call against the underlying client.
+     */
+    @FunctionalInterface
+    interface StreamCall<T> {
+        Stream<T> open() throws IOException;
+    }
+
+    /**
+     * One in-flight unary call and the callers waiting for it. The call is cancelled when every
+     * caller has cancelled.
+     */
+    private static final class Flight<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private CompletableFuture<T> upstream;
+        private int subscribers;
+        private boolean abandoned;
+
+        synchronized CompletableFuture<T> subscribe(Consumer<T> received) {
+            if (abandoned) {
+                return null;
+            }
+            subscribers++;
+            CompletableFuture<T> subscription = new CompletableFuture<>();
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    subscription.completeExceptionally(error);
+                    return;
+                }
+                if (received != null && !subscription.isDone()) {
+                    try {
+                        received.accept(value);
+                    } catch (RuntimeException e) {
+                        subscription.completeExceptionally(e);
+                        return;
+                    }
+                }
+                subscription.complete(value);
+            });
+            subscription.whenComplete((value, error) -> {
+                if (subscription.isCancelled()) {
+                    unsubscribe();
+                }
+            });
+            return subscription;
+        }
+
+        void start(Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            synchronized (this) {
+                upstream = future;
+                if (abandoned) {
+                    future.cancel(true);
+                }
+            }
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+
+        private synchronized void unsubscribe() {
+            if (--subscribers == 0 && !result.isDone()) {
+                abandoned = true;
+                result.cancel(true);
+                if (upstream != null) {
+                    upstream.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * One in-flight stream, buffered so that every subscriber sees every frame from the first.
+     */
+    private static final class SharedStream<T> {
+        private final CacheKey key;
+        private final ConcurrentHashMap<CacheKey, SharedStream<?>> registry;
+        private final ReentrantLock pullLock = new ReentrantLock();
+        private final List<T> frames = new ArrayList<>();
+        private Stream<T> upstream;
+        private Iterator<T> source;
+        private boolean done;
+        private RuntimeException error;
+        private int subscribers;
+        private boolean abandoned;
+
+        SharedStream(CacheKey key, ConcurrentHashMap<CacheKey, SharedStream<?>> registry) {
+            this.key = key;
+            this.registry = registry;
+        }
+
+        /**
+         * Stops new callers from joining once the stream has ended.
+         */
+        private void unregister() {
+            registry.remove(key, this);
+        }
+
+        /**
+         * Opens the server stream. Subscribers that joined meanwhile wait on the pull lock.
+         */
+        void open(StreamCall<T> call) throws IOException {
+            pullLock.lock();
+            try {
+                Stream<T> stream = call.open();
+                synchronized (this) {
+                    upstream = stream;
+                    source = stream.iterator();
+                }
+            } catch (IOException e) {
+                fail(new UncheckedIOException(e));
+                throw e;
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            } finally {
+                pullLock.unlock();
+            }
+        }
+
+        synchronized Stream<T> subscribe() {
+            if (abandoned) {
+                return null;
+            }
+            subscribers++;
+            Iterator<T> iterator = new Iterator<T>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return available(index);
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return frame(index++);
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(this::unsubscribe);
+        }
+
+        private synchronized T frame(int index) {
+            return frames.get(index);
+        }
+
+        /**
+         * Whether frame {@code index} exists, reading it from the server if this subscriber is the furthest ahead.
+         */
+        private boolean available(int index) {
+            synchronized (this) {
+                if (index < frames.size()) {
+                    return true;
+                }
+            }
+            pullLock.lock();
+            try {
+                Iterator<T> iterator;
+                synchronized (this) {
+                    if (index < frames.size()) {
+                        return true;
+                    }
+                    if (error != null) {
+                        throw error;
+                    }
+                    if (done) {
+                        return false;
+                    }
+                    iterator = source;
+                }
+                try {
+                    if (iterator.hasNext()) {
+                        T frame = iterator.next();
+                        synchronized (this) {
+                            frames.add(frame);
+                        }
+                        return true;
+                    }
+                    finish();
+                    return false;
+                } catch (RuntimeException e) {
+                    fail(e);
+                    throw e;
+                }
+            } finally {
+                pullLock.unlock();
+            }
+        }
+
+        private void finish() {
+            synchronized (this) {
+                done = true;
+            }
+            unregister();
+        }
+
+        private void fail(RuntimeException e) {
+            synchronized (this) {
+                error = e;
+                done = true;
+            }
+            unregister();
+        }
+
+        private void unsubscribe() {
+            Stream<T> toClose = null;
+            synchronized (this) {
+                if (--subscribers == 0 && !done) {
+                    abandoned = true;
+                    done = true;
+                    error = new IllegalStateException("Stream closed by every subscriber");
+                    toClose = upstream;
+                }
+            }
+            if (toClose != null) {
+                unregister();
+                toClose.close();
+            }
+        }
+    }
+
+    /**
+     * Coalescing counters since the decorator was created.
+     */
+    public static final class Stats {
+        private final long calls;
+        private final long coalesced;
+
+        private Stats(long calls, long coalesced) {
+            this.calls = calls;
+            this.coalesced = coalesced;
+        }
+
+        /** @return Calls made through the decorator */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** @return Calls that joined a call already in flight instead of reaching the server */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /** @return The share of calls that were coalesced */
+        public double getCoalescedRate() {
+            return calls == 0 ? 0.0 : coalesced / (double) calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d coalesced=%d", calls, coalesced);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.matrixhero.ollama.client.model.Image;
+import com.matrixhero.ollama.client.model.Options;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Canonical keys for API requests: the request is serialized with properties and map entries in
+ * sorted order, so two requests that would produce the same server response get the same key
+ * regardless of how they were built. Lazy images are represented by a short key rather than their
+ * data, so building a key never consumes an image stream; see {@link Image#KEY_ATTRIBUTE}.
+ */
+final class RequestKeys {
+    private static final ObjectWriter CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build()
+            .writer()
+            .withAttribute(Image.KEY_ATTRIBUTE, Boolean.TRUE);
+
+    private RequestKeys() {
+    }
+
+    /**
+     * @param operation The API operation, so that equal payloads for different endpoints differ
+     * @param request The request, with its stream flag already set as it will be sent
+     */
+    static CacheKey of(String operation, Object request) {
+        try {
+            return CacheKey.of(operation, CANONICAL.writeValueAsString(request));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether sampling is reproducible: greedy decoding (temperature 0) or a fixed seed.
+     * Only such generate and chat requests may share a response.
+     */
+    static boolean isDeterministic(Options options) {
+        if (options == null) {
+            return false;
+        }
+        Double temperature = options.getTemperature();
+        return (temperature != null && temperature == 0.0) || options.getSeed() != null;
+    }
+}
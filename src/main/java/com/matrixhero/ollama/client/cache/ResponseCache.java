@@ -0,0 +1,462 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Caching decorator around the generate and chat calls of {@link OllamaClient}, for deterministic
+ * requests only: those whose options fix the seed or set temperature 0. Other requests, and chat
+ * requests that an agent could handle, always go to the server.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the canonical request JSON, expire after a fixed time to
+ * live, and are evicted least-recently-used first once the total weight, which grows with the length
+ * of the response text and context, exceeds the budget. A streaming call that misses is cached once
+ * its final frame has arrived; a streaming call that hits is replayed as a synthetic stream of one
+ * content frame followed by the final frame with the original statistics.
+ * <p>
+ * Cached responses carry the durations of the call that produced them; {@link Stats} adds them up
+ * per hit to show the inference time saved. This class is thread-safe.
+ */
+public class ResponseCache {
+    /** Approximate per-entry overhead of the map node, key and response objects */
+    private static final long ENTRY_OVERHEAD = 256;
+    /** Approximate heap size of one boxed context token in a list */
+    private static final long CONTEXT_TOKEN_WEIGHT = 20;
+
+    private final OllamaClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder savedEvalNanos = new LongAdder();
+    private final LongAdder savedTotalNanos = new LongAdder();
+
+    /**
+     * @param client The client used on cache misses
+     * @param maxWeight Approximate heap budget in bytes
+     * @param ttl How long an entry stays valid
+     * @param unit The unit of the time to live
+     */
+    public ResponseCache(OllamaClient client, long maxWeight, long ttl, TimeUnit unit) {
+        this(client, maxWeight, ttl, unit, System::nanoTime);
+    }
+
+    ResponseCache(OllamaClient client, long maxWeight, long ttl, TimeUnit unit, LongSupplier nanoClock) {
+        this.client = client;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the cached response for a deterministic request, or generates it and caches the result.
+     * @see OllamaClient#generate
+     */
+    public GenerateResponse generate(GenerateRequest request) throws IOException {
+        CacheKey key = generateKey(request);
+        if (key == null) {
+            return client.generate(request);
+        }
+        GenerateResponse cached = lookup(key, GenerateResponse.class);
+        if (cached != null) {
+            return cached;
+        }
+        GenerateResponse response = client.generate(request);
+        store(key, response);
+        return response;
+    }
+
+    /**
+     * Asynchronous variant of {@link #generate(GenerateRequest)}.
+     * @see OllamaClient#generateAsync
+     */
+    public CompletableFuture<GenerateResponse> generateAsync(GenerateRequest request) {
+        CacheKey key = generateKey(request);
+        if (key == null) {
+            return client.generateAsync(request);
+        }
+        GenerateResponse cached = lookup(key, GenerateResponse.class);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<GenerateResponse> future = client.generateAsync(request);
+        future.thenAccept(response -> store(key, response));
+        return future;
+    }
+
+    /**
+     * Streams a generation, replaying it from the cache on a hit.
+     * @see OllamaClient#generateStream
+     */
+    public Stream<GenerateResponse> generateStream(GenerateRequest request) throws IOException {
+        CacheKey key = generateKey(request);
+        if (key == null) {
+            return client.generateStream(request);
+        }
+        GenerateResponse cached = lookup(key, GenerateResponse.class);
+        if (cached != null) {
+            GenerateResponse content = new GenerateResponse();
+            content.setModel(cached.getModel());
+            content.setCreatedAt(cached.getCreatedAt());
+            content.setResponse(cached.getResponse());
+            content.setDone(false);
+            cached.setResponse("");
+            return Stream.of(content, cached);
+        }
+        Stream<GenerateResponse> stream = client.generateStream(request);
+        StringBuilder text = new StringBuilder();
+        return recording(stream, frame -> {
+            if (frame.getResponse() != null) {
+                text.append(frame.getResponse());
+            }
+            if (!Boolean.TRUE.equals(frame.getDone())) {
+                return;
+            }
+            GenerateResponse complete = copy(frame, GenerateResponse.class);
+            complete.setResponse(text.toString());
+            store(key, complete);
+        });
+    }
+
+    /**
+     * Returns the cached response for a deterministic request, or chats with the model and caches the result.
+     * Either way the request is updated as by {@link OllamaClient#chat}.
+     * @see OllamaClient#chat
+     */
+    public ChatResponse chat(ChatRequest request) throws Exception {
+        CacheKey key = chatKey(request);
+        if (key == null) {
+            return client.chat(request);
+        }
+        ChatResponse cached = lookup(key, ChatResponse.class);
+        if (cached != null) {
+            client.recordChat(request, cached);
+            return cached;
+        }
+        ChatResponse response = client.chat(request);
+        store(key, response);
+        return response;
+    }
+
+    /**
+     * Asynchronous variant of {@link #chat(ChatRequest)}.
+     * @see OllamaClient#chatAsync
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request) {
+        CacheKey key = chatKey(request);
+        if (key == null) {
+            return client.chatAsync(request);
+        }
+        ChatResponse cached = lookup(key, ChatResponse.class);
+        if (cached != null) {
+            client.recordChat(request, cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ChatResponse> future = client.chatAsync(request);
+        future.thenAccept(response -> store(key, response));
+        return future;
+    }
+
+    /**
+     * Streams a chat response, replaying it from the cache on a hit.
+     * @see OllamaClient#chatStream
+     */
+    public Stream<ChatResponse> chatStream(ChatRequest request) throws IOException {
+        CacheKey key = chatKey(request);
+        if (key == null) {
+            return client.chatStream(request);
+        }
+        ChatResponse cached = lookup(key, ChatResponse.class);
+        if (cached != null) {
+            ChatResponse content = new ChatResponse(cached.getMessage());
+            content.setModel(cached.getModel());
+            content.setCreatedAt(cached.getCreatedAt());
+            content.setDone(false);
+            cached.setMessage(new Message(cached.getMessage().getRole(), ""));
+            return Stream.of(content, cached);
+        }
+        Stream<ChatResponse> stream = client.chatStream(request);
+        StringBuilder text = new StringBuilder();
+        List<Message.ToolCall> toolCalls = new ArrayList<>();
+        return recording(stream, frame -> {
+            Message message = frame.getMessage();
+            if (message != null) {
+                if (message.getContent() != null) {
+                    text.append(message.getContent());
+                }
+                if (message.getToolCalls() != null) {
+                    toolCalls.addAll(message.getToolCalls());
+                }
+            }
+            if (!Boolean.TRUE.equals(frame.getDone())) {
+                return;
+            }
+            ChatResponse complete = copy(frame, ChatResponse.class);
+            Message merged = new Message(message != null ? message.getRole() : Message.Role.ASSISTANT, text.toString());
+            if (!toolCalls.isEmpty()) {
+                merged.setToolCalls(toolCalls);
+            }
+            complete.setMessage(merged);
+            store(key, complete);
+        });
+    }
+
+    /**
+     * @return The cache key, or null if the request must not be cached
+     */
+    private CacheKey generateKey(GenerateRequest request) {
+        if (!RequestKeys.isDeterministic(request.getOptions())) {
+            uncacheable.increment();
+            return null;
+        }
+        // Streaming and non-streaming calls share entries; the client sets the flag again on every call
+        request.setStream(false);
+        return RequestKeys.of("generate", request);
+    }
+
+    private CacheKey chatKey(ChatRequest request) {
+        if (!RequestKeys.isDeterministic(request.getOptions())
+                || (request.isUseAgents() && !client.getAgents().isEmpty())) {
+            uncacheable.increment();
+            return null;
+        }
+        // Streaming and non-streaming calls share entries; the client sets the flag again on every call
+        request.setStream(false);
+        return RequestKeys.of("chat", request);
+    }
+
+    /**
+     * @return A private copy of the cached response, or null on a miss
+     */
+    private <T> T lookup(CacheKey key, Class<T> type) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && nanoClock.getAsLong() - entry.storedAt >= ttlNanos) {
+                entries.remove(key);
+                weight -= entry.weight;
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        savedEvalNanos.add(entry.evalNanos);
+        savedTotalNanos.add(entry.totalNanos);
+        return copy(entry.response, type);
+    }
+
+    private void store(CacheKey key, GenerateResponse response) {
+        if (response == null || !Boolean.TRUE.equals(response.getDone())) {
+            return;
+        }
+        long entryWeight = ENTRY_OVERHEAD + textWeight(response.getResponse())
+                + (response.getContext() == null ? 0 : response.getContext().size() * CONTEXT_TOKEN_WEIGHT);
+        put(key, new Entry(copy(response, GenerateResponse.class), entryWeight, nanoClock.getAsLong(),
+                response.getEvalDuration(), response.getTotalDuration()));
+    }
+
+    private void store(CacheKey key, ChatResponse response) {
+        if (response == null || response.getMessage() == null) {
+            return;
+        }
+        long entryWeight = ENTRY_OVERHEAD + textWeight(response.getMessage().getContent());
+        put(key, new Entry(copy(response, ChatResponse.class), entryWeight, nanoClock.getAsLong(),
+                response.getEvalDuration(), response.getTotalDuration()));
+    }
+
+    private synchronized void put(CacheKey key, Entry entry) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        weight += entry.weight;
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        Iterator<Map.Entry<CacheKey, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long textWeight(String text) {
+        return text == null ? 0 : 2L * text.length();
+    }
+
+    /**
+     * Responses are mutable, so callers never share an instance with the cache.
+     */
+    private <T> T copy(Object response, Class<T> type) {
+        return objectMapper.convertValue(response, type);
+    }
+
+    /**
+     * Passes every frame of a stream to a recorder as the caller consumes it.
+     */
+    private static <T> Stream<T> recording(Stream<T> stream, Consumer<T> recorder) {
+        Iterator<T> source = stream.iterator();
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T frame = source.next();
+                recorder.accept(frame);
+                return frame;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(stream::close);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return A snapshot of the cache counters
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), uncacheable.sum(), evictions.sum(), expirations.sum(),
+                entries.size(), weight, savedEvalNanos.sum(), savedTotalNanos.sum());
+    }
+
+    private static final class Entry {
+        private final Object response;
+        private final long weight;
+        private final long storedAt;
+        private final long evalNanos;
+        private final long totalNanos;
+
+        Entry(Object response, long weight, long storedAt, Long evalNanos, Long totalNanos) {
+            this.response = response;
+            this.weight = weight;
+            this.storedAt = storedAt;
+            this.evalNanos = evalNanos == null ? 0 : evalNanos;
+            this.totalNanos = totalNanos == null ? 0 : totalNanos;
+        }
+    }
+
+    /**
+     * Point-in-time cache counters.
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long uncacheable;
+        private final long evictions;
+        private final long expirations;
+        private final int entries;
+        private final long weight;
+        private final long savedEvalNanos;
+        private final long savedTotalNanos;
+
+        Stats(long hits, long misses, long uncacheable, long evictions, long expirations,
+              int entries, long weight, long savedEvalNanos, long savedTotalNanos) {
+            this.hits = hits;
+            this.misses = misses;
+            this.uncacheable = uncacheable;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.entries = entries;
+            this.weight = weight;
+            this.savedEvalNanos = savedEvalNanos;
+            this.savedTotalNanos = savedTotalNanos;
+        }
+
+        /** Lookups served from the cache */
+        public long getHits() {
+            return hits;
+        }
+
+        /** Cacheable lookups that went to the server */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Calls that bypassed the cache because the request was not deterministic */
+        public long getUncacheable() {
+            return uncacheable;
+        }
+
+        /** Entries evicted to stay within the weight budget */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** Entries dropped because their time to live had passed */
+        public long getExpirations() {
+            return expirations;
+        }
+
+        /** Entries currently cached */
+        public int getEntries() {
+            return entries;
+        }
+
+        /** Approximate heap weight of the cached entries in bytes */
+        public long getWeight() {
+            return weight;
+        }
+
+        /** Sum of the {@code eval_duration} of every response served from the cache, in nanoseconds */
+        public long getSavedEvalDuration() {
+            return savedEvalNanos;
+        }
+
+        /** Sum of the {@code total_duration} of every response served from the cache, in nanoseconds */
+        public long getSavedTotalDuration() {
+            return savedTotalNanos;
+        }
+
+        /** Share of cacheable lookups served from the cache */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.3f savedEval=%dms entries=%d weight=%d",
+                    hits, misses, getHitRate(), TimeUnit.NANOSECONDS.toMillis(savedEvalNanos), entries, weight);
+        }
+    }
+}
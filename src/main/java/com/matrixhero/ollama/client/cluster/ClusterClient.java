@@ -0,0 +1,537 @@
+package com.matrixhero.ollama.client.cluster;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.agent.Agent;
+import com.matrixhero.ollama.client.exception.CircuitOpenException;
+import com.matrixhero.ollama.client.exception.ConcurrencyLimitException;
+import com.matrixhero.ollama.client.model.*;
+import com.matrixhero.ollama.client.resilience.HedgingPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Client for a fleet of Ollama servers.
+ * <p>
+ * Each call is routed to a single node: nodes that already have the requested model loaded are
+ * preferred, then nodes that have it installed, and within the same preference the node with the
+ * fewest outstanding requests wins. A loaded node is skipped in favour of the least busy node once
+ * it is more than {@link #withLoadedModelSlack(int) slack} requests busier, so one hot model does not
+ * pile up on a single server.
+ * <p>
+ * Loaded and installed models are discovered by polling {@code /api/ps} and {@code /api/tags} on
+ * every node in the background. When the node clients share a
+ * {@link com.matrixhero.ollama.client.health.HealthMonitor}, nodes with an open circuit are avoided
+ * and calls they reject fail over to the next node. This class is thread-safe.
+ */
+@Slf4j
+public class ClusterClient implements AutoCloseable {
+    private static final long DEFAULT_POLL_INTERVAL_SECONDS = 10;
+    private static final int DEFAULT_LOADED_MODEL_SLACK = 4;
+
+    private final List<OllamaNode> nodes;
+    private final ScheduledExecutorService poller;
+    private ScheduledFuture<?> pollTask;
+    private volatile int loadedModelSlack = DEFAULT_LOADED_MODEL_SLACK;
+    private volatile HedgingPolicy hedging;
+
+    /**
+     * Creates a cluster client with default client settings for every host.
+     *
+     * @param hosts The server base URLs
+     */
+    public ClusterClient(List<String> hosts) {
+        this(hosts, OllamaClient.builder());
+    }
+
+    /**
+     * Creates a cluster client, building one client per host from a common configuration.
+     * Share an {@link okhttp3.OkHttpClient} through {@link OllamaClient.Builder#httpClient} to pool
+     * threads across nodes.
+     *
+     * @param hosts The server base URLs
+     * @param builder The client configuration; each node's client is built for its own host, and the
+     *                builder's host is left as it was
+     */
+    public ClusterClient(List<String> hosts, OllamaClient.Builder builder) {
+        this(buildClients(hosts, builder));
+    }
+
+    /**
+     * Creates a cluster client over existing clients, one per node. The cluster closes them on {@link #close()}.
+     *
+     * @param clients The node clients
+     */
+    public ClusterClient(Collection<OllamaClient> clients) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("A cluster needs at least one node");
+        }
+        List<OllamaNode> list = new ArrayList<>(clients.size());
+        for (OllamaClient client : clients) {
+            list.add(new OllamaNode(client));
+        }
+        this.nodes = Collections.unmodifiableList(list);
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ollama-cluster-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        withPollInterval(DEFAULT_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static List<OllamaClient> buildClients(List<String> hosts, OllamaClient.Builder builder) {
+        List<OllamaClient> clients = new ArrayList<>(hosts.size());
+        for (String host : hosts) {
+            clients.add(builder.build(host));
+        }
+        return clients;
+    }
+
+    /**
+     * Sets how often loaded and installed models are polled on every node.
+     *
+     * @param interval The poll interval; 0 disables background polling
+     * @param unit The unit of the interval
+     * @return This client instance for method chaining
+     */
+    public synchronized ClusterClient withPollInterval(long interval, TimeUnit unit) {
+        if (pollTask != null) {
+            pollTask.cancel(false);
+            pollTask = null;
+        }
+        if (interval > 0) {
+            pollTask = poller.scheduleWithFixedDelay(this::pollQuietly, 0, interval, unit);
+        }
+        return this;
+    }
+
+    /**
+     * Sets how many more outstanding requests a node with the model loaded may have than the least busy
+     * node before the least busy node is chosen instead.
+     *
+     * @param slack The number of requests; 0 routes purely by outstanding requests among eligible nodes
+     * @return This client instance for method chaining
+     */
+    public ClusterClient withLoadedModelSlack(int slack) {
+        this.loadedModelSlack = slack;
+        return this;
+    }
+
+    /**
+     * Hedges {@code generate} and {@code embed} calls: a call that is slower than the policy's delay is
+     * sent again to another node, and the slower of the two is cancelled. Chat and streaming calls are
+     * never hedged, since chat may run agents and a stream has already been handed to the caller.
+     *
+     * @param hedging The hedging policy, or null to disable hedging
+     * @return This client instance for method chaining
+     */
+    public ClusterClient withHedging(HedgingPolicy hedging) {
+        this.hedging = hedging;
+        return this;
+    }
+
+    /**
+     * Adds an agent to every node's client.
+     * @param agent The agent to add
+     * @return This client instance for method chaining
+     */
+    public ClusterClient withAgent(Agent agent) {
+        for (OllamaNode node : nodes) {
+            node.getClient().withAgent(agent);
+        }
+        return this;
+    }
+
+    /**
+     * @return The nodes of the cluster
+     */
+    public List<OllamaNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Polls loaded and installed models on every node now.
+     *
+     * @return A future completed once every node has answered or failed
+     */
+    public CompletableFuture<Void> refresh() {
+        List<CompletableFuture<?>> polls = new ArrayList<>(nodes.size() * 2);
+        for (OllamaNode node : nodes) {
+            polls.add(node.getClient().listRunningAsync().handle((response, error) -> {
+                if (error != null) {
+                    log.debug("Failed to poll running models on {}", node.getHost(), error);
+                } else {
+                    node.updateLoaded(response);
+                }
+                return null;
+            }));
+            polls.add(node.getClient().listAsync().handle((response, error) -> {
+                if (error != null) {
+                    log.debug("Failed to poll installed models on {}", node.getHost(), error);
+                } else {
+                    node.updateInstalled(response);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(polls.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void pollQuietly() {
+        try {
+            refresh().get(1, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            log.debug("Cluster poll did not complete", e);
+        }
+    }
+
+    /**
+     * Chooses the node for a request on the given model.
+     * Nodes whose circuit breaker is open are only chosen when no other node is left.
+     *
+     * @param model The model name, or null if the request is not bound to a model
+     * @return The chosen node
+     */
+    public OllamaNode select(String model) {
+        return select(model, Collections.emptySet());
+    }
+
+    private OllamaNode select(String model, Set<OllamaNode> excluded) {
+        OllamaNode node = select(model, excluded, true);
+        return node != null ? node : select(model, excluded, false);
+    }
+
+    private OllamaNode select(String model, Set<OllamaNode> excluded, boolean availableOnly) {
+        String key = OllamaNode.normalize(model);
+        int size = nodes.size();
+        int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+        OllamaNode best = null;
+        int bestTier = Integer.MAX_VALUE;
+        int bestOutstanding = Integer.MAX_VALUE;
+        OllamaNode leastBusy = null;
+        int leastOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            OllamaNode node = nodes.get((start + i) % size);
+            if (excluded.contains(node) || (availableOnly && !node.getClient().isAvailable())) {
+                continue;
+            }
+            int tier = node.tier(key);
+            int outstanding = node.getOutstanding();
+            if (tier < bestTier || (tier == bestTier && outstanding < bestOutstanding)) {
+                best = node;
+                bestTier = tier;
+                bestOutstanding = outstanding;
+            }
+            if (tier != OllamaNode.MISSING && outstanding < leastOutstanding) {
+                leastBusy = node;
+                leastOutstanding = outstanding;
+            }
+        }
+        if (leastBusy != null && bestOutstanding > leastOutstanding + loadedModelSlack) {
+            return leastBusy;
+        }
+        return best;
+    }
+
+    /**
+     * Generates text on the selected node.
+     * @see OllamaClient#generate
+     */
+    public GenerateResponse generate(GenerateRequest request) throws IOException {
+        if (hedging != null) {
+            return await(executeHedged(request.getModel(), client -> client.generateAsync(request)));
+        }
+        return execute(request.getModel(), client -> client.generate(request));
+    }
+
+    /**
+     * Generates text asynchronously on the selected node.
+     * @see OllamaClient#generateAsync
+     */
+    public CompletableFuture<GenerateResponse> generateAsync(GenerateRequest request) {
+        return executeHedged(request.getModel(), client -> client.generateAsync(request));
+    }
+
+    /**
+     * Streams a generation from one node. The node counts the request as outstanding until the
+     * stream is exhausted or closed.
+     */
+    public Stream<GenerateResponse> generateStream(GenerateRequest request) throws IOException {
+        return executeStream(request.getModel(), client -> client.generateStream(request));
+    }
+
+    /**
+     * Chats with the model on the selected node, with agent support.
+     * @see OllamaClient#chat
+     */
+    public ChatResponse chat(ChatRequest request) throws Exception {
+        return execute(request.getModel(), client -> client.chat(request));
+    }
+
+    /**
+     * Chats with the model asynchronously on the selected node.
+     * @see OllamaClient#chatAsync
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request) {
+        return executeAsync(request.getModel(), client -> client.chatAsync(request));
+    }
+
+    /**
+     * Streams a chat response from one node. The node counts the request as outstanding until the
+     * stream is exhausted or closed.
+     */
+    public Stream<ChatResponse> chatStream(ChatRequest request) throws IOException {
+        return executeStream(request.getModel(), client -> client.chatStream(request));
+    }
+
+    /**
+     * Generates an embedding on the selected node.
+     * @see OllamaClient#embed
+     */
+    public EmbedResponse embed(EmbedRequest request) throws IOException {
+        if (hedging != null) {
+            return await(executeHedged(request.getModel(), client -> client.embedAsync(request)));
+        }
+        return execute(request.getModel(), client -> client.embed(request));
+    }
+
+    /**
+     * Generates an embedding asynchronously on the selected node.
+     * @see OllamaClient#embedAsync
+     */
+    public CompletableFuture<EmbedResponse> embedAsync(EmbedRequest request) {
+        return executeHedged(request.getModel(), client -> client.embedAsync(request));
+    }
+
+    /**
+     * Embeds a batch of inputs on the selected node.
+     * @see OllamaClient#embedBatch
+     */
+    public EmbedBatchResponse embedBatch(EmbedBatchRequest request) throws IOException {
+        if (hedging != null) {
+            return await(executeHedged(request.getModel(), client -> client.embedBatchAsync(request)));
+        }
+        return execute(request.getModel(), client -> client.embedBatch(request));
+    }
+
+    /**
+     * Embeds a batch of inputs asynchronously on the selected node.
+     * @see OllamaClient#embedBatchAsync
+     */
+    public CompletableFuture<EmbedBatchResponse> embedBatchAsync(EmbedBatchRequest request) {
+        return executeHedged(request.getModel(), client -> client.embedBatchAsync(request));
+    }
+
+    /**
+     * A call against one node's client.
+     */
+    @FunctionalInterface
+    interface NodeCall<T, E extends Exception> {
+        T call(OllamaClient client) throws E;
+    }
+
+    /**
+     * Runs a call on the selected node. A call rejected by an open circuit breaker or a concurrency
+     * limiter never reached the server, so it fails over to the next best node until every node has
+     * been tried.
+     */
+    private <T, E extends Exception> T execute(String model, NodeCall<T, E> call) throws E {
+        Set<OllamaNode> tried = new HashSet<>();
+        while (true) {
+            OllamaNode node = select(model, tried);
+            node.acquire(OllamaNode.normalize(model));
+            try {
+                return call.call(node.getClient());
+            } catch (Exception e) {
+                if (!isRejected(e) || !tried.add(node) || tried.size() == nodes.size()) {
+                    throw e;
+                }
+                log.debug("Failing over from {}: {}", node.getHost(), e.getMessage());
+            } finally {
+                node.release();
+            }
+        }
+    }
+
+    private static boolean isRejected(Throwable error) {
+        return error instanceof CircuitOpenException || error instanceof ConcurrencyLimitException;
+    }
+
+    private <T> CompletableFuture<T> executeAsync(String model, Function<OllamaClient, CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executeAsync(model, call, new HashSet<>(), result, null);
+        return result;
+    }
+
+    /**
+     * Runs a call with the current hedging policy; each attempt avoids the nodes earlier attempts went to.
+     */
+    private <T> CompletableFuture<T> executeHedged(String model, Function<OllamaClient, CompletableFuture<T>> call) {
+        HedgingPolicy policy = hedging;
+        if (policy == null) {
+            return executeAsync(model, call);
+        }
+        Set<OllamaNode> used = ConcurrentHashMap.newKeySet();
+        return policy.hedge(attempt -> {
+            Set<OllamaNode> avoid = new HashSet<>(used);
+            if (avoid.size() >= nodes.size()) {
+                avoid.clear();
+            }
+            CompletableFuture<T> result = new CompletableFuture<>();
+            executeAsync(model, call, avoid, result, used);
+            return result;
+        });
+    }
+
+    private <T> void executeAsync(String model, Function<OllamaClient, CompletableFuture<T>> call,
+                                 Set<OllamaNode> tried, CompletableFuture<T> result, Set<OllamaNode> used) {
+        OllamaNode node = select(model, tried);
+        if (used != null) {
+            used.add(node);
+        }
+        node.acquire(OllamaNode.normalize(model));
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(node.getClient());
+        } catch (RuntimeException e) {
+            node.release();
+            result.completeExceptionally(e);
+            return;
+        }
+        // Release before completing the caller's future, so the node is idle by the time the caller sees the result
+        future.whenComplete((value, error) -> {
+            node.release();
+            if (error == null) {
+                result.complete(value);
+            } else if (isRejected(error) && !result.isDone()
+                    && tried.add(node) && tried.size() < nodes.size()) {
+                log.debug("Failing over from {}: {}", node.getHost(), error.getMessage());
+                executeAsync(model, call, tried, result, used);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+    }
+
+    private <T> Stream<T> executeStream(String model, NodeCall<Stream<T>, IOException> call) throws IOException {
+        Set<OllamaNode> tried = new HashSet<>();
+        while (true) {
+            OllamaNode node = select(model, tried);
+            node.acquire(OllamaNode.normalize(model));
+            Stream<T> stream;
+            try {
+                stream = call.call(node.getClient());
+            } catch (IOException | RuntimeException e) {
+                node.release();
+                if (!isRejected(e) || !tried.add(node) || tried.size() == nodes.size()) {
+                    throw e;
+                }
+                log.debug("Failing over from {}: {}", node.getHost(), e.getMessage());
+                continue;
+            }
+            return releasing(stream, node::release);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the cluster");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Wraps a stream so that the release action runs once, when the stream is exhausted, fails or is closed.
+     */
+    static <T> Stream<T> releasing(Stream<T> stream, Runnable release) {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseOnce = () -> {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        };
+        Iterator<T> source = stream.iterator();
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                boolean hasNext;
+                try {
+                    hasNext = source.hasNext();
+                } catch (RuntimeException e) {
+                    releaseOnce.run();
+                    throw e;
+                }
+                if (!hasNext) {
+                    releaseOnce.run();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                return source.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        stream.close();
+                    } finally {
+                        releaseOnce.run();
+                    }
+                });
+    }
+
+    /**
+     * Stops polling and closes every node's client.
+     */
+    @Override
+    public void close() {
+        poller.shutdownNow();
+        for (OllamaNode node : nodes) {
+            node.getClient().close();
+        }
+    }
+}
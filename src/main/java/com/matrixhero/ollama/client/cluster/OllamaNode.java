@@ -0,0 +1,136 @@
+package com.matrixhero.ollama.client.cluster;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.ListResponse;
+import com.matrixhero.ollama.client.model.RunningModelsResponse;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One Ollama server in a {@link ClusterClient}, with the routing state the cluster keeps about it:
+ * the number of requests in flight and the models it has installed and loaded.
+ */
+public class OllamaNode {
+    /** Routing tiers, best first */
+    static final int LOADED = 0;
+    static final int INSTALLED = 1;
+    static final int UNKNOWN = 2;
+    static final int MISSING = 3;
+
+    private final OllamaClient client;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    /** Models reported by /api/ps, plus models routed here since the last poll */
+    private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+    /** Models reported by /api/tags; null until the first successful poll */
+    private volatile Set<String> installedModels;
+
+    OllamaNode(OllamaClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @return The client bound to this node
+     */
+    public OllamaClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return The server base URL
+     */
+    public String getHost() {
+        return client.getHost();
+    }
+
+    /**
+     * @return The number of requests routed to this node that have not completed
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return The models believed to be loaded in memory on this node
+     */
+    public Set<String> getLoadedModels() {
+        return Collections.unmodifiableSet(loadedModels);
+    }
+
+    /**
+     * @param model A model name, with or without a tag
+     * @return Whether the model is believed to be loaded in memory on this node
+     */
+    public boolean isLoaded(String model) {
+        return loadedModels.contains(normalize(model));
+    }
+
+    int tier(String normalizedModel) {
+        if (normalizedModel == null) {
+            return UNKNOWN;
+        }
+        if (loadedModels.contains(normalizedModel)) {
+            return LOADED;
+        }
+        Set<String> installed = installedModels;
+        if (installed == null) {
+            return UNKNOWN;
+        }
+        return installed.contains(normalizedModel) ? INSTALLED : MISSING;
+    }
+
+    /**
+     * Records a request routed to this node. The model is assumed loaded from now on, since Ollama
+     * loads it to serve the request; the next poll corrects this if it has been evicted.
+     */
+    void acquire(String normalizedModel) {
+        outstanding.incrementAndGet();
+        if (normalizedModel != null) {
+            loadedModels.add(normalizedModel);
+        }
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    void updateLoaded(RunningModelsResponse response) {
+        Set<String> current = new HashSet<>();
+        if (response.getModels() != null) {
+            for (RunningModelsResponse.RunningModel model : response.getModels()) {
+                current.add(normalize(model.getName() != null ? model.getName() : model.getModel()));
+            }
+        }
+        loadedModels.retainAll(current);
+        loadedModels.addAll(current);
+    }
+
+    void updateInstalled(ListResponse response) {
+        Set<String> current = new HashSet<>();
+        if (response.getModels() != null) {
+            for (ListResponse.ModelInfo model : response.getModels()) {
+                current.add(normalize(model.getName() != null ? model.getName() : model.getModel()));
+            }
+        }
+        installedModels = current;
+    }
+
+    /**
+     * Ollama treats an untagged model name as the {@code latest} tag. Only a colon after the last slash
+     * is a tag; one before it separates a registry host from its port, as in {@code registry:5000/llama3}.
+     */
+    static String normalize(String model) {
+        if (model == null) {
+            return null;
+        }
+        return model.indexOf(':', model.lastIndexOf('/') + 1) < 0 ? model + ":latest" : model;
+    }
+
+    @Override
+    public String toString() {
+        return getHost() + " (outstanding " + outstanding.get() + ")";
+    }
+}
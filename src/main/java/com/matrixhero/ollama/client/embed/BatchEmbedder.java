@@ -0,0 +1,316 @@
+package com.matrixhero.ollama.client.embed;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
+import com.matrixhero.ollama.client.model.EmbedBatchRequest;
+import com.matrixhero.ollama.client.model.Options;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Embeds large collections of texts by packing them into {@code /api/embed} batches.
+ * Up to {@code parallelism} batches are in flight at once, results are delivered in input order,
+ * and a batch that fails with an I/O error or a 429 or 5xx response is retried on its own without
+ * redoing the batches that already succeeded.
+ * The {@code embedFloat} variants keep results at float32 precision in contiguous arrays or buffers.
+ * <p>
+ * Instances are not thread-safe; configure them once and share the underlying client instead.
+ */
+@Slf4j
+public class BatchEmbedder {
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 200;
+
+    private final OllamaClient client;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+    private Options options;
+
+    /**
+     * Creates a batch embedder with default settings
+     * (64 inputs per batch, 4 batches in flight, 3 retries per batch).
+     *
+     * @param client The client used to send batches
+     */
+    public BatchEmbedder(OllamaClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Sets the maximum number of inputs packed into one request.
+     * @param batchSize Inputs per batch
+     * @return This embedder for method chaining
+     */
+    public BatchEmbedder withBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of batches in flight at once.
+     * @param parallelism Concurrent batches
+     * @return This embedder for method chaining
+     */
+    public BatchEmbedder withParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets how many times a failed batch is retried before giving up.
+     * @param maxRetries Retries per batch
+     * @param backoffMillis Delay before the first retry, doubled on each further attempt
+     * @return This embedder for method chaining
+     */
+    public BatchEmbedder withRetries(int maxRetries, long backoffMillis) {
+        if (maxRetries < 0 || backoffMillis < 0) {
+            throw new IllegalArgumentException("Retries and backoff cannot be negative");
+        }
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = backoffMillis;
+        return this;
+    }
+
+    /**
+     * Sets the embedding options sent with every batch.
+     * @param options Embedding options
+     * @return This embedder for method chaining
+     */
+    public BatchEmbedder withOptions(Options options) {
+        this.options = options;
+        return this;
+    }
+
+    /**
+     * Embeds all inputs and returns the vectors in input order.
+     *
+     * @param model The embedding model
+     * @param inputs The texts to embed
+     * @return One vector per input, in input order
+     * @throws IOException if a batch still fails after all retries
+     */
+    public List<double[]> embed(String model, List<String> inputs) throws IOException {
+        List<double[]> vectors = new ArrayList<>(inputs.size());
+        embed(model, inputs.iterator(), vectors::add);
+        return vectors;
+    }
+
+    /**
+     * Embeds an unbounded sequence of inputs, handing each vector to the sink in input order.
+     * At most {@code parallelism} batches are buffered, so memory stays bounded regardless of corpus size.
+     * When a batch fails for good, all vectors of earlier batches have already been delivered.
+     *
+     * @param model The embedding model
+     * @param inputs The texts to embed
+     * @param sink Receives one vector per input, in input order
+     * @throws IOException if a batch still fails after all retries
+     */
+    public void embed(String model, Iterator<String> inputs, Consumer<double[]> sink) throws IOException {
+        run(model, inputs, client::embedBatchAsync,
+                response -> response.getEmbeddings() == null ? 0 : response.getEmbeddings().size(),
+                response -> response.getEmbeddings().forEach(sink));
+    }
+
+    /**
+     * Embeds all inputs with float32 precision into one contiguous, row-major matrix.
+     * The matrix is allocated once, at {@code inputs * dimension}, when the first batch has arrived.
+     *
+     * @param model The embedding model
+     * @param inputs The texts to embed
+     * @return All vectors, in input order
+     * @throws IOException if a batch still fails after all retries
+     * @throws IllegalArgumentException if the matrix would hold more than {@link Integer#MAX_VALUE} components
+     */
+    public EmbeddingMatrix embedFloat(String model, List<String> inputs) throws IOException {
+        float[][] data = new float[1][];
+        int[] dimension = {0};
+        int[] length = {0};
+        embedFloat(model, inputs.iterator(), batch -> {
+            if (data[0] == null) {
+                dimension[0] = batch.dimension();
+                data[0] = new float[matrixLength(inputs.size(), batch.dimension())];
+            }
+            int size = batch.rows() * batch.dimension();
+            System.arraycopy(batch.data(), 0, data[0], length[0], size);
+            length[0] += size;
+        });
+        return new EmbeddingMatrix(data[0] == null ? new float[0] : data[0], inputs.size(), dimension[0]);
+    }
+
+    private static int matrixLength(int rows, int dimension) {
+        try {
+            return Math.multiplyExact(rows, dimension);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(String.format(
+                    "%d vectors of dimension %d do not fit in one array; embed into a FloatBuffer or a sink instead",
+                    rows, dimension), e);
+        }
+    }
+
+    /**
+     * Embeds an unbounded sequence of inputs with float32 precision, writing the vectors
+     * back to back into the target buffer, for example a memory-mapped file.
+     *
+     * @param model The embedding model
+     * @param inputs The texts to embed
+     * @param target Receives all vector components, row-major, starting at its current position
+     * @return The number of vectors written
+     * @throws IOException if a batch still fails after all retries
+     * @throws java.nio.BufferOverflowException if the target cannot hold all vectors
+     */
+    public long embedFloat(String model, Iterator<String> inputs, FloatBuffer target) throws IOException {
+        long[] rows = {0};
+        embedFloat(model, inputs, batch -> {
+            batch.copyTo(target);
+            rows[0] += batch.rows();
+        });
+        return rows[0];
+    }
+
+    /**
+     * Embeds an unbounded sequence of inputs with float32 precision, handing each batch
+     * to the sink as a contiguous matrix, in input order.
+     *
+     * @param model The embedding model
+     * @param inputs The texts to embed
+     * @param sink Receives one matrix per batch, in input order
+     * @throws IOException if a batch still fails after all retries
+     */
+    public void embedFloat(String model, Iterator<String> inputs, Consumer<EmbeddingMatrix> sink) throws IOException {
+        run(model, inputs, client::embedBatchFloatAsync,
+                response -> response.getEmbeddings() == null ? 0 : response.getEmbeddings().rows(),
+                response -> sink.accept(response.getEmbeddings()));
+    }
+
+    private <R> void run(String model, Iterator<String> inputs,
+                         Function<EmbedBatchRequest, CompletableFuture<R>> call,
+                         ToIntFunction<R> rowCount, Consumer<R> sink) throws IOException {
+        Deque<Batch<R>> window = new ArrayDeque<>();
+        long offset = 0;
+        try {
+            while (inputs.hasNext() || !window.isEmpty()) {
+                while (window.size() < parallelism && inputs.hasNext()) {
+                    List<String> texts = new ArrayList<>(batchSize);
+                    while (texts.size() < batchSize && inputs.hasNext()) {
+                        texts.add(inputs.next());
+                    }
+                    Batch<R> batch = new Batch<>(offset, texts);
+                    offset += texts.size();
+                    submit(model, batch, call);
+                    window.add(batch);
+                }
+                Batch<R> head = window.poll();
+                sink.accept(await(model, head, call, rowCount));
+            }
+        } finally {
+            for (Batch<R> batch : window) {
+                batch.future.cancel(true);
+            }
+        }
+    }
+
+    private <R> void submit(String model, Batch<R> batch, Function<EmbedBatchRequest, CompletableFuture<R>> call) {
+        EmbedBatchRequest request = new EmbedBatchRequest(model, batch.inputs);
+        request.setOptions(options);
+        batch.future = call.apply(request);
+    }
+
+    /**
+     * Waits for the batch, retrying only this batch when it fails with an I/O error or a 429 or 5xx
+     * response. Other failures, and the last one once retries are exhausted, are thrown as they are.
+     */
+    private <R> R await(String model, Batch<R> batch, Function<EmbedBatchRequest, CompletableFuture<R>> call,
+                        ToIntFunction<R> rowCount) throws IOException {
+        int attempt = 0;
+        while (true) {
+            try {
+                R response = batch.future.get();
+                int rows = rowCount.applyAsInt(response);
+                if (rows != batch.inputs.size()) {
+                    throw new IOException(String.format("Expected %d embeddings for batch at offset %d, got %d",
+                            batch.inputs.size(), batch.offset, rows));
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for embeddings");
+            } catch (ExecutionException | IOException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (attempt >= maxRetries || !isRetryable(cause)) {
+                    log.warn("Embedding batch at offset {} failed after {} attempts", batch.offset, attempt + 1);
+                    throw rethrow(cause);
+                }
+                long backoff = retryBackoffMillis << Math.min(attempt, 16);
+                attempt++;
+                log.warn("Embedding batch at offset {} failed, retrying in {}ms (attempt {}/{})",
+                        batch.offset, backoff, attempt, maxRetries, cause);
+                sleep(backoff);
+                submit(model, batch, call);
+            }
+        }
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof OllamaResponseException) {
+            int status = ((OllamaResponseException) error).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return error instanceof IOException;
+    }
+
+    private static IOException rethrow(Throwable error) {
+        if (error instanceof IOException) {
+            return (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return new IOException(error);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    private static final class Batch<R> {
+        private final long offset;
+        private final List<String> inputs;
+        private CompletableFuture<R> future;
+
+        private Batch(long offset, List<String> inputs) {
+            this.offset = offset;
+            this.inputs = inputs;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.matrixhero.ollama.client.embed;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * A batch of float32 embedding vectors stored contiguously in one row-major {@code float[rows * dimension]}.
+ * Rows can be read through {@link FloatBuffer} views without copying.
+ */
+public final class EmbeddingMatrix {
+    private final float[] data;
+    private final int rows;
+    private final int dimension;
+
+    /**
+     * Wraps a row-major array without copying.
+     *
+     * @param data Row-major vector data, at least {@code rows * dimension} long
+     * @param rows Number of vectors
+     * @param dimension Length of each vector
+     */
+    public EmbeddingMatrix(float[] data, int rows, int dimension) {
+        if (rows < 0 || dimension < 0 || (long) rows * dimension > data.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot hold %d x %d vectors in an array of length %d", rows, dimension, data.length));
+        }
+        this.data = data;
+        this.rows = rows;
+        this.dimension = dimension;
+    }
+
+    /**
+     * @return The number of vectors
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return The length of each vector
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns the backing row-major array. Its length may exceed {@code rows * dimension}.
+     * @return The backing array
+     */
+    public float[] data() {
+        return data;
+    }
+
+    /**
+     * @param row The vector index
+     * @param column The component index
+     * @return The component value
+     */
+    public float get(int row, int column) {
+        if (column < 0 || column >= dimension) {
+            throw new IndexOutOfBoundsException("Column " + column + " out of range for dimension " + dimension);
+        }
+        return data[offset(row) + column];
+    }
+
+    /**
+     * @param row The vector index
+     * @return A copy of the vector
+     */
+    public float[] row(int row) {
+        int offset = offset(row);
+        return Arrays.copyOfRange(data, offset, offset + dimension);
+    }
+
+    /**
+     * @param row The vector index
+     * @return A zero-copy view of the vector
+     */
+    public FloatBuffer rowBuffer(int row) {
+        return FloatBuffer.wrap(data, offset(row), dimension).slice();
+    }
+
+    /**
+     * @return A zero-copy view of all vectors, row-major
+     */
+    public FloatBuffer asFloatBuffer() {
+        return FloatBuffer.wrap(data, 0, rows * dimension).slice();
+    }
+
+    /**
+     * Copies all vectors into the target buffer at its current position.
+     * @param target The destination buffer
+     */
+    public void copyTo(FloatBuffer target) {
+        target.put(data, 0, rows * dimension);
+    }
+
+    private int offset(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for " + rows + " rows");
+        }
+        return row * dimension;
+    }
+}
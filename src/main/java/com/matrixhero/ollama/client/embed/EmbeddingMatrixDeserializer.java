@@ -0,0 +1,74 @@
+package com.matrixhero.ollama.client.embed;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming deserializer that reads a JSON array of number arrays into one contiguous {@link EmbeddingMatrix}.
+ * When the reader carries the {@link #EXPECTED_ROWS} attribute, the backing array is allocated once at
+ * {@code rows * dimension} as soon as the first row has fixed the dimension.
+ */
+public class EmbeddingMatrixDeserializer extends StdDeserializer<EmbeddingMatrix> {
+    /** Reader attribute holding the expected number of rows as an {@link Integer} */
+    public static final String EXPECTED_ROWS = EmbeddingMatrixDeserializer.class.getName() + ".expectedRows";
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Dimension of the last matrix read, used to size the first row of the next one */
+    private volatile int expectedDimension = INITIAL_CAPACITY;
+
+    public EmbeddingMatrixDeserializer() {
+        super(EmbeddingMatrix.class);
+    }
+
+    @Override
+    public EmbeddingMatrix deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (EmbeddingMatrix) ctxt.handleUnexpectedToken(EmbeddingMatrix.class, parser);
+        }
+        Object hint = ctxt.getAttribute(EXPECTED_ROWS);
+        int expectedRows = hint instanceof Integer ? Math.max(1, (Integer) hint) : 1;
+
+        float[] data = new float[expectedRows * expectedDimension];
+        int dimension = -1;
+        int rows = 0;
+        int length = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                return (EmbeddingMatrix) ctxt.handleUnexpectedToken(EmbeddingMatrix.class, parser);
+            }
+            int rowStart = length;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                    return (EmbeddingMatrix) ctxt.handleUnexpectedToken(EmbeddingMatrix.class, parser);
+                }
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, Math.max(length * 2, 16));
+                }
+                data[length++] = parser.getFloatValue();
+            }
+            int rowLength = length - rowStart;
+            if (dimension < 0) {
+                dimension = rowLength;
+                // The dimension is now known, so size the array for all expected rows at once
+                if ((long) expectedRows * dimension > data.length) {
+                    data = Arrays.copyOf(data, expectedRows * dimension);
+                }
+            } else if (rowLength != dimension) {
+                return (EmbeddingMatrix) ctxt.reportInputMismatch(EmbeddingMatrix.class,
+                        "Embedding %d has %d components, expected %d", rows, rowLength, dimension);
+            }
+            rows++;
+        }
+        if (dimension > 0) {
+            expectedDimension = dimension;
+        }
+        return new EmbeddingMatrix(data, rows, Math.max(dimension, 0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.matrixhero.ollama.client.embed;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming deserializer that reads a JSON number array straight into a {@code float[]}.
+ * Numbers are taken token by token from the parser without boxing, into an array preallocated
+ * to the length seen on the previous vector, so a steady stream of same-sized embeddings is
+ * parsed without resizing.
+ */
+public class Float32ArrayDeserializer extends StdDeserializer<float[]> {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Length of the last vector read, used to size the next one */
+    private volatile int expectedLength = INITIAL_CAPACITY;
+
+    public Float32ArrayDeserializer() {
+        super(float[].class);
+    }
+
+    @Override
+    public float[] deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (float[]) ctxt.handleUnexpectedToken(float[].class, parser);
+        }
+        float[] values = new float[expectedLength];
+        int length = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                return (float[]) ctxt.handleUnexpectedToken(float[].class, parser);
+            }
+            if (length == values.length) {
+                values = Arrays.copyOf(values, length * 2);
+            }
+            values[length++] = parser.getFloatValue();
+        }
+        if (length > 0) {
+            expectedLength = length;
+        }
+        return length == values.length ? values : Arrays.copyOf(values, length);
+    }
+}
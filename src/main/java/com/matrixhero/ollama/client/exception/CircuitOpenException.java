@@ -0,0 +1,14 @@
+package com.matrixhero.ollama.client.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown instead of sending a request to a host whose circuit breaker is open.
+ * The request never reached the server, so it is always safe to retry it elsewhere.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
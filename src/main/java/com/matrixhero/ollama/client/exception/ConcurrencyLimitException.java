@@ -0,0 +1,15 @@
+package com.matrixhero.ollama.client.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown instead of sending a request when the adaptive concurrency limit for its host and
+ * model is reached and the request could not be queued, or waited too long for a slot.
+ * The request never reached the server, so it is safe to retry it elsewhere or later.
+ */
+public class ConcurrencyLimitException extends IOException {
+
+    public ConcurrencyLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.matrixhero.ollama.client.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when the server answers with an unsuccessful HTTP status.
+ */
+public class OllamaResponseException extends IOException {
+    private final int statusCode;
+
+    public OllamaResponseException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return The HTTP status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
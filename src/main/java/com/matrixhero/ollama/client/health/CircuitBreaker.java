@@ -0,0 +1,218 @@
+package com.matrixhero.ollama.client.health;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one host, driven by a count-based rolling window of recent calls.
+ * <p>
+ * While {@link State#CLOSED}, every call is allowed and its outcome recorded. Once the window holds
+ * enough calls and the share of failed or slow calls reaches the threshold, the breaker opens and
+ * rejects calls for the open duration. It then lets a limited number of trial calls through
+ * ({@link State#HALF_OPEN}): if they all succeed the breaker closes, and any failure opens it again.
+ * This class is thread-safe.
+ */
+public class CircuitBreaker {
+    /**
+     * Breaker states.
+     */
+    public enum State {
+        /** Calls flow normally */
+        CLOSED,
+        /** Calls are rejected */
+        OPEN,
+        /** A limited number of trial calls are allowed */
+        HALF_OPEN
+    }
+
+    private final String host;
+    private final HealthMonitor settings;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] unhealthy;
+    private final long[] latencies;
+    private int position;
+    private int calls;
+    private int unhealthyCalls;
+    private long latencySum;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsIssued;
+    private int trialSuccesses;
+
+    CircuitBreaker(String host, HealthMonitor settings, LongSupplier nanoClock) {
+        this.host = host;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.unhealthy = new boolean[settings.getWindowSize()];
+        this.latencies = new long[settings.getWindowSize()];
+    }
+
+    /**
+     * @return The host this breaker guards
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return The current state, moving from open to half-open if the open duration has elapsed
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && openElapsed()) {
+            halfOpen();
+        }
+        return state;
+    }
+
+    /**
+     * @return The share of failed or slow calls in the current window
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0.0 : unhealthyCalls / (double) calls;
+    }
+
+    /**
+     * @return The mean latency of the calls in the current window, in milliseconds
+     */
+    public synchronized double getAverageLatencyMillis() {
+        return calls == 0 ? 0.0 : latencySum / (double) calls / 1_000_000.0;
+    }
+
+    /**
+     * Asks permission to send a call. Every permitted call must be followed by
+     * {@link #onSuccess(long)}, {@link #onFailure(long)} or {@link #onIgnored()}.
+     *
+     * @return Whether the call may be sent
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (!openElapsed()) {
+                    return false;
+                }
+                halfOpen();
+                // fall through
+            default:
+                if (trialsIssued >= settings.getHalfOpenPermits()) {
+                    return false;
+                }
+                trialsIssued++;
+                return true;
+        }
+    }
+
+    /**
+     * Records a call that completed with a healthy response, counting it as failed if it was slow.
+     *
+     * @param latencyNanos The time from sending the call to receiving the response headers
+     */
+    public void onSuccess(long latencyNanos) {
+        onSuccess(latencyNanos, true);
+    }
+
+    /**
+     * Records a call that completed with a healthy response.
+     *
+     * @param latencyNanos The time from sending the call to receiving the response headers
+     * @param timed Whether the latency reflects the host's responsiveness, so that a slow call counts as
+     *              failed; false for calls whose headers only arrive once the server has done all the work,
+     *              such as a non-streaming generation
+     */
+    public synchronized void onSuccess(long latencyNanos, boolean timed) {
+        long threshold = settings.getSlowCallThresholdNanos();
+        boolean slow = timed && threshold > 0 && latencyNanos > threshold;
+        if (state == State.HALF_OPEN) {
+            if (slow) {
+                open();
+            } else if (++trialSuccesses >= settings.getHalfOpenPermits()) {
+                close();
+            }
+            return;
+        }
+        record(slow, latencyNanos);
+    }
+
+    /**
+     * Records a call that failed: an I/O error, a timeout or a server error.
+     *
+     * @param latencyNanos The time from sending the call to the failure
+     */
+    public synchronized void onFailure(long latencyNanos) {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true, latencyNanos);
+    }
+
+    /**
+     * Records a permitted call that ended without telling anything about the host, such as a call
+     * cancelled by the caller. A half-open breaker gets the trial permit back.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsIssued > trialSuccesses) {
+            trialsIssued--;
+        }
+    }
+
+    private void record(boolean failed, long latencyNanos) {
+        if (state != State.CLOSED) {
+            // Outcome of a call admitted before the breaker opened
+            return;
+        }
+        if (calls == unhealthy.length) {
+            if (unhealthy[position]) {
+                unhealthyCalls--;
+            }
+            latencySum -= latencies[position];
+        } else {
+            calls++;
+        }
+        unhealthy[position] = failed;
+        latencies[position] = latencyNanos;
+        if (failed) {
+            unhealthyCalls++;
+        }
+        latencySum += latencyNanos;
+        position = (position + 1) % unhealthy.length;
+
+        if (calls >= settings.getMinimumCalls()
+                && unhealthyCalls >= settings.getFailureRateThreshold() * calls) {
+            open();
+        }
+    }
+
+    private boolean openElapsed() {
+        return nanoClock.getAsLong() - openedAt >= settings.getOpenDurationNanos();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        settings.onStateChange(this, State.OPEN);
+    }
+
+    private void halfOpen() {
+        state = State.HALF_OPEN;
+        trialsIssued = 0;
+        trialSuccesses = 0;
+        settings.onStateChange(this, State.HALF_OPEN);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        calls = 0;
+        unhealthyCalls = 0;
+        latencySum = 0;
+        settings.onStateChange(this, State.CLOSED);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return host + " " + state;
+    }
+}
@@ -0,0 +1,345 @@
+package com.matrixhero.ollama.client.health;
+
+import com.matrixhero.ollama.client.exception.CircuitOpenException;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host health tracking for Ollama servers.
+ * <p>
+ * The monitor is an OkHttp application interceptor: every request is admitted or rejected by the
+ * {@link CircuitBreaker} of its host, and its outcome (server errors, I/O errors and timeouts count
+ * as failures) feeds the breaker's rolling window. Slow calls count as failures too, but only where the
+ * time to the response headers says something about the host: probes and other calls without a
+ * payload, and streaming generations, whose headers arrive with the first token. A non-streaming
+ * {@code generate} or {@code chat} only gets its headers once the whole answer has been generated, so
+ * a long answer from a busy but healthy node never counts as slow. A rejected request fails immediately with a
+ * {@link CircuitOpenException} instead of waiting out the timeouts of a stalled server.
+ * <p>
+ * Hosts registered with {@link #watch(String, OkHttpClient)} are also probed periodically with a
+ * cheap {@code GET /api/version}, so a node that receives no traffic is still detected as down and,
+ * once the open duration has elapsed, brought back through half-open trial calls.
+ * <p>
+ * Register it on a client with {@code OllamaClient.builder().healthMonitor(monitor)}. Settings must be
+ * made before the first request; one monitor may serve any number of clients and hosts.
+ */
+@Slf4j
+public class HealthMonitor implements Interceptor, AutoCloseable {
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private int windowSize = 20;
+    private int minimumCalls = 5;
+    private double failureRateThreshold = 0.5;
+    private long slowCallThresholdNanos = TimeUnit.SECONDS.toNanos(20);
+    private long openDurationNanos = TimeUnit.SECONDS.toNanos(30);
+    private int halfOpenPermits = 2;
+    private long probeIntervalMillis = TimeUnit.SECONDS.toMillis(5);
+    private long probeTimeoutMillis = TimeUnit.SECONDS.toMillis(2);
+    private String probePath = "/api/version";
+
+    public HealthMonitor() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ollama-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param windowSize The number of recent calls each breaker evaluates (default 20)
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withWindowSize(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1");
+        }
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    /**
+     * @param minimumCalls Calls needed in the window before the breaker may open (default 5)
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * @param threshold Share of failed or slow calls, between 0 and 1, that opens the breaker (default 0.5)
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withFailureRateThreshold(double threshold) {
+        this.failureRateThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * @param threshold Probes and streaming calls whose response headers take longer than this count as
+     *                  failures (default 20 seconds); 0 to count no call as slow
+     * @param unit The unit of the threshold
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withSlowCallThreshold(long threshold, TimeUnit unit) {
+        this.slowCallThresholdNanos = unit.toNanos(threshold);
+        return this;
+    }
+
+    /**
+     * @param duration How long an open breaker rejects calls before trying again (default 30 seconds)
+     * @param unit The unit of the duration
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withOpenDuration(long duration, TimeUnit unit) {
+        this.openDurationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * @param permits Trial calls a half-open breaker admits; all must succeed to close it (default 2)
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withHalfOpenPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Half-open permits must be at least 1");
+        }
+        this.halfOpenPermits = permits;
+        return this;
+    }
+
+    /**
+     * @param interval Time between probes of each watched host; 0 disables probing (default 5 seconds)
+     * @param timeout Time a probe may take before it counts as a failure (default 2 seconds)
+     * @param unit The unit of both values
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withProbe(long interval, long timeout, TimeUnit unit) {
+        this.probeIntervalMillis = unit.toMillis(interval);
+        this.probeTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * @param path The path probed on each host, such as {@code /api/version} (default) or {@code /api/tags}
+     * @return This monitor for method chaining
+     */
+    public HealthMonitor withProbePath(String path) {
+        this.probePath = path;
+        return this;
+    }
+
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    long getSlowCallThresholdNanos() {
+        return slowCallThresholdNanos;
+    }
+
+    long getOpenDurationNanos() {
+        return openDurationNanos;
+    }
+
+    int getHalfOpenPermits() {
+        return halfOpenPermits;
+    }
+
+    /**
+     * Returns the breaker for a host, creating it on first use.
+     *
+     * @param host A server base URL such as {@code http://gpu-1:11434}
+     * @return The host's breaker
+     */
+    public CircuitBreaker breaker(String host) {
+        return breaker(HttpUrl.get(host));
+    }
+
+    private CircuitBreaker breaker(HttpUrl url) {
+        return breakers.computeIfAbsent(key(url), key -> new CircuitBreaker(key, this, System::nanoTime));
+    }
+
+    private static String key(HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    /**
+     * @param host A server base URL
+     * @return Whether requests to the host are currently admitted
+     */
+    public boolean isAvailable(String host) {
+        return breaker(host).getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Starts probing a host in the background.
+     * Probes are sent through the given client, which should have this monitor installed.
+     * Each call must be matched by a call to {@link #unwatch(String)} once the client is closed;
+     * a host watched by several clients is probed once, until the last of them unwatches it.
+     *
+     * @param host A server base URL
+     * @param client The HTTP client used to send the probes
+     */
+    public void watch(String host, OkHttpClient client) {
+        CircuitBreaker breaker = breaker(host);
+        if (probeIntervalMillis <= 0) {
+            return;
+        }
+        OkHttpClient probeClient = client.newBuilder()
+                .connectTimeout(probeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(probeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(probeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+        Request probe = new Request.Builder()
+                .url(HttpUrl.get(host).resolve(probePath))
+                .get()
+                .build();
+        probes.compute(breaker.getHost(), (key, existing) -> {
+            Probe watched = existing != null ? existing : new Probe(scheduler.scheduleWithFixedDelay(
+                    () -> probe(probeClient, probe), 0, probeIntervalMillis, TimeUnit.MILLISECONDS));
+            watched.watchers++;
+            return watched;
+        });
+    }
+
+    /**
+     * Stops probing a host on behalf of one client that watched it.
+     *
+     * @param host A server base URL passed to {@link #watch(String, OkHttpClient)}
+     */
+    public void unwatch(String host) {
+        probes.computeIfPresent(key(HttpUrl.get(host)), (key, watched) -> {
+            if (--watched.watchers > 0) {
+                return watched;
+            }
+            watched.future.cancel(false);
+            return null;
+        });
+    }
+
+    /**
+     * @param host A server base URL
+     * @return Whether the host is currently probed
+     */
+    public boolean isWatched(String host) {
+        return probes.containsKey(key(HttpUrl.get(host)));
+    }
+
+    private void probe(OkHttpClient client, Request probe) {
+        try (Response response = client.newCall(probe).execute()) {
+            log.trace("Health probe {} returned {}", probe.url(), response.code());
+        } catch (CircuitOpenException e) {
+            log.trace("Health probe {} skipped: circuit open", probe.url());
+        } catch (IOException e) {
+            log.debug("Health probe {} failed: {}", probe.url(), e.toString());
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        CircuitBreaker breaker = breaker(chain.request().url());
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException("Circuit open for " + breaker.getHost());
+        }
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            long elapsed = System.nanoTime() - start;
+            if (cancelledByCaller(chain.call(), elapsed)) {
+                // Says nothing about the server
+                breaker.onIgnored();
+            } else {
+                breaker.onFailure(elapsed);
+            }
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        if (response.code() >= 500) {
+            breaker.onFailure(latency);
+        } else {
+            breaker.onSuccess(latency, measuresHost(chain.request()));
+        }
+        return response;
+    }
+
+    /**
+     * Whether the time to the response headers of a call reflects the host rather than the amount of
+     * work asked of it.
+     */
+    private static boolean measuresHost(Request request) {
+        if (!(request.body() instanceof JsonRequestBody)) {
+            return true;
+        }
+        Object payload = ((JsonRequestBody) request.body()).getValue();
+        if (payload instanceof GenerateRequest) {
+            return Boolean.TRUE.equals(((GenerateRequest) payload).getStream());
+        } else if (payload instanceof ChatRequest) {
+            return ((ChatRequest) payload).isStream();
+        }
+        return false;
+    }
+
+    /**
+     * OkHttp enforces call timeouts by cancelling the call, so a cancelled call only counts as the
+     * caller's doing if the call timeout had not yet elapsed.
+     */
+    private static boolean cancelledByCaller(Call call, long elapsedNanos) {
+        if (!call.isCanceled()) {
+            return false;
+        }
+        long callTimeout = call.timeout().timeoutNanos();
+        return callTimeout == 0 || elapsedNanos < callTimeout;
+    }
+
+    void onStateChange(CircuitBreaker breaker, CircuitBreaker.State state) {
+        if (state == CircuitBreaker.State.OPEN) {
+            log.warn("Circuit opened for {}", breaker.getHost());
+        } else {
+            log.info("Circuit {} for {}", state == CircuitBreaker.State.CLOSED ? "closed" : "half-open",
+                    breaker.getHost());
+        }
+    }
+
+    /**
+     * Stops probing.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * A scheduled probe and the number of clients watching its host; guarded by the map's compute.
+     */
+    private static final class Probe {
+        private final ScheduledFuture<?> future;
+        private int watchers;
+
+        private Probe(ScheduledFuture<?> future) {
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.matrixhero.ollama.client.json;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds an {@link ObjectMapper} together with readers and writers cached per model type.
+ * <p>
+ * Looking up the deserializer of a type costs more than binding a small response, which matters on
+ * streaming endpoints where every token is a frame. Readers for the chat, generate and embed
+ * responses are resolved up front and every other type on first use. Responses are read from bytes
+ * rather than from a decoded {@code String}.
+ * <p>
+ * {@link #accelerated()} additionally registers a bytecode-generating module: Blackbird on Java 11+,
+ * otherwise Afterburner. Neither is a required dependency; add {@code jackson-module-blackbird} or
+ * {@code jackson-module-afterburner} to the classpath to use it.
+ */
+@Slf4j
+public final class JsonCodec {
+    private static final String BLACKBIRD = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+    private static final String AFTERBURNER = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+    private static final JsonCodec DEFAULT = new JsonCodec(new ObjectMapper());
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * @param objectMapper The mapper to build readers and writers from; it must not be reconfigured afterwards
+     */
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        for (Class<?> type : new Class<?>[]{ChatResponse.class, GenerateResponse.class, EmbedResponse.class}) {
+            reader(type);
+        }
+        for (Class<?> type : new Class<?>[]{ChatRequest.class, GenerateRequest.class, EmbedRequest.class}) {
+            writer(type);
+        }
+    }
+
+    /**
+     * @return A codec with a default mapper, shared by every client that does not configure its own
+     */
+    public static JsonCodec defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return A codec with a new default mapper and a bytecode-generating module registered
+     * @throws IllegalStateException if neither Blackbird nor Afterburner is on the classpath
+     */
+    public static JsonCodec accelerated() {
+        return new JsonCodec(accelerate(new ObjectMapper()));
+    }
+
+    /**
+     * Registers Blackbird (Java 11+) or Afterburner on a mapper.
+     * @param objectMapper The mapper to configure
+     * @return The same mapper
+     * @throws IllegalStateException if neither module is on the classpath
+     */
+    public static ObjectMapper accelerate(ObjectMapper objectMapper) {
+        Module module = javaVersion() >= 11 ? load(BLACKBIRD) : null;
+        if (module == null) {
+            module = load(AFTERBURNER);
+        }
+        if (module == null) {
+            throw new IllegalStateException("Accelerated JSON needs jackson-module-blackbird or "
+                    + "jackson-module-afterburner on the classpath");
+        }
+        log.debug("Registering {} for JSON binding", module.getModuleName());
+        return objectMapper.registerModule(module);
+    }
+
+    /**
+     * @return Whether {@link #accelerated()} can find a module on the classpath
+     */
+    public static boolean isAccelerationAvailable() {
+        return (javaVersion() >= 11 && load(BLACKBIRD) != null) || load(AFTERBURNER) != null;
+    }
+
+    private static Module load(String className) {
+        try {
+            return (Module) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        return version.startsWith("1.") ? 8 : Integer.parseInt(version.split("\\.")[0]);
+    }
+
+    /**
+     * @return The underlying mapper
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @param type The type to bind
+     * @return The cached reader for the type
+     */
+    public ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    /**
+     * @param type The type to serialize
+     * @return The cached writer for the type
+     */
+    public ObjectWriter writer(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerFor);
+    }
+
+    /**
+     * Binds a whole response body, reading it as bytes.
+     * @param body The response body; it is consumed but not closed
+     * @param type The type to bind
+     * @return The bound value
+     * @throws IOException if the body cannot be read or bound
+     */
+    public <T> T read(ResponseBody body, Class<T> type) throws IOException {
+        return reader(type).readValue(body.byteStream());
+    }
+
+    /**
+     * @param json UTF-8 encoded JSON
+     * @param type The type to bind
+     * @return The bound value
+     * @throws IOException if the JSON cannot be bound
+     */
+    public <T> T read(byte[] json, Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+}
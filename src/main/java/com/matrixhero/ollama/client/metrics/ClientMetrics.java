@@ -0,0 +1,99 @@
+package com.matrixhero.ollama.client.metrics;
+
+/**
+ * Listener for the timings the client observes, to be bridged into a metrics registry.
+ * <p>
+ * Every callback receives the API path (the endpoint, e.g. {@code /api/chat}) and the model named in
+ * the request or response, or {@code null} for calls without a model. All methods default to doing
+ * nothing, so an implementation only overrides what it records. Callbacks run on the threads that
+ * make and read the calls and must not block. Durations are in nanoseconds.
+ *
+ * @see HdrHistogramMetrics
+ */
+public interface ClientMetrics {
+    /** Records nothing */
+    ClientMetrics NONE = new ClientMetrics() {
+    };
+
+    /**
+     * Combines listeners, e.g. histograms and a {@link ModelLoadDetector}, into one that notifies each in turn.
+     *
+     * @param listeners The listeners
+     * @return The combined listener
+     */
+    static ClientMetrics composite(ClientMetrics... listeners) {
+        ClientMetrics[] all = listeners.clone();
+        return new ClientMetrics() {
+            @Override
+            public void requestCompleted(String endpoint, String model, long latencyNanos, long queueNanos, boolean success) {
+                for (ClientMetrics listener : all) {
+                    listener.requestCompleted(endpoint, model, latencyNanos, queueNanos, success);
+                }
+            }
+
+            @Override
+            public void firstToken(String endpoint, String model, long nanos) {
+                for (ClientMetrics listener : all) {
+                    listener.firstToken(endpoint, model, nanos);
+                }
+            }
+
+            @Override
+            public void tokenGap(String endpoint, String model, long nanos) {
+                for (ClientMetrics listener : all) {
+                    listener.tokenGap(endpoint, model, nanos);
+                }
+            }
+
+            @Override
+            public void serverTimings(String endpoint, String model, ServerTimings timings) {
+                for (ClientMetrics listener : all) {
+                    listener.serverTimings(endpoint, model, timings);
+                }
+            }
+        };
+    }
+
+    /**
+     * A call has finished: its response body has been read to the end or closed, or it failed.
+     * For streaming calls this is the time until the last frame.
+     *
+     * @param endpoint The API path
+     * @param model The model, or null
+     * @param latencyNanos Wall-clock time from the call starting to execute until it finished, including retries
+     * @param queueNanos Time an asynchronous call waited in the HTTP dispatcher's queue before executing; 0 for blocking calls
+     * @param success Whether the server answered with a 2xx status
+     */
+    default void requestCompleted(String endpoint, String model, long latencyNanos, long queueNanos, boolean success) {
+    }
+
+    /**
+     * The first frame with content of a streaming call has arrived.
+     *
+     * @param endpoint The API path
+     * @param model The model, or null
+     * @param nanos Time from sending the request to the first token
+     */
+    default void firstToken(String endpoint, String model, long nanos) {
+    }
+
+    /**
+     * Another frame with content of a streaming call has arrived.
+     *
+     * @param endpoint The API path
+     * @param model The model, or null
+     * @param nanos Time since the previous frame with content
+     */
+    default void tokenGap(String endpoint, String model, long nanos) {
+    }
+
+    /**
+     * A final response carried the server's own timings.
+     *
+     * @param endpoint The API path
+     * @param model The model, or null
+     * @param timings The durations and token counts reported by the server
+     */
+    default void serverTimings(String endpoint, String model, ServerTimings timings) {
+    }
+}
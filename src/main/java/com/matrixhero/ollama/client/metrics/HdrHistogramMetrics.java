@@ -0,0 +1,164 @@
+package com.matrixhero.ollama.client.metrics;
+
+import org.HdrHistogram.ConcurrentDoubleHistogram;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link ClientMetrics} that keeps an HdrHistogram per endpoint and model for latency,
+ * dispatcher queue time, time to first token, inter-token gap and server-reported tokens per second.
+ * <p>
+ * HdrHistogram is an optional dependency: add {@code org.hdrhistogram:HdrHistogram} to use this
+ * class. Histograms record with 3 significant digits and resize as needed; read them with the
+ * getters of {@link Series}, which return copies, and export them to a registry of choice.
+ */
+public class HdrHistogramMetrics implements ClientMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+    private Series series(String endpoint, String model) {
+        String key = endpoint + '\n' + (model == null ? "" : model);
+        Series existing = series.get(key);
+        return existing != null ? existing : series.computeIfAbsent(key, k -> new Series(endpoint, model));
+    }
+
+    @Override
+    public void requestCompleted(String endpoint, String model, long latencyNanos, long queueNanos, boolean success) {
+        Series s = series(endpoint, model);
+        s.latency.recordValue(latencyNanos);
+        s.queue.recordValue(queueNanos);
+        if (!success) {
+            s.failures.increment();
+        }
+    }
+
+    @Override
+    public void firstToken(String endpoint, String model, long nanos) {
+        series(endpoint, model).firstToken.recordValue(nanos);
+    }
+
+    @Override
+    public void tokenGap(String endpoint, String model, long nanos) {
+        series(endpoint, model).tokenGap.recordValue(nanos);
+    }
+
+    @Override
+    public void serverTimings(String endpoint, String model, ServerTimings timings) {
+        Series s = series(endpoint, model);
+        if (timings.getEvalCount() > 0 && timings.getEvalDuration() > 0) {
+            s.tokensPerSecond.recordValue(timings.getTokensPerSecond());
+        }
+        if (timings.getPromptEvalCount() > 0 && timings.getPromptEvalDuration() > 0) {
+            s.promptTokensPerSecond.recordValue(timings.getPromptTokensPerSecond());
+        }
+    }
+
+    /**
+     * @param endpoint The API path, e.g. {@code /api/chat}
+     * @param model The model, or null for calls without one
+     * @return The series, or null if nothing has been recorded for it
+     */
+    public Series get(String endpoint, String model) {
+        return series.get(endpoint + '\n' + (model == null ? "" : model));
+    }
+
+    /**
+     * @return Every series recorded so far
+     */
+    public Collection<Series> getSeries() {
+        return new ArrayList<>(series.values());
+    }
+
+    /**
+     * Drops everything recorded so far.
+     */
+    public void reset() {
+        series.clear();
+    }
+
+    /**
+     * The histograms of one endpoint and model. Durations are in nanoseconds.
+     */
+    public static final class Series {
+        private final String endpoint;
+        private final String model;
+        private final Histogram latency = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram queue = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram firstToken = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final Histogram tokenGap = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        private final DoubleHistogram tokensPerSecond = new ConcurrentDoubleHistogram(SIGNIFICANT_DIGITS);
+        private final DoubleHistogram promptTokensPerSecond = new ConcurrentDoubleHistogram(SIGNIFICANT_DIGITS);
+        private final LongAdder failures = new LongAdder();
+
+        Series(String endpoint, String model) {
+            this.endpoint = endpoint;
+            this.model = model;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /** The model, or null for calls without one */
+        public String getModel() {
+            return model;
+        }
+
+        /** Call latency, until the last byte of the response including retries */
+        public Histogram getLatency() {
+            return latency.copy();
+        }
+
+        /** Time asynchronous calls waited for the dispatcher; 0 for blocking calls */
+        public Histogram getQueueTime() {
+            return queue.copy();
+        }
+
+        /** Time from sending a streaming request to its first token */
+        public Histogram getTimeToFirstToken() {
+            return firstToken.copy();
+        }
+
+        /** Time between consecutive tokens of streaming calls */
+        public Histogram getTokenGap() {
+            return tokenGap.copy();
+        }
+
+        /** Generated tokens per second, as reported by the server */
+        public DoubleHistogram getTokensPerSecond() {
+            return tokensPerSecond.copy();
+        }
+
+        /** Prompt tokens evaluated per second, as reported by the server */
+        public DoubleHistogram getPromptTokensPerSecond() {
+            return promptTokensPerSecond.copy();
+        }
+
+        /** Calls that failed or returned a non-2xx status */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: calls=%d p50=%dms p99=%dms ttft.p50=%dms gap.p50=%.1fms tokens/s.p50=%.1f failures=%d",
+                    endpoint, model, latency.getTotalCount(),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(firstToken.getValueAtPercentile(50)), tokenGap.getValueAtPercentile(50) / 1e6,
+                    tokensPerSecond.getValueAtPercentile(50), failures.sum());
+        }
+
+        private static long millis(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
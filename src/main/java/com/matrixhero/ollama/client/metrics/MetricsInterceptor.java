@@ -0,0 +1,155 @@
+package com.matrixhero.ollama.client.metrics;
+
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.DeleteRequest;
+import com.matrixhero.ollama.client.model.EmbedBatchRequest;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.stream.JsonRequestBody;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application interceptor that reports the latency and dispatcher queue time of every call to a
+ * {@link ClientMetrics}. It must be the outermost interceptor so that latency covers retries.
+ * <p>
+ * A call counts as finished when its response body has been read to the end or closed, so the
+ * latency of a streaming call spans the whole stream. Queue time is only known for requests marked
+ * with {@link #enqueued(Request)} when they were handed to the dispatcher.
+ */
+public final class MetricsInterceptor implements Interceptor {
+    private final ClientMetrics metrics;
+
+    public MetricsInterceptor(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Marks a request as about to be enqueued on the dispatcher, so its queue time can be measured.
+     *
+     * @param request The request
+     * @return A copy of the request carrying the enqueue time
+     */
+    public static Request enqueued(Request request) {
+        return request.newBuilder().tag(EnqueuedAt.class, new EnqueuedAt(System.nanoTime())).build();
+    }
+
+    /**
+     * @param request A request built by the client
+     * @return The model named in its payload, or null
+     */
+    public static String modelOf(Request request) {
+        if (!(request.body() instanceof JsonRequestBody)) {
+            return null;
+        }
+        Object payload = ((JsonRequestBody) request.body()).getValue();
+        if (payload instanceof ChatRequest) {
+            return ((ChatRequest) payload).getModel();
+        } else if (payload instanceof GenerateRequest) {
+            return ((GenerateRequest) payload).getModel();
+        } else if (payload instanceof EmbedRequest) {
+            return ((EmbedRequest) payload).getModel();
+        } else if (payload instanceof EmbedBatchRequest) {
+            return ((EmbedBatchRequest) payload).getModel();
+        } else if (payload instanceof DeleteRequest) {
+            return ((DeleteRequest) payload).getModel();
+        }
+        return null;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        EnqueuedAt enqueuedAt = request.tag(EnqueuedAt.class);
+        long queueNanos = enqueuedAt == null ? 0 : Math.max(0, start - enqueuedAt.nanos);
+        String endpoint = request.url().encodedPath();
+        String model = modelOf(request);
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            metrics.requestCompleted(endpoint, model, System.nanoTime() - start, queueNanos, false);
+            throw e;
+        }
+        ResponseBody body = response.body();
+        boolean success = response.isSuccessful();
+        if (body == null) {
+            metrics.requestCompleted(endpoint, model, System.nanoTime() - start, queueNanos, success);
+            return response;
+        }
+        Runnable finish = new Runnable() {
+            private final AtomicBoolean done = new AtomicBoolean();
+
+            @Override
+            public void run() {
+                if (done.compareAndSet(false, true)) {
+                    metrics.requestCompleted(endpoint, model, System.nanoTime() - start, queueNanos, success);
+                }
+            }
+        };
+        return response.newBuilder().body(new TimedBody(body, finish)).build();
+    }
+
+    private static final class EnqueuedAt {
+        private final long nanos;
+
+        EnqueuedAt(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Response body that runs a callback once it has been exhausted or closed.
+     */
+    private static final class TimedBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        TimedBody(ResponseBody delegate, Runnable finish) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        finish.run();
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    finish.run();
+                    super.close();
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.matrixhero.ollama.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects model cold starts and swaps from the {@code load_duration} the server reports on every
+ * chat, generate and embed response.
+ * <p>
+ * A response whose load duration reaches the cold threshold (500 ms by default) means the model had
+ * to be loaded for it, because it was never loaded, expired after {@code keep_alive} or was evicted
+ * to make room for another model. Counters are kept per node and model. When a node reloads models
+ * at least {@code thrashThreshold} times within the window, listeners receive a {@link ThrashEvent}
+ * naming the models involved; the event repeats at most once per window per node. Frequent thrash
+ * calls for a longer {@code keep_alive}, a higher {@code OLLAMA_MAX_LOADED_MODELS} or spreading the
+ * models over more nodes.
+ * <p>
+ * The detector is a {@link ClientMetrics}. For a single client pass it to
+ * {@link com.matrixhero.ollama.client.OllamaClient.Builder#metrics}; for a cluster build each node's
+ * client with {@link #forNode(String)} so reloads are attributed to the right node.
+ */
+@Slf4j
+public class ModelLoadDetector implements ClientMetrics {
+    /** Node name used when the detector is installed directly */
+    public static final String DEFAULT_NODE = "default";
+
+    /**
+     * Receives cold loads and thrash events. Both methods default to doing nothing.
+     */
+    public interface Listener {
+        /**
+         * A response needed the model to be loaded.
+         *
+         * @param node The node
+         * @param model The model
+         * @param loadNanos The reported load duration
+         */
+        default void coldLoad(String node, String model, long loadNanos) {
+        }
+
+        /**
+         * A node crossed the reload threshold.
+         *
+         * @param event The details
+         */
+        default void thrash(ThrashEvent event) {
+        }
+    }
+
+    private final LongSupplier nanoClock;
+    private long coldThresholdNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private long windowNanos = TimeUnit.MINUTES.toNanos(5);
+    private int thrashThreshold = 5;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NodeWindow> nodes = new ConcurrentHashMap<>();
+    private final LongAdder thrashEvents = new LongAdder();
+
+    public ModelLoadDetector() {
+        this(System::nanoTime);
+    }
+
+    ModelLoadDetector(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param threshold Load duration from which a response counts as a cold load, 500 ms by default
+     * @return This detector for method chaining
+     */
+    public ModelLoadDetector withColdThreshold(long threshold, TimeUnit unit) {
+        this.coldThresholdNanos = unit.toNanos(threshold);
+        return this;
+    }
+
+    /**
+     * @param reloads Cold loads on one node within the window that count as thrash, 5 by default
+     * @param window The sliding window, 5 minutes by default
+     * @return This detector for method chaining
+     */
+    public ModelLoadDetector withThrashThreshold(int reloads, long window, TimeUnit unit) {
+        this.thrashThreshold = reloads;
+        this.windowNanos = unit.toNanos(window);
+        return this;
+    }
+
+    /**
+     * @param listener Receives cold loads and thrash events
+     * @return This detector for method chaining
+     */
+    public ModelLoadDetector withListener(Listener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Returns a view that attributes every response to the given node, for the client of that node.
+     *
+     * @param node The node, typically its host URL
+     * @return The metrics listener for that node's client
+     */
+    public ClientMetrics forNode(String node) {
+        return new ClientMetrics() {
+            @Override
+            public void serverTimings(String endpoint, String model, ServerTimings timings) {
+                record(node, model, timings.getLoadDuration());
+            }
+        };
+    }
+
+    @Override
+    public void serverTimings(String endpoint, String model, ServerTimings timings) {
+        record(DEFAULT_NODE, model, timings.getLoadDuration());
+    }
+
+    /**
+     * @param loadNanos A reported load duration
+     * @return Whether it means the model was loaded for the request
+     */
+    public boolean isColdLoad(long loadNanos) {
+        return loadNanos >= coldThresholdNanos;
+    }
+
+    /**
+     * Classifies and counts one response.
+     *
+     * @param node The node that served it
+     * @param model The model
+     * @param loadNanos Its reported load duration
+     * @return Whether it was a cold load
+     */
+    public boolean record(String node, String model, long loadNanos) {
+        String name = model == null ? "" : model;
+        Counters c = counters.computeIfAbsent(node + '\n' + name, k -> new Counters(node, name));
+        c.responses.increment();
+        if (!isColdLoad(loadNanos)) {
+            return false;
+        }
+        c.coldLoads.increment();
+        c.loadNanos.add(loadNanos);
+        c.maxLoadNanos.accumulateAndGet(loadNanos, Math::max);
+        log.debug("Cold load of {} on {} took {} ms", name, node, TimeUnit.NANOSECONDS.toMillis(loadNanos));
+        for (Listener listener : listeners) {
+            listener.coldLoad(node, name, loadNanos);
+        }
+        ThrashEvent event = nodes.computeIfAbsent(node, k -> new NodeWindow()).add(node, name, nanoClock.getAsLong());
+        if (event != null) {
+            thrashEvents.increment();
+            log.warn("Model reload thrash on {}: {} reloads of {} within {} s", node, event.getReloads(),
+                    event.getModels(), TimeUnit.NANOSECONDS.toSeconds(windowNanos));
+            for (Listener listener : listeners) {
+                listener.thrash(event);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param node The node
+     * @return Cold loads on the node within the current window
+     */
+    public int getRecentReloads(String node) {
+        NodeWindow window = nodes.get(node);
+        return window == null ? 0 : window.size(nanoClock.getAsLong());
+    }
+
+    /**
+     * @param node The node
+     * @return Cold loads per minute on the node, averaged over the window
+     */
+    public double getReloadRate(String node) {
+        return getRecentReloads(node) / (windowNanos / (double) TimeUnit.MINUTES.toNanos(1));
+    }
+
+    /**
+     * @return The number of thrash events emitted
+     */
+    public long getThrashEvents() {
+        return thrashEvents.sum();
+    }
+
+    /**
+     * @param node The node
+     * @param model The model
+     * @return The counters of the model on the node, or null if it has not served a response
+     */
+    public ModelStats getStats(String node, String model) {
+        Counters c = counters.get(node + '\n' + model);
+        return c == null ? null : c.snapshot();
+    }
+
+    /**
+     * @return The counters of every model on every node
+     */
+    public List<ModelStats> getStats() {
+        List<ModelStats> stats = new ArrayList<>();
+        for (Counters c : counters.values()) {
+            stats.add(c.snapshot());
+        }
+        return stats;
+    }
+
+    private static final class Counters {
+        private final String node;
+        private final String model;
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder coldLoads = new LongAdder();
+        private final LongAdder loadNanos = new LongAdder();
+        private final AtomicLong maxLoadNanos = new AtomicLong();
+
+        Counters(String node, String model) {
+            this.node = node;
+            this.model = model;
+        }
+
+        ModelStats snapshot() {
+            return new ModelStats(node, model, responses.sum(), coldLoads.sum(), loadNanos.sum(), maxLoadNanos.get());
+        }
+    }
+
+    /**
+     * Cold loads of one node within the sliding window.
+     */
+    private final class NodeWindow {
+        private final Deque<Long> times = new ArrayDeque<>();
+        private final Deque<String> models = new ArrayDeque<>();
+        private long lastEvent = Long.MIN_VALUE;
+
+        synchronized ThrashEvent add(String node, String model, long now) {
+            times.addLast(now);
+            models.addLast(model);
+            expire(now);
+            if (times.size() < thrashThreshold || (lastEvent != Long.MIN_VALUE && now - lastEvent < windowNanos)) {
+                return null;
+            }
+            lastEvent = now;
+            return new ThrashEvent(node, times.size(), new ArrayList<>(new LinkedHashSet<>(models)), windowNanos);
+        }
+
+        synchronized int size(long now) {
+            expire(now);
+            return times.size();
+        }
+
+        private void expire(long now) {
+            while (!times.isEmpty() && now - times.peekFirst() > windowNanos) {
+                times.removeFirst();
+                models.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * A node reloading models more often than the threshold allows.
+     */
+    public static final class ThrashEvent {
+        private final String node;
+        private final int reloads;
+        private final List<String> models;
+        private final long windowNanos;
+
+        ThrashEvent(String node, int reloads, List<String> models, long windowNanos) {
+            this.node = node;
+            this.reloads = reloads;
+            this.models = Collections.unmodifiableList(models);
+            this.windowNanos = windowNanos;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        /** Cold loads within the window */
+        public int getReloads() {
+            return reloads;
+        }
+
+        /** Models reloaded within the window, in order of first reload; more than one means they evict each other */
+        public List<String> getModels() {
+            return models;
+        }
+
+        public long getWindow(TimeUnit unit) {
+            return unit.convert(windowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s reloaded %s %d times in %d s", node, models, reloads,
+                    TimeUnit.NANOSECONDS.toSeconds(windowNanos));
+        }
+    }
+
+    /**
+     * Load counters of one model on one node.
+     */
+    public static final class ModelStats {
+        private final String node;
+        private final String model;
+        private final long responses;
+        private final long coldLoads;
+        private final long loadNanos;
+        private final long maxLoadNanos;
+
+        ModelStats(String node, String model, long responses, long coldLoads, long loadNanos, long maxLoadNanos) {
+            this.node = node;
+            this.model = model;
+            this.responses = responses;
+            this.coldLoads = coldLoads;
+            this.loadNanos = loadNanos;
+            this.maxLoadNanos = maxLoadNanos;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        /** Responses that reported a load duration */
+        public long getResponses() {
+            return responses;
+        }
+
+        /** Responses that needed the model to be loaded */
+        public long getColdLoads() {
+            return coldLoads;
+        }
+
+        /** Share of responses that were cold loads */
+        public double getColdRate() {
+            return responses == 0 ? 0.0 : (double) coldLoads / responses;
+        }
+
+        /** Total time spent loading, in nanoseconds */
+        public long getTotalLoadDuration() {
+            return loadNanos;
+        }
+
+        /** Longest load, in nanoseconds */
+        public long getMaxLoadDuration() {
+            return maxLoadNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: responses=%d cold=%d (%.1f%%) maxLoad=%dms", node, model, responses,
+                    coldLoads, getColdRate() * 100, TimeUnit.NANOSECONDS.toMillis(maxLoadNanos));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.matrixhero.ollama.client.metrics;
+
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+
+/**
+ * The durations and token counts the server reports on a final response. Durations are in
+ * nanoseconds; fields the server left out are 0.
+ */
+public final class ServerTimings {
+    private final long totalDuration;
+    private final long loadDuration;
+    private final long promptEvalCount;
+    private final long promptEvalDuration;
+    private final long evalCount;
+    private final long evalDuration;
+
+    public ServerTimings(Long totalDuration, Long loadDuration, Integer promptEvalCount,
+                         Long promptEvalDuration, Integer evalCount, Long evalDuration) {
+        this.totalDuration = totalDuration == null ? 0 : totalDuration;
+        this.loadDuration = loadDuration == null ? 0 : loadDuration;
+        this.promptEvalCount = promptEvalCount == null ? 0 : promptEvalCount;
+        this.promptEvalDuration = promptEvalDuration == null ? 0 : promptEvalDuration;
+        this.evalCount = evalCount == null ? 0 : evalCount;
+        this.evalDuration = evalDuration == null ? 0 : evalDuration;
+    }
+
+    /**
+     * @param response A final response
+     * @return Its timings, or null if the response carries none
+     */
+    public static ServerTimings of(Object response) {
+        if (response instanceof GenerateResponse) {
+            GenerateResponse r = (GenerateResponse) response;
+            return r.getTotalDuration() == null ? null : new ServerTimings(r.getTotalDuration(), r.getLoadDuration(),
+                    r.getPromptEvalCount(), r.getPromptEvalDuration(), r.getEvalCount(), r.getEvalDuration());
+        }
+        if (response instanceof ChatResponse) {
+            ChatResponse r = (ChatResponse) response;
+            return r.getTotalDuration() == null ? null : new ServerTimings(r.getTotalDuration(), r.getLoadDuration(),
+                    r.getPromptEvalCount(), r.getPromptEvalDuration(), r.getEvalCount(), r.getEvalDuration());
+        }
+        if (response instanceof EmbedResponse) {
+            EmbedResponse r = (EmbedResponse) response;
+            return r.getTotalDuration() == null ? null : new ServerTimings(r.getTotalDuration(), r.getLoadDuration(),
+                    r.getPromptEvalCount(), r.getPromptEvalDuration(), r.getEvalCount(), r.getEvalDuration());
+        }
+        return null;
+    }
+
+    /** Time the server spent on the whole request */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /** Time spent loading the model; large values mean the model was not resident */
+    public long getLoadDuration() {
+        return loadDuration;
+    }
+
+    /** Prompt tokens evaluated */
+    public long getPromptEvalCount() {
+        return promptEvalCount;
+    }
+
+    /** Time spent evaluating the prompt */
+    public long getPromptEvalDuration() {
+        return promptEvalDuration;
+    }
+
+    /** Tokens generated */
+    public long getEvalCount() {
+        return evalCount;
+    }
+
+    /** Time spent generating */
+    public long getEvalDuration() {
+        return evalDuration;
+    }
+
+    /**
+     * @return Generated tokens per second, or 0 if nothing was generated
+     */
+    public double getTokensPerSecond() {
+        return evalDuration == 0 ? 0.0 : evalCount * 1e9 / evalDuration;
+    }
+
+    /**
+     * @return Prompt tokens evaluated per second, or 0 if no prompt was evaluated
+     */
+    public double getPromptTokensPerSecond() {
+        return promptEvalDuration == 0 ? 0.0 : promptEvalCount * 1e9 / promptEvalDuration;
+    }
+}
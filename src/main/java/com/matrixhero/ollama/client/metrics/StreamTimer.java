@@ -0,0 +1,106 @@
+package com.matrixhero.ollama.client.metrics;
+
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Observes the frames of one streaming call and reports time to first token, the gaps between
+ * tokens and the server timings of the final frame to a {@link ClientMetrics}. Frames without
+ * content, such as the final statistics frame, do not count as tokens.
+ */
+public final class StreamTimer {
+    private final ClientMetrics metrics;
+    private final String endpoint;
+    private final long start;
+    private long last = -1;
+
+    /**
+     * @param metrics The listener
+     * @param endpoint The API path of the call
+     * @param start {@link System#nanoTime()} when the request was sent
+     */
+    public StreamTimer(ClientMetrics metrics, String endpoint, long start) {
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+        this.start = start;
+    }
+
+    /**
+     * Records one frame as the caller receives it.
+     *
+     * @param frame A {@link GenerateResponse} or {@link ChatResponse} frame
+     */
+    public void onFrame(Object frame) {
+        long now = System.nanoTime();
+        String model;
+        String content;
+        boolean done;
+        if (frame instanceof GenerateResponse) {
+            GenerateResponse response = (GenerateResponse) frame;
+            model = response.getModel();
+            content = response.getResponse();
+            done = Boolean.TRUE.equals(response.getDone());
+        } else if (frame instanceof ChatResponse) {
+            ChatResponse response = (ChatResponse) frame;
+            model = response.getModel();
+            content = response.getMessage() == null ? null : response.getMessage().getContent();
+            done = Boolean.TRUE.equals(response.getDone());
+        } else {
+            return;
+        }
+        if (content != null && !content.isEmpty()) {
+            if (last < 0) {
+                metrics.firstToken(endpoint, model, now - start);
+            } else {
+                metrics.tokenGap(endpoint, model, now - last);
+            }
+            last = now;
+        }
+        if (done) {
+            ServerTimings timings = ServerTimings.of(frame);
+            if (timings != null) {
+                metrics.serverTimings(endpoint, model, timings);
+            }
+        }
+    }
+
+    /**
+     * Wraps a publisher so that every frame delivered to its subscriber is recorded. Time to first
+     * token is measured from the subscription.
+     *
+     * @param metrics The listener
+     * @param endpoint The API path of the call
+     * @param publisher The frame publisher
+     * @return The observed publisher
+     */
+    public static <T> Publisher<T> observe(ClientMetrics metrics, String endpoint, Publisher<T> publisher) {
+        return subscriber -> {
+            StreamTimer timer = new StreamTimer(metrics, endpoint, System.nanoTime());
+            publisher.subscribe(new Subscriber<T>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(T frame) {
+                    timer.onFrame(frame);
+                    subscriber.onNext(frame);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    subscriber.onError(error);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.matrixhero.ollama.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch text embedding request class for the {@code /api/embed} endpoint.
+ * Contains several input texts that are embedded in a single round trip.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmbedBatchRequest {
+    /** Model name */
+    private String model;
+    /** Input texts */
+    private List<String> input;
+    /** Whether to truncate inputs that exceed the context length */
+    private Boolean truncate;
+    /** Embedding options */
+    private Options options;
+    /** Keep-alive duration in seconds */
+    @JsonProperty("keep_alive")
+    private Integer keepAlive;
+
+    public EmbedBatchRequest(String model, List<String> input) {
+        this.model = model;
+        this.input = input;
+    }
+}
@@ -0,0 +1,29 @@
+package com.matrixhero.ollama.client.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch text embedding response class for the {@code /api/embed} endpoint.
+ * Contains one embedding vector per input, in input order.
+ */
+@Data
+@NoArgsConstructor
+public class EmbedBatchResponse {
+    /** Model name */
+    private String model;
+    /** Generated embedding vectors, in input order */
+    private List<double[]> embeddings;
+    /** Total processing duration */
+    @JsonProperty("total_duration")
+    private Long totalDuration;
+    /** Model loading duration */
+    @JsonProperty("load_duration")
+    private Long loadDuration;
+    /** Number of prompt evaluations */
+    @JsonProperty("prompt_eval_count")
+    private Integer promptEvalCount;
+}
@@ -0,0 +1,31 @@
+package com.matrixhero.ollama.client.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.matrixhero.ollama.client.embed.EmbeddingMatrix;
+import com.matrixhero.ollama.client.embed.EmbeddingMatrixDeserializer;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Batch text embedding response class with float32 precision.
+ * All vectors are stored contiguously in one {@link EmbeddingMatrix}, in input order.
+ */
+@Data
+@NoArgsConstructor
+public class FloatEmbedBatchResponse {
+    /** Model name */
+    private String model;
+    /** Generated embedding vectors, in input order */
+    @JsonDeserialize(using = EmbeddingMatrixDeserializer.class)
+    private EmbeddingMatrix embeddings;
+    /** Total processing duration */
+    @JsonProperty("total_duration")
+    private Long totalDuration;
+    /** Model loading duration */
+    @JsonProperty("load_duration")
+    private Long loadDuration;
+    /** Number of prompt evaluations */
+    @JsonProperty("prompt_eval_count")
+    private Integer promptEvalCount;
+}
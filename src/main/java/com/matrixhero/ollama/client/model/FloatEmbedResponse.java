@@ -0,0 +1,30 @@
+package com.matrixhero.ollama.client.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.matrixhero.ollama.client.embed.Float32ArrayDeserializer;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Text embedding response class with float32 precision.
+ * Holds the same data as {@link EmbedResponse} at half the heap per vector.
+ */
+@Data
+@NoArgsConstructor
+public class FloatEmbedResponse {
+    /** Model name */
+    private String model;
+    /** Generated embedding vector */
+    @JsonDeserialize(using = Float32ArrayDeserializer.class)
+    private float[] embedding;
+    /** Total processing duration */
+    @JsonProperty("total_duration")
+    private Long totalDuration;
+    /** Model loading duration */
+    @JsonProperty("load_duration")
+    private Long loadDuration;
+    /** Number of prompt evaluations */
+    @JsonProperty("prompt_eval_count")
+    private Integer promptEvalCount;
+}
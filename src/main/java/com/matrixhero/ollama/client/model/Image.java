@@ -1,52 +1,294 @@
 package com.matrixhero.ollama.client.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import lombok.NoArgsConstructor;
-import java.nio.file.Path;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents image data.
- * Supports creating image objects from strings, byte arrays, or file paths.
+ * Supports creating image objects from strings, byte arrays, byte buffers, input streams or file paths.
+ * <p>
+ * Images created from raw data are encoded lazily: the bytes are read and Base64-encoded in chunks
+ * straight into the request body while it is written, so no encoded copy of the image is ever held
+ * in memory. Calling {@link #getValue()} on such an image encodes it to a string once and keeps it.
+ * An image read from an {@link InputStream} can only be written once.
+ * <p>
+ * Comparing, hashing and printing an image never encodes it: a lazy image only equals images that
+ * share its source, and {@link #toString()} shows the kind and length of the data rather than the data.
  */
-@Data
 @NoArgsConstructor
+@JsonSerialize(using = Image.Serializer.class)
 public class Image {
+    /**
+     * Serialization attribute that makes lazy images write a short key instead of their data, for
+     * building cache keys: a SHA-256 digest of the bytes for sources that can be read again, and a
+     * token unique to the image for streams, which are left unread.
+     */
+    public static final String KEY_ATTRIBUTE = Image.class.getName() + ".key";
+
+    private static final AtomicLong STREAMS = new AtomicLong();
+
     /** Base64 encoded image data */
     private String value;
 
+    /** Raw image data, encoded on demand; null once the image holds a value */
+    private Source source;
+
     /**
      * Creates an image object from a Base64 string
      * @param value Base64 encoded image data
      */
+    @JsonCreator
     public Image(String value) {
         this.value = value;
     }
 
     /**
-     * Creates an image object from a byte array
+     * Creates an image object from a byte array.
+     * The array is not copied and must not be modified until the request has been sent.
      * @param data Image byte array
      */
     public Image(byte[] data) {
-        this.value = Base64.getEncoder().encodeToString(data);
+        this.source = new Source("bytes", data.length) {
+            @Override
+            InputStream open() {
+                return new ByteArrayInputStream(data);
+            }
+        };
     }
 
     /**
-     * Creates an image object from a file path
+     * Creates an image object from a file path.
+     * The file is read while the request is written, not here.
      * @param path Image file path
-     * @throws java.io.IOException if file reading fails
+     * @throws java.io.IOException if the file does not exist or cannot be read
      */
     public Image(Path path) throws java.io.IOException {
-        byte[] data = Files.readAllBytes(path);
-        this.value = Base64.getEncoder().encodeToString(data);
+        this.source = new Source("file", Files.size(path)) {
+            @Override
+            InputStream open() throws IOException {
+                return Files.newInputStream(path);
+            }
+        };
+    }
+
+    /**
+     * Creates an image object from the remaining bytes of a buffer, which may be direct or memory-mapped.
+     * The buffer's position is not changed.
+     * @param data Image data
+     * @return The image
+     */
+    public static Image of(ByteBuffer data) {
+        ByteBuffer view = data.slice();
+        Image image = new Image();
+        image.source = new Source("buffer", view.remaining()) {
+            @Override
+            InputStream open() {
+                return new ByteBufferInputStream(view.duplicate());
+            }
+        };
+        return image;
+    }
+
+    /**
+     * Creates an image object that reads from a stream while the request is written.
+     * The stream is consumed and closed by the first write, so a request carrying this image cannot
+     * be retried or serialized twice.
+     * @param data Image data
+     * @param length The number of bytes in the stream, or -1 if unknown
+     * @return The image
+     */
+    public static Image of(InputStream data, long length) {
+        AtomicBoolean consumed = new AtomicBoolean();
+        long id = STREAMS.incrementAndGet();
+        Image image = new Image();
+        image.source = new Source("stream", length) {
+            @Override
+            InputStream open() throws IOException {
+                if (consumed.getAndSet(true)) {
+                    throw new IOException("Image stream has already been consumed");
+                }
+                return data;
+            }
+
+            @Override
+            String key() {
+                return "stream:" + id + ":" + length;
+            }
+        };
+        return image;
     }
 
     public String getValue() {
+        if (value == null && source != null) {
+            try (InputStream in = source.open()) {
+                value = Base64.getEncoder().encodeToString(readFully(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            source = null;
+        }
         return value;
     }
 
     public void setValue(String value) {
         this.value = value;
+        this.source = null;
+    }
+
+    /**
+     * @return Whether the image is still held as raw data that will be encoded while the request is written
+     */
+    public boolean isLazy() {
+        return value == null && source != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Image)) {
+            return false;
+        }
+        Image other = (Image) o;
+        return Objects.equals(value, other.value) && source == other.source;
+    }
+
+    @Override
+    public int hashCode() {
+        if (value != null) {
+            return value.hashCode();
+        }
+        return source != null ? System.identityHashCode(source) : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (source != null && value == null) {
+            return "Image(source=" + source.kind + ", length=" + source.length + ")";
+        }
+        return "Image(value=" + (value == null ? "null" : value.length() + " Base64 chars") + ")";
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Raw image data that can be opened for reading.
+     */
+    abstract static class Source {
+        private final String kind;
+        private final long length;
+
+        Source(String kind, long length) {
+            this.kind = kind;
+            this.length = length;
+        }
+
+        abstract InputStream open() throws IOException;
+
+        /**
+         * @return A key that is equal for equal data
+         */
+        String key() throws IOException {
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            try (InputStream in = open()) {
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    sha256.update(chunk, 0, read);
+                }
+            }
+            return "sha256:" + Base64.getEncoder().encodeToString(sha256.digest());
+        }
+    }
+
+    /**
+     * Writes an image as a JSON string, Base64-encoding lazy sources chunk by chunk into the generator.
+     */
+    static final class Serializer extends StdSerializer<Image> {
+        Serializer() {
+            super(Image.class);
+        }
+
+        @Override
+        public void serialize(Image image, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            Source source = image.source;
+            if (image.value != null || source == null) {
+                gen.writeString(image.value);
+                return;
+            }
+            if (provider.getAttribute(KEY_ATTRIBUTE) != null) {
+                gen.writeString(source.key());
+                return;
+            }
+            try (InputStream in = source.open()) {
+                int length = source.length >= 0 && source.length <= Integer.MAX_VALUE ? (int) source.length : -1;
+                gen.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, in, length);
+            }
+        }
+    }
+
+    /**
+     * Reads a byte buffer without copying it to the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
-} 
\ No newline at end of file
+}
@@ -3,13 +3,17 @@ package com.matrixhero.ollama.client.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
+
 /**
  * Configuration options for the Ollama client.
  * Contains various parameters for model loading and runtime settings.
  */
 @Data
 @NoArgsConstructor
-public class Options {
+public class Options implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     // Load time options
     /** Whether to enable NUMA */
     private Boolean numa;
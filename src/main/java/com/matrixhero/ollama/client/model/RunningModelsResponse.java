@@ -0,0 +1,45 @@
+package com.matrixhero.ollama.client.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Running models response class, returned by {@code /api/ps}.
+ * Contains the models currently loaded into memory on the server.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RunningModelsResponse {
+    /** List of loaded models */
+    private List<RunningModel> models;
+
+    /**
+     * Loaded model information class.
+     */
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class RunningModel {
+        /** Model name */
+        private String name;
+        /** Model identifier */
+        @JsonProperty("model")
+        private String model;
+        /** Model size in bytes */
+        private Long size;
+        /** Model digest */
+        private String digest;
+        /** Model details */
+        private ListResponse.ModelInfo.ModelDetails details;
+        /** Time at which the model is unloaded unless used again */
+        @JsonProperty("expires_at")
+        private String expiresAt;
+        /** Bytes of the model held in GPU memory */
+        @JsonProperty("size_vram")
+        private Long sizeVram;
+    }
+}
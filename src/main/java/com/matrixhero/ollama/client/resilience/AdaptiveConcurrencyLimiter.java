@@ -0,0 +1,787 @@
+package com.matrixhero.ollama.client.resilience;
+
+import com.matrixhero.ollama.client.exception.ConcurrencyLimitException;
+import com.matrixhero.ollama.client.metrics.MetricsInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OkHttp application interceptor that limits concurrent calls per host and model, adapting the limit
+ * to the latency the server shows.
+ * <p>
+ * An Ollama node serves only as many requests at once as it has parallel slots; anything beyond that
+ * waits in the server's queue and only adds latency. The limiter estimates that point with a gradient
+ * in the style of TCP Vegas: it tracks the lowest latency seen to the response headers, and grows the
+ * limit by about its square root while latency stays within {@code rttTolerance} times that minimum,
+ * shrinking it in proportion when latency rises beyond. Timeouts and 429/503 responses cut the limit
+ * multiplicatively, as in AIMD. The minimum is re-probed every {@value #PROBE_INTERVAL} samples so that
+ * the limit follows a node that became slower, for example after a model swap.
+ * <p>
+ * A call holds its slot until its response body has been read to the end or closed, so a stream
+ * occupies a slot for its whole length. Calls over the limit wait in FIFO order up to
+ * {@code maxWait}, at most {@code maxQueued} at a time; the rest fail with a
+ * {@link ConcurrencyLimitException} without reaching the server. Synchronous calls wait on the calling
+ * thread. Asynchronous calls created with {@link #newCall} wait for a slot before they are enqueued, so a
+ * saturated model does not hold dispatcher threads or per-host slots that calls to other models on the
+ * same host could use; other asynchronous calls wait on the dispatcher thread. Installed by
+ * {@code OllamaClient.builder().concurrencyLimiter(limiter)}; one limiter may be shared by the clients
+ * of a cluster.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter implements Interceptor {
+    /** Samples after which the minimum latency is measured afresh */
+    static final int PROBE_INTERVAL = 200;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ollama-limiter-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int initialLimit = 4;
+    private int minLimit = 1;
+    private int maxLimit = 64;
+    private double rttTolerance = 2.0;
+    private double smoothing = 0.2;
+    private double backoffRatio = 0.9;
+    private int maxQueued = 256;
+    private long maxWaitNanos = TimeUnit.SECONDS.toNanos(10);
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * @param initial The limit a new host and model starts with, 4 by default
+     * @param min The lowest the limit may fall, 1 by default
+     * @param max The highest the limit may grow, 64 by default
+     * @return This limiter for method chaining
+     */
+    public AdaptiveConcurrencyLimiter withLimits(int initial, int min, int max) {
+        if (min < 1 || initial < min || max < initial) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.initialLimit = initial;
+        this.minLimit = min;
+        this.maxLimit = max;
+        return this;
+    }
+
+    /**
+     * @param tolerance How many times the minimum latency is still considered uncongested, 2.0 by default.
+     *                  Non-streaming calls include the whole generation, so values below 1.5 tend to
+     *                  mistake long answers for congestion.
+     * @return This limiter for method chaining
+     */
+    public AdaptiveConcurrencyLimiter withRttTolerance(double tolerance) {
+        if (tolerance < 1.0) {
+            throw new IllegalArgumentException("Tolerance must be at least 1.0");
+        }
+        this.rttTolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param ratio Factor applied to the limit on a timeout or overload response, 0.9 by default
+     * @return This limiter for method chaining
+     */
+    public AdaptiveConcurrencyLimiter withBackoffRatio(double ratio) {
+        if (ratio <= 0.0 || ratio >= 1.0) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.backoffRatio = ratio;
+        return this;
+    }
+
+    /**
+     * @param maxQueued Calls that may wait for a slot per host and model, 256 by default; 0 to shed at once
+     * @param maxWait How long a call waits for a slot, 10 seconds by default
+     * @return This limiter for method chaining
+     */
+    public AdaptiveConcurrencyLimiter withQueue(int maxQueued, long maxWait, TimeUnit unit) {
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        return this;
+    }
+
+    /**
+     * @return The highest limit, which the dispatcher's per-host limit should not undercut
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Creates a call that, when enqueued, waits for a slot first and is only handed to the dispatcher
+     * once it holds one. Executing it waits on the calling thread as usual.
+     *
+     * @param factory Creates the underlying call, usually the HTTP client this limiter is installed in
+     * @param request The request
+     * @return A call that has not been executed yet
+     */
+    public Call newCall(Call.Factory factory, Request request) {
+        return new LimitedCall(factory, request);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Permit permit = request.tag(Permit.class);
+        if (permit == null || permit.released.get()) {
+            // Not taken before the call was enqueued, or already used by an earlier attempt
+            permit = new Permit(limitFor(request));
+            permit.limit.acquire();
+        }
+        Limit limit = permit.limit;
+        Runnable release = permit::release;
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            if (isTimeout(e) && !chain.call().isCanceled()) {
+                limit.onDrop();
+            }
+            release.run();
+            throw e;
+        }
+        if (response.code() == 429 || response.code() == 503) {
+            limit.onDrop();
+        } else if (response.isSuccessful()) {
+            limit.onSample(System.nanoTime() - start);
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            release.run();
+            return response;
+        }
+        return response.newBuilder().body(new ReleasingBody(body, release)).build();
+    }
+
+    private Limit limitFor(Request request) {
+        return limits.computeIfAbsent(key(request.url(), MetricsInterceptor.modelOf(request)),
+                k -> new Limit(k, initialLimit));
+    }
+
+    private static boolean isTimeout(Exception e) {
+        return e instanceof SocketTimeoutException
+                || (e instanceof InterruptedIOException && "timeout".equals(e.getMessage()));
+    }
+
+    private static String key(HttpUrl url, String model) {
+        return origin(url) + ' ' + (model == null ? "" : model);
+    }
+
+    private static String origin(HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    private Limit find(String host, String model) {
+        HttpUrl url = HttpUrl.parse(host);
+        if (url == null) {
+            throw new IllegalArgumentException("Invalid host: " + host);
+        }
+        return limits.get(key(url, model));
+    }
+
+    /**
+     * @param host The server base URL, as passed to the client
+     * @param model The model
+     * @return The current limit, or the initial limit if no call has been made yet
+     */
+    public int getLimit(String host, String model) {
+        Limit limit = find(host, model);
+        return limit == null ? initialLimit : limit.current();
+    }
+
+    /**
+     * @param host The server base URL, as passed to the client
+     * @param model The model
+     * @return Calls waiting for a slot
+     */
+    public int getQueueDepth(String host, String model) {
+        Limit limit = find(host, model);
+        return limit == null ? 0 : limit.snapshot().getQueued();
+    }
+
+    /**
+     * @return A snapshot of every host and model seen so far
+     */
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        for (Limit limit : limits.values()) {
+            stats.add(limit.snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * Limit and counters of one host and model. Synchronous and asynchronous waiters share one FIFO
+     * queue; a freed slot is handed to the waiter at its head.
+     */
+    private final class Limit {
+        private final String key;
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Condition available = lock.newCondition();
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private double limit;
+        private int inFlight;
+        private long minRtt;
+        private long lastRtt;
+        private int samples;
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder drops = new LongAdder();
+
+        Limit(String key, int initial) {
+            this.key = key;
+            this.limit = initial;
+        }
+
+        int current() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void acquire() throws IOException {
+            List<Waiter> granted = null;
+            lock.lock();
+            try {
+                if (tryAdmit()) {
+                    return;
+                }
+                Waiter waiter = enqueue(null);
+                try {
+                    long remaining = maxWaitNanos;
+                    while (!waiter.granted) {
+                        if (remaining <= 0) {
+                            waiters.remove(waiter);
+                            shed.increment();
+                            throw new ConcurrencyLimitException("Timed out waiting for a slot under concurrency limit "
+                                    + (int) limit + " for " + key);
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        // Pass on the slot that was just granted
+                        inFlight--;
+                        granted = grant();
+                    } else {
+                        waiters.remove(waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a slot");
+                }
+            } finally {
+                lock.unlock();
+                notify(granted);
+            }
+        }
+
+        /**
+         * Waits for a slot without blocking: the waiter's callback runs once it has one, on the thread
+         * that freed it, or fails it once {@code maxWait} has passed.
+         *
+         * @return The waiter, or null if the slot was granted at once
+         */
+        Waiter acquireAsync(SlotCallback callback) throws ConcurrencyLimitException {
+            lock.lock();
+            try {
+                if (tryAdmit()) {
+                    return null;
+                }
+                Waiter waiter = enqueue(callback);
+                waiter.expiry = TIMER.schedule(() -> expire(waiter), maxWaitNanos, TimeUnit.NANOSECONDS);
+                return waiter;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Admits a call at once if a slot is free and nobody is waiting; called with the lock held.
+         */
+        private boolean tryAdmit() {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                accepted.increment();
+                return true;
+            }
+            return false;
+        }
+
+        private Waiter enqueue(SlotCallback callback) throws ConcurrencyLimitException {
+            if (waiters.size() >= maxQueued) {
+                shed.increment();
+                throw new ConcurrencyLimitException("Concurrency limit " + (int) limit + " reached for " + key
+                        + " with " + waiters.size() + " calls queued");
+            }
+            Waiter waiter = new Waiter(callback);
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        private void expire(Waiter waiter) {
+            lock.lock();
+            try {
+                if (waiter.granted || !waiters.remove(waiter)) {
+                    return;
+                }
+                shed.increment();
+            } finally {
+                lock.unlock();
+            }
+            waiter.callback.onRejected(new ConcurrencyLimitException(
+                    "Timed out waiting for a slot under concurrency limit " + current() + " for " + key));
+        }
+
+        /**
+         * Removes a waiter that no longer wants a slot.
+         *
+         * @return Whether it was still waiting
+         */
+        boolean cancel(Waiter waiter) {
+            lock.lock();
+            try {
+                if (waiter.granted || !waiters.remove(waiter)) {
+                    return false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            waiter.expiry.cancel(false);
+            return true;
+        }
+
+        void release() {
+            List<Waiter> granted;
+            lock.lock();
+            try {
+                inFlight--;
+                granted = grant();
+            } finally {
+                lock.unlock();
+            }
+            notify(granted);
+        }
+
+        /**
+         * Hands free slots to the waiters at the head of the queue; called with the lock held.
+         *
+         * @return The asynchronous waiters granted a slot, to be notified once the lock is released
+         */
+        private List<Waiter> grant() {
+            List<Waiter> granted = null;
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                Waiter waiter = waiters.poll();
+                waiter.granted = true;
+                inFlight++;
+                accepted.increment();
+                if (waiter.callback == null) {
+                    available.signalAll();
+                } else {
+                    if (granted == null) {
+                        granted = new ArrayList<>();
+                    }
+                    granted.add(waiter);
+                }
+            }
+            return granted;
+        }
+
+        private void notify(List<Waiter> granted) {
+            if (granted == null) {
+                return;
+            }
+            for (Waiter waiter : granted) {
+                waiter.expiry.cancel(false);
+                waiter.callback.onGranted();
+            }
+        }
+
+        void onSample(long rtt) {
+            List<Waiter> granted;
+            lock.lock();
+            try {
+                lastRtt = rtt;
+                if (++samples % PROBE_INTERVAL == 0 || minRtt == 0 || rtt < minRtt) {
+                    minRtt = rtt;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRtt / rtt));
+                double target = limit * gradient + Math.sqrt(limit);
+                if (target > limit && inFlight < limit / 2) {
+                    // Not using the current limit, so there is no evidence that a higher one would be safe
+                    return;
+                }
+                granted = update(limit * (1 - smoothing) + target * smoothing);
+            } finally {
+                lock.unlock();
+            }
+            notify(granted);
+        }
+
+        void onDrop() {
+            drops.increment();
+            List<Waiter> granted;
+            lock.lock();
+            try {
+                granted = update(limit * backoffRatio);
+            } finally {
+                lock.unlock();
+            }
+            notify(granted);
+        }
+
+        private List<Waiter> update(double value) {
+            int before = (int) limit;
+            limit = Math.max(minLimit, Math.min(maxLimit, value));
+            if ((int) limit != before) {
+                log.debug("Concurrency limit for {} changed from {} to {}", key, before, (int) limit);
+                return grant();
+            }
+            return null;
+        }
+
+        Stats snapshot() {
+            lock.lock();
+            try {
+                int split = key.indexOf(' ');
+                return new Stats(key.substring(0, split), key.substring(split + 1), (int) limit, inFlight,
+                        waiters.size(), minRtt, lastRtt, accepted.sum(), shed.sum(), drops.sum());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Notified when an asynchronous waiter is granted a slot or gives up waiting.
+     */
+    private interface SlotCallback {
+        void onGranted();
+
+        void onRejected(ConcurrencyLimitException e);
+    }
+
+    /**
+     * A call waiting in a limit's queue; its fields are guarded by the limit's lock.
+     */
+    private static final class Waiter {
+        private final SlotCallback callback;
+        private boolean granted;
+        private ScheduledFuture<?> expiry;
+
+        Waiter(SlotCallback callback) {
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * A slot held by one call, released once however many times it is given back.
+     */
+    private static final class Permit {
+        private final Limit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Limit limit) {
+            this.limit = limit;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+    }
+
+    /**
+     * Call that takes a slot before it is enqueued, and passes it to the interceptor in a request tag.
+     */
+    private final class LimitedCall implements Call, SlotCallback, Callback {
+        private final Call.Factory factory;
+        private final Request request;
+        private final AtomicBoolean executed = new AtomicBoolean();
+        private volatile boolean canceled;
+        private volatile Call current;
+        private volatile Waiter waiter;
+        private Limit limit;
+        private Permit permit;
+        private Callback callback;
+
+        LimitedCall(Call.Factory factory, Request request) {
+            this.factory = factory;
+            this.request = request;
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            // Waits for its slot in the interceptor, on the calling thread
+            Call call = factory.newCall(request);
+            current = call;
+            if (canceled) {
+                call.cancel();
+            }
+            return call.execute();
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            callback = responseCallback;
+            limit = limitFor(request);
+            try {
+                waiter = limit.acquireAsync(this);
+            } catch (ConcurrencyLimitException e) {
+                onRejected(e);
+                return;
+            }
+            if (waiter == null) {
+                onGranted();
+            } else if (canceled) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void onGranted() {
+            permit = new Permit(limit);
+            Call call = factory.newCall(request.newBuilder().tag(Permit.class, permit).build());
+            current = call;
+            if (canceled) {
+                call.cancel();
+            }
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onRejected(ConcurrencyLimitException e) {
+            callback.onFailure(this, e);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            callback.onResponse(this, response);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            // Also covers calls the dispatcher rejected before the interceptor could take over the slot
+            permit.release();
+            callback.onFailure(this, e);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Call call = current;
+            if (call != null) {
+                call.cancel();
+            }
+            Waiter queued = waiter;
+            if (queued != null && limit.cancel(queued)) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed.get();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            Call call = current;
+            return call != null ? call.timeout() : Timeout.NONE;
+        }
+
+        @Override
+        public Call clone() {
+            return new LimitedCall(factory, request);
+        }
+    }
+
+    /**
+     * Response body that releases the slot once it has been exhausted or closed.
+     */
+    private static final class ReleasingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        ReleasingBody(ResponseBody delegate, Runnable release) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read;
+                    try {
+                        read = super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        release.run();
+                        throw e;
+                    }
+                    if (read == -1) {
+                        release.run();
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    release.run();
+                    super.close();
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    /**
+     * State of one host and model at the time of the snapshot.
+     */
+    public static final class Stats {
+        private final String host;
+        private final String model;
+        private final int limit;
+        private final int inFlight;
+        private final int queued;
+        private final long minRtt;
+        private final long lastRtt;
+        private final long accepted;
+        private final long shed;
+        private final long drops;
+
+        private Stats(String host, String model, int limit, int inFlight, int queued, long minRtt, long lastRtt,
+                      long accepted, long shed, long drops) {
+            this.host = host;
+            this.model = model;
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queued = queued;
+            this.minRtt = minRtt;
+            this.lastRtt = lastRtt;
+            this.accepted = accepted;
+            this.shed = shed;
+            this.drops = drops;
+        }
+
+        /** @return The origin, as scheme://host:port */
+        public String getHost() {
+            return host;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        /** @return The current concurrency limit */
+        public int getLimit() {
+            return limit;
+        }
+
+        /** @return Calls holding a slot */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /** @return Calls waiting for a slot */
+        public int getQueued() {
+            return queued;
+        }
+
+        /** @return The lowest latency to response headers in the current probe interval, in nanoseconds */
+        public long getMinRtt() {
+            return minRtt;
+        }
+
+        /** @return The latest latency to response headers, in nanoseconds */
+        public long getLastRtt() {
+            return lastRtt;
+        }
+
+        /** @return Calls admitted */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /** @return Calls rejected without reaching the server */
+        public long getShed() {
+            return shed;
+        }
+
+        /** @return Timeouts and overload responses that cut the limit */
+        public long getDrops() {
+            return drops;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: limit=%d inFlight=%d queued=%d minRtt=%dms accepted=%d shed=%d drops=%d",
+                    host, model, limit, inFlight, queued, TimeUnit.NANOSECONDS.toMillis(minRtt), accepted, shed,
+                    drops);
+        }
+    }
+}
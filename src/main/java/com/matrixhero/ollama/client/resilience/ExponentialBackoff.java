@@ -0,0 +1,82 @@
+package com.matrixhero.ollama.client.resilience;
+
+import com.matrixhero.ollama.client.exception.CircuitOpenException;
+import com.matrixhero.ollama.client.exception.ConcurrencyLimitException;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy with exponential backoff and full jitter: the n-th retry waits a random time between
+ * zero and {@code min(maxDelay, initialDelay * multiplier^(n-1))}, which spreads retries from many
+ * clients instead of synchronising them.
+ * <p>
+ * Each operation has its own attempt budget. By default idempotent operations are retried:
+ * {@code embed} and model listing get 3 attempts and {@code generate} 2. {@code chat} gets a single
+ * attempt, since a chat call may have run agents before reaching the model.
+ * <p>
+ * I/O errors and timeouts are retried, as are the statuses 429, 502, 503 and 504. A call rejected by
+ * an open circuit breaker or shed by an {@link AdaptiveConcurrencyLimiter} is not retried here; a
+ * {@code ClusterClient} fails it over instead.
+ */
+public class ExponentialBackoff implements RetryPolicy {
+    private final Map<Operation, Integer> maxAttempts = new EnumMap<>(Operation.class);
+    private long initialDelayMillis = 100;
+    private long maxDelayMillis = 5000;
+    private double multiplier = 2.0;
+
+    public ExponentialBackoff() {
+        maxAttempts.put(Operation.GENERATE, 2);
+        maxAttempts.put(Operation.CHAT, 1);
+        maxAttempts.put(Operation.EMBED, 3);
+        maxAttempts.put(Operation.LIST, 3);
+        maxAttempts.put(Operation.OTHER, 1);
+    }
+
+    /**
+     * @param initialDelayMillis Upper bound of the first retry delay (default 100 ms)
+     * @param maxDelayMillis Cap on the delay bound (default 5 s)
+     * @param multiplier Growth of the bound per retry (default 2)
+     * @return This policy for method chaining
+     */
+    public ExponentialBackoff withDelays(long initialDelayMillis, long maxDelayMillis, double multiplier) {
+        if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis || multiplier < 1.0) {
+            throw new IllegalArgumentException("Invalid backoff delays");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * @param operation The operation
+     * @param attempts Total attempts, including the first; 1 disables retries
+     * @return This policy for method chaining
+     */
+    public ExponentialBackoff withMaxAttempts(Operation operation, int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        maxAttempts.put(operation, attempts);
+        return this;
+    }
+
+    @Override
+    public long retryDelayMillis(Operation operation, int attempts, IOException error, int statusCode) {
+        if (attempts >= maxAttempts.get(operation) || !isRetryable(error, statusCode)) {
+            return -1;
+        }
+        double bound = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, attempts - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * bound);
+    }
+
+    protected boolean isRetryable(IOException error, int statusCode) {
+        if (error != null) {
+            return !(error instanceof CircuitOpenException || error instanceof ConcurrencyLimitException);
+        }
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+}
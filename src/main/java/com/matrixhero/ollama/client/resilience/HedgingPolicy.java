@@ -0,0 +1,223 @@
+package com.matrixhero.ollama.client.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Hedged requests: when a call has not answered within the recent p95 latency, a duplicate is sent
+ * and whichever answers first wins; the other is cancelled.
+ * <p>
+ * The hedge delay follows the observed latency percentile of successful attempts, clamped to
+ * {@link #withDelayBounds(long, long, TimeUnit) bounds}; no hedges are sent until the window has
+ * enough samples. Hedges are also capped at a share of all calls, so a slow server cannot double the
+ * load on the cluster. For non-streaming Ollama calls the response headers arrive together with the
+ * body, so the delay is measured to the complete response.
+ * <p>
+ * Only idempotent calls should be hedged. This class is thread-safe.
+ */
+@Slf4j
+public class HedgingPolicy {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ollama-hedging-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LatencyTracker latencies;
+    private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    private long maxDelayNanos = TimeUnit.SECONDS.toNanos(30);
+    private double maxHedgeRatio = 0.1;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * Creates a policy that hedges at the p95 of the last 256 successful attempts.
+     */
+    public HedgingPolicy() {
+        this(0.95, 256);
+    }
+
+    /**
+     * @param percentile The latency percentile, between 0 and 1, after which a hedge is sent
+     * @param window The number of recent attempts the percentile is computed over
+     */
+    public HedgingPolicy(double percentile, int window) {
+        if (percentile <= 0 || percentile > 1 || window < 16) {
+            throw new IllegalArgumentException("Percentile must be in (0, 1] and the window at least 16");
+        }
+        this.latencies = new LatencyTracker(window, percentile);
+    }
+
+    /**
+     * @param min Shortest hedge delay (default 50 ms)
+     * @param max Longest hedge delay (default 30 s)
+     * @param unit The unit of both values
+     * @return This policy for method chaining
+     */
+    public HedgingPolicy withDelayBounds(long min, long max, TimeUnit unit) {
+        this.minDelayNanos = unit.toNanos(min);
+        this.maxDelayNanos = unit.toNanos(max);
+        return this;
+    }
+
+    /**
+     * @param ratio Largest share of calls that may be hedged (default 0.1)
+     * @return This policy for method chaining
+     */
+    public HedgingPolicy withMaxHedgeRatio(double ratio) {
+        this.maxHedgeRatio = ratio;
+        return this;
+    }
+
+    /**
+     * @return The current hedge delay in milliseconds, or -1 while there are too few samples
+     */
+    public long getDelayMillis() {
+        long delay = delayNanos();
+        return delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+    }
+
+    private long delayNanos() {
+        long percentile = latencies.percentileNanos();
+        if (percentile < 0) {
+            return -1;
+        }
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, percentile));
+    }
+
+    /**
+     * Runs a call, hedging it once if it is slow.
+     *
+     * @param attempt Starts attempt 0 (the primary) or 1 (the hedge); cancelling its future must cancel the call
+     * @return A future completed by the first attempt to succeed, or by the last failure;
+     * cancelling it cancels every attempt
+     */
+    public <T> CompletableFuture<T> hedge(IntFunction<CompletableFuture<T>> attempt) {
+        calls.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicInteger winner = new AtomicInteger(-1);
+        CompletableFuture<T> primary = start(attempt, 0, result, pending, winner);
+
+        long delay = delayNanos();
+        if (delay < 0) {
+            return result;
+        }
+        ScheduledFuture<?> timer = TIMER.schedule(() -> {
+            if (result.isDone() || hedges.sum() >= maxHedgeRatio * calls.sum()) {
+                return;
+            }
+            pending.incrementAndGet();
+            hedges.increment();
+            log.debug("Hedging call after {} ms", TimeUnit.NANOSECONDS.toMillis(delay));
+            CompletableFuture<T> hedge = start(attempt, 1, result, pending, winner);
+            result.whenComplete((value, error) -> cancelLoser(hedge, result));
+        }, delay, TimeUnit.NANOSECONDS);
+        result.whenComplete((value, error) -> {
+            timer.cancel(false);
+            cancelLoser(primary, result);
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> start(IntFunction<CompletableFuture<T>> attempt, int index,
+                                           CompletableFuture<T> result, AtomicInteger pending, AtomicInteger winner) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.apply(index);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                latencies.record(System.nanoTime() - start);
+                // Count the win before completing, so callers woken by the result already see it
+                if (winner.compareAndSet(-1, index)) {
+                    if (index > 0) {
+                        hedgeWins.increment();
+                    }
+                    result.complete(value);
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    private void cancelLoser(CompletableFuture<?> attempt, CompletableFuture<?> result) {
+        if (!attempt.isDone() || result.isCancelled()) {
+            if (attempt.cancel(true)) {
+                cancelled.increment();
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the hedging counters
+     */
+    public Stats getStats() {
+        return new Stats(calls.sum(), hedges.sum(), hedgeWins.sum(), cancelled.sum());
+    }
+
+    /**
+     * Hedging counters since the policy was created.
+     * {@code hedges / calls} is the extra load hedging adds.
+     */
+    public static final class Stats {
+        private final long calls;
+        private final long hedges;
+        private final long hedgeWins;
+        private final long cancelled;
+
+        private Stats(long calls, long hedges, long hedgeWins, long cancelled) {
+            this.calls = calls;
+            this.hedges = hedges;
+            this.hedgeWins = hedgeWins;
+            this.cancelled = cancelled;
+        }
+
+        /** @return Calls run through the policy */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** @return Duplicate attempts sent */
+        public long getHedges() {
+            return hedges;
+        }
+
+        /** @return Calls answered by the hedge rather than the primary */
+        public long getHedgeWins() {
+            return hedgeWins;
+        }
+
+        /** @return Losing attempts cancelled */
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /** @return The share of calls that were hedged */
+        public double getHedgeRatio() {
+            return calls == 0 ? 0.0 : hedges / (double) calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d hedges=%d hedgeWins=%d cancelled=%d", calls, hedges, hedgeWins, cancelled);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.matrixhero.ollama.client.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Percentile estimate over a sliding window of the most recent latencies.
+ * The percentile is recomputed every few samples rather than on every read.
+ */
+final class LatencyTracker {
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final double percentile;
+    private int position;
+    private int count;
+    private int sinceRecompute;
+    private volatile long cached = -1;
+
+    LatencyTracker(int window, double percentile) {
+        this.samples = new long[window];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            cached = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+        }
+    }
+
+    /**
+     * @return The percentile in nanoseconds, or -1 until enough samples have been seen
+     */
+    long percentileNanos() {
+        return cached;
+    }
+}
@@ -0,0 +1,36 @@
+package com.matrixhero.ollama.client.resilience;
+
+/**
+ * The kinds of calls the client makes, as far as retry and hedging decisions are concerned.
+ */
+public enum Operation {
+    GENERATE,
+    CHAT,
+    EMBED,
+    LIST,
+    OTHER;
+
+    /**
+     * Classifies a request by its API path.
+     *
+     * @param path The encoded URL path, such as {@code /api/generate}
+     * @return The operation
+     */
+    public static Operation fromPath(String path) {
+        switch (path) {
+            case "/api/generate":
+                return GENERATE;
+            case "/api/chat":
+                return CHAT;
+            case "/api/embed":
+            case "/api/embeddings":
+                return EMBED;
+            case "/api/tags":
+            case "/api/ps":
+            case "/api/version":
+                return LIST;
+            default:
+                return OTHER;
+        }
+    }
+}
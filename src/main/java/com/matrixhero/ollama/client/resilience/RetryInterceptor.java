@@ -0,0 +1,307 @@
+package com.matrixhero.ollama.client.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OkHttp application interceptor that sends failed calls again according to a {@link RetryPolicy}.
+ * <p>
+ * A call is retried only until its response headers arrive, so a stream that fails halfway is never
+ * replayed. Backoff delays are slept on the calling thread. Asynchronous calls created with
+ * {@link #newCall} are instead enqueued afresh for every attempt, with the delays waited out on a
+ * timer, so a call waiting for its next attempt holds neither a dispatcher thread nor a slot under the
+ * dispatcher's concurrency limits. Installed by {@code OllamaClient.builder().retryPolicy(policy)}.
+ */
+@Slf4j
+public class RetryInterceptor implements Interceptor {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ollama-retry-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final RetryPolicy policy;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public RetryInterceptor(RetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Creates a call that is retried like any other when executed, but whose attempts are each
+     * enqueued on their own when it is enqueued, with the backoff delays in between waited out on a timer.
+     *
+     * @param factory Creates the call for every attempt, usually the HTTP client this interceptor is installed in
+     * @param request The request
+     * @return A call that has not been executed yet
+     */
+    public Call newCall(Call.Factory factory, Request request) {
+        return new RetryingCall(factory, request);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (chain.request().tag(Scheduled.class) != null) {
+            // One attempt of a RetryingCall, which decides on retries itself
+            return chain.proceed(chain.request());
+        }
+        Operation operation = Operation.fromPath(chain.request().url().encodedPath());
+        calls.increment();
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            Response response = null;
+            IOException error = null;
+            try {
+                response = chain.proceed(chain.request());
+            } catch (IOException e) {
+                error = e;
+            }
+            if (response != null && response.isSuccessful()) {
+                if (attempts > 1) {
+                    recovered.increment();
+                }
+                return response;
+            }
+
+            int statusCode = response != null ? response.code() : 0;
+            long delay = chain.call().isCanceled() ? -1
+                    : policy.retryDelayMillis(operation, attempts, error, statusCode);
+            if (delay < 0) {
+                if (attempts > 1) {
+                    exhausted.increment();
+                }
+                if (error != null) {
+                    throw error;
+                }
+                return response;
+            }
+
+            if (response != null) {
+                response.close();
+            }
+            retries.increment();
+            log.debug("Retrying {} {} in {} ms after attempt {} failed: {}", operation, chain.request().url(),
+                    delay, attempts, error != null ? error.toString() : "HTTP " + statusCode);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+        }
+    }
+
+    /**
+     * Marks the attempts of a {@link RetryingCall}.
+     */
+    private static final class Scheduled {
+    }
+
+    /**
+     * Asynchronous call sent as a sequence of attempts, each a fresh call enqueued on the dispatcher.
+     */
+    private final class RetryingCall implements Call, Callback {
+        private final Call.Factory factory;
+        private final Request request;
+        private final Operation operation;
+        private final AtomicBoolean executed = new AtomicBoolean();
+        private volatile boolean canceled;
+        private volatile Call current;
+        private volatile ScheduledFuture<?> pending;
+        private Callback callback;
+        private int attempts;
+
+        RetryingCall(Call.Factory factory, Request request) {
+            this.factory = factory;
+            this.request = request;
+            this.operation = Operation.fromPath(request.url().encodedPath());
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            // Retried by the interceptor on the calling thread
+            Call call = factory.newCall(request);
+            current = call;
+            if (canceled) {
+                call.cancel();
+            }
+            return call.execute();
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+            callback = responseCallback;
+            calls.increment();
+            send();
+        }
+
+        private void send() {
+            attempts++;
+            Call call = factory.newCall(request.newBuilder().tag(Scheduled.class, new Scheduled()).build());
+            current = call;
+            if (canceled) {
+                call.cancel();
+            }
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (response.isSuccessful()) {
+                if (attempts > 1) {
+                    recovered.increment();
+                }
+                callback.onResponse(this, response);
+                return;
+            }
+            if (!retry(null, response.code())) {
+                callback.onResponse(this, response);
+                return;
+            }
+            response.close();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (!retry(e, 0)) {
+                callback.onFailure(this, e);
+            }
+        }
+
+        /**
+         * @return Whether the next attempt was scheduled
+         */
+        private boolean retry(IOException error, int statusCode) {
+            long delay = canceled ? -1 : policy.retryDelayMillis(operation, attempts, error, statusCode);
+            if (delay < 0) {
+                if (attempts > 1) {
+                    exhausted.increment();
+                }
+                return false;
+            }
+            retries.increment();
+            log.debug("Retrying {} {} in {} ms after attempt {} failed: {}", operation, request.url(),
+                    delay, attempts, error != null ? error.toString() : "HTTP " + statusCode);
+            pending = TIMER.schedule(() -> {
+                if (canceled) {
+                    callback.onFailure(this, new IOException("Canceled"));
+                } else {
+                    send();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Call call = current;
+            if (call != null) {
+                call.cancel();
+            }
+            ScheduledFuture<?> next = pending;
+            if (next != null && next.cancel(false)) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed.get();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            Call call = current;
+            return call != null ? call.timeout() : Timeout.NONE;
+        }
+
+        @Override
+        public Call clone() {
+            return new RetryingCall(factory, request);
+        }
+    }
+
+    /**
+     * @return A snapshot of the retry counters
+     */
+    public Stats getStats() {
+        return new Stats(calls.sum(), retries.sum(), recovered.sum(), exhausted.sum());
+    }
+
+    /**
+     * Retry counters since the interceptor was created.
+     */
+    public static final class Stats {
+        private final long calls;
+        private final long retries;
+        private final long recovered;
+        private final long exhausted;
+
+        private Stats(long calls, long retries, long recovered, long exhausted) {
+            this.calls = calls;
+            this.retries = retries;
+            this.recovered = recovered;
+            this.exhausted = exhausted;
+        }
+
+        /** @return Calls that went through the interceptor */
+        public long getCalls() {
+            return calls;
+        }
+
+        /** @return Attempts beyond the first, over all calls */
+        public long getRetries() {
+            return retries;
+        }
+
+        /** @return Calls that succeeded after at least one retry */
+        public long getRecovered() {
+            return recovered;
+        }
+
+        /** @return Calls that still failed after at least one retry */
+        public long getExhausted() {
+            return exhausted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d retries=%d recovered=%d exhausted=%d", calls, retries, recovered, exhausted);
+        }
+    }
+}
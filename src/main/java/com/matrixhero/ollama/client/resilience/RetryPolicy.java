@@ -0,0 +1,23 @@
+package com.matrixhero.ollama.client.resilience;
+
+import java.io.IOException;
+
+/**
+ * Decides whether and when a failed call is sent again.
+ *
+ * @see ExponentialBackoff
+ */
+@FunctionalInterface
+public interface RetryPolicy {
+    /** A policy that never retries */
+    RetryPolicy NONE = (operation, attempts, error, statusCode) -> -1;
+
+    /**
+     * @param operation The kind of call that failed
+     * @param attempts The number of attempts made so far, 1 after the first failure
+     * @param error The I/O error of the last attempt, or null if the server answered
+     * @param statusCode The HTTP status of the last attempt, or 0 if there was no response
+     * @return The delay in milliseconds before the next attempt, or a negative value to give up
+     */
+    long retryDelayMillis(Operation operation, int attempts, IOException error, int statusCode);
+}
@@ -0,0 +1,14 @@
+package com.matrixhero.ollama.client.schedule;
+
+/**
+ * Priority class of a call submitted to a {@link RequestScheduler}, from most to least urgent.
+ * A waiting call of a higher class is always dispatched before any call of a lower class.
+ */
+public enum Priority {
+    /** A user is waiting for the answer, e.g. a chat session */
+    INTERACTIVE,
+    /** Ordinary application traffic */
+    STANDARD,
+    /** Bulk jobs such as nightly generation or embedding runs, which only need throughput */
+    BATCH
+}
@@ -0,0 +1,805 @@
+package com.matrixhero.ollama.client.schedule;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Client-side scheduler in front of an {@link OllamaClient} that keeps interactive traffic responsive
+ * while bulk jobs share the same server.
+ * <p>
+ * At most {@code maxConcurrent} calls run at once, which should match the parallel slots of the
+ * server ({@code OLLAMA_NUM_PARALLEL}) so that ordering is decided here rather than in the server's
+ * FIFO queue. Waiting calls are dispatched by {@link Priority} class first. Within a class, tenants
+ * (users, sessions or jobs) share the slots by weighted fair queueing: with start-time fair queueing
+ * every call is tagged with a virtual start time that advances by {@code 1 / weight} per call of its
+ * tenant, so a tenant with a burst of ten thousand calls waits behind its own burst, not in front of
+ * everybody else.
+ * <p>
+ * With {@link #withPreemption(Priority...)}, a call that finds every slot busy may cancel a running
+ * call of a lower, preemptible class, which goes back to the queue with its original tag and runs
+ * again later. Non-streaming calls are simply sent again, invisibly to the caller except for the
+ * delay; {@link #chatAsync} calls are the exception and are never preempted once running, since the
+ * client appends the reply to the caller's request as it arrives. A chat stream continues where it stopped: the text received so far is sent back as a
+ * trailing assistant message, which the server continues, so the caller sees one uninterrupted
+ * stream. Chat streams that produced tool calls, and generate streams that already delivered a
+ * frame, cannot be resumed and are therefore never preempted.
+ * <p>
+ * Calls queue here before reaching the client's own dispatcher, retry and limiter stages. Waiting
+ * times per class are available from {@link #getStats(Priority)}.
+ * <p>
+ * This class is thread-safe.
+ */
+@Slf4j
+public class RequestScheduler {
+    private final OllamaClient client;
+    private final int maxConcurrent;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, ClassQueue> queues = new EnumMap<>(Priority.class);
+    private final Set<Ticket> running = new HashSet<>();
+    private final Map<String, Double> weights = new ConcurrentHashMap<>();
+    private final Set<Priority> preemptible = EnumSet.noneOf(Priority.class);
+    private long sequence;
+
+    /**
+     * @param client The client that makes the calls
+     * @param maxConcurrent Calls allowed to run at once, usually the server's parallel slots
+     */
+    public RequestScheduler(OllamaClient client, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.client = client;
+        this.maxConcurrent = maxConcurrent;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ClassQueue());
+        }
+    }
+
+    /**
+     * @param tenant The tenant
+     * @param weight Its share relative to other tenants of the same class; 1 by default
+     * @return This scheduler for method chaining
+     */
+    public RequestScheduler withTenantWeight(String tenant, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        weights.put(tenant, weight);
+        return this;
+    }
+
+    /**
+     * Lets waiting calls cancel and requeue running calls of lower classes.
+     *
+     * @param classes The classes whose calls may be preempted, e.g. {@link Priority#BATCH}; none to disable
+     * @return This scheduler for method chaining
+     */
+    public RequestScheduler withPreemption(Priority... classes) {
+        lock.lock();
+        try {
+            preemptible.clear();
+            preemptible.addAll(Arrays.asList(classes));
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#generate}.
+     */
+    public GenerateResponse generate(Priority priority, String tenant, GenerateRequest request) throws IOException {
+        return await(generateAsync(priority, tenant, request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#generateAsync}.
+     */
+    public CompletableFuture<GenerateResponse> generateAsync(Priority priority, String tenant, GenerateRequest request) {
+        return submit(priority, tenant, c -> c.generateAsync(request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#generateStream}. The calling thread waits for a slot; the slot is
+     * held until the stream is exhausted or closed.
+     */
+    public Stream<GenerateResponse> generateStream(Priority priority, String tenant, GenerateRequest request)
+            throws IOException {
+        return new StreamTicket<GenerateResponse>(priority, tenant) {
+            @Override
+            Stream<GenerateResponse> open(Consumer<Call> onCall) throws IOException {
+                return client.generateStream(request, onCall);
+            }
+
+            @Override
+            boolean onFrame(GenerateResponse frame) {
+                return Boolean.TRUE.equals(frame.getDone());
+            }
+
+            @Override
+            boolean canResume() {
+                return delivered == 0;
+            }
+        }.stream();
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#chat}.
+     */
+    public ChatResponse chat(Priority priority, String tenant, ChatRequest request) throws IOException {
+        return await(chatAsync(priority, tenant, request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#chatAsync}.
+     */
+    public CompletableFuture<ChatResponse> chatAsync(Priority priority, String tenant, ChatRequest request) {
+        // Cancelling a chat whose reply was just appended to the request would send the reply back as history
+        return submit(priority, tenant, c -> c.chatAsync(request), false);
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#chatStream}. The calling thread waits for a slot; the slot is
+     * held until the stream is exhausted or closed.
+     */
+    public Stream<ChatResponse> chatStream(Priority priority, String tenant, ChatRequest request) throws IOException {
+        return new StreamTicket<ChatResponse>(priority, tenant) {
+            private final StringBuilder content = new StringBuilder();
+            private volatile boolean toolCalls;
+
+            @Override
+            Stream<ChatResponse> open(Consumer<Call> onCall) throws IOException {
+                return client.chatStream(content.length() == 0 ? request : continuation(request, content.toString()),
+                        onCall);
+            }
+
+            @Override
+            boolean onFrame(ChatResponse frame) {
+                Message message = frame.getMessage();
+                if (message != null) {
+                    if (message.getContent() != null) {
+                        content.append(message.getContent());
+                    }
+                    if (message.getToolCalls() != null && !message.getToolCalls().isEmpty()) {
+                        toolCalls = true;
+                    }
+                }
+                return Boolean.TRUE.equals(frame.getDone());
+            }
+
+            @Override
+            boolean canResume() {
+                return !toolCalls;
+            }
+        }.stream();
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#embed}.
+     */
+    public EmbedResponse embed(Priority priority, String tenant, EmbedRequest request) throws IOException {
+        return await(embedAsync(priority, tenant, request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#embedAsync}.
+     */
+    public CompletableFuture<EmbedResponse> embedAsync(Priority priority, String tenant, EmbedRequest request) {
+        return submit(priority, tenant, c -> c.embedAsync(request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#embedBatch}.
+     */
+    public EmbedBatchResponse embedBatch(Priority priority, String tenant, EmbedBatchRequest request)
+            throws IOException {
+        return await(embedBatchAsync(priority, tenant, request));
+    }
+
+    /**
+     * Scheduled {@link OllamaClient#embedBatchAsync}.
+     */
+    public CompletableFuture<EmbedBatchResponse> embedBatchAsync(Priority priority, String tenant,
+                                                                 EmbedBatchRequest request) {
+        return submit(priority, tenant, c -> c.embedBatchAsync(request));
+    }
+
+    /**
+     * Schedules any asynchronous call on the client, such as {@link OllamaClient#listAsync()}.
+     * If the call is preempted its future is cancelled and the function is applied again later, so it
+     * must be safe to repeat. Cancelling the returned future removes a waiting call from the queue or
+     * cancels a running one.
+     *
+     * @param priority The priority class
+     * @param tenant The tenant the call is accounted to, or null for a shared default
+     * @param call Starts the call on the client
+     * @return A future completed with the call's result
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, String tenant,
+                                           Function<OllamaClient, CompletableFuture<T>> call) {
+        return submit(priority, tenant, call, true);
+    }
+
+    private <T> CompletableFuture<T> submit(Priority priority, String tenant,
+                                            Function<OllamaClient, CompletableFuture<T>> call, boolean repeatable) {
+        CallTicket<T> ticket = new CallTicket<>(priority, tenant, call, repeatable);
+        ticket.result.whenComplete((value, error) -> {
+            if (ticket.result.isCancelled()) {
+                ticket.cancel();
+            }
+        });
+        enqueue(ticket);
+        return ticket.result;
+    }
+
+    /**
+     * @param priority The class
+     * @return A snapshot of the queue and wait times of the class
+     */
+    public Stats getStats(Priority priority) {
+        lock.lock();
+        try {
+            ClassQueue queue = queues.get(priority);
+            int active = 0;
+            for (Ticket ticket : running) {
+                if (ticket.priority == priority) {
+                    active++;
+                }
+            }
+            return new Stats(priority, queue.tickets.size(), active, queue.dispatched, queue.preempted,
+                    queue.totalWaitNanos, queue.maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return A snapshot of every class, from highest to lowest priority
+     */
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        for (Priority priority : Priority.values()) {
+            stats.add(getStats(priority));
+        }
+        return stats;
+    }
+
+    private void enqueue(Ticket ticket) {
+        List<Ticket> granted;
+        Ticket victim = null;
+        lock.lock();
+        try {
+            ticket.sequence = sequence++;
+            queues.get(ticket.priority).add(ticket, weights.getOrDefault(ticket.tenant, 1.0));
+            granted = dispatch();
+            if (granted.isEmpty()) {
+                victim = selectVictim(ticket.priority);
+            }
+        } finally {
+            lock.unlock();
+        }
+        start(granted);
+        if (victim != null) {
+            log.debug("Preempting a {} call of {} for a waiting {} call", victim.priority, victim.tenant, ticket.priority);
+            victim.preempt();
+        }
+    }
+
+    /**
+     * Gives up the slot of a running ticket, or its place in the queue.
+     *
+     * @param requeue Whether the ticket was preempted and waits for another slot
+     */
+    private void release(Ticket ticket, boolean requeue) {
+        List<Ticket> granted;
+        lock.lock();
+        try {
+            if (!running.remove(ticket)) {
+                queues.get(ticket.priority).tickets.remove(ticket);
+                return;
+            }
+            if (requeue) {
+                ticket.preempting = false;
+                ClassQueue queue = queues.get(ticket.priority);
+                queue.preempted++;
+                queue.add(ticket, 0);
+            }
+            granted = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        start(granted);
+    }
+
+    /**
+     * Moves waiting tickets into free slots, highest class first. Called with the lock held.
+     */
+    private List<Ticket> dispatch() {
+        List<Ticket> granted = new ArrayList<>();
+        long now = System.nanoTime();
+        outer:
+        while (running.size() < maxConcurrent) {
+            for (ClassQueue queue : queues.values()) {
+                Ticket ticket = queue.poll(now);
+                if (ticket != null) {
+                    running.add(ticket);
+                    granted.add(ticket);
+                    continue outer;
+                }
+            }
+            break;
+        }
+        return granted;
+    }
+
+    private static void start(List<Ticket> granted) {
+        for (Ticket ticket : granted) {
+            ticket.start();
+        }
+    }
+
+    /**
+     * Picks the running call to preempt for a waiting call: one of the lowest preemptible class below
+     * the waiting one, the most recently started so that the least work is lost. Called with the lock held.
+     */
+    private Ticket selectVictim(Priority waiting) {
+        Ticket victim = null;
+        for (Ticket ticket : running) {
+            if (ticket.priority.compareTo(waiting) <= 0 || !preemptible.contains(ticket.priority)
+                    || ticket.preempting || !ticket.isPreemptible()) {
+                continue;
+            }
+            if (victim == null || ticket.priority.compareTo(victim.priority) > 0
+                    || (ticket.priority == victim.priority && ticket.startedAt > victim.startedAt)) {
+                victim = ticket;
+            }
+        }
+        if (victim != null) {
+            victim.preempting = true;
+        }
+        return victim;
+    }
+
+    private static ChatRequest continuation(ChatRequest request, String partial) {
+        ChatRequest copy = new ChatRequest();
+        copy.setModel(request.getModel());
+        copy.setMessages(new ArrayList<>(request.getMessages()));
+        copy.getMessages().add(new Message(Message.Role.ASSISTANT, partial));
+        copy.setSystem(request.getSystem());
+        copy.setTools(request.getTools());
+        copy.setOptions(request.getOptions());
+        copy.setFormat(request.getFormat());
+        copy.setKeepAlive(request.getKeepAlive());
+        // Agents were consulted on the first attempt
+        copy.setUseAgents(false);
+        return copy;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Waiting tickets of one class, ordered by start-time fair queueing across tenants.
+     */
+    private static final class ClassQueue {
+        private static final int PRUNE_THRESHOLD = 1024;
+
+        private final PriorityQueue<Ticket> tickets = new PriorityQueue<>(
+                Comparator.<Ticket>comparingDouble(t -> t.startTag).thenComparingLong(t -> t.sequence));
+        /** Virtual finish time of each tenant's latest call */
+        private final Map<String, Double> finishTags = new HashMap<>();
+        /** Start tag of the latest dispatched call */
+        private double virtualTime;
+        private long dispatched;
+        private long preempted;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        /**
+         * @param weight The tenant's weight, or 0 to keep the tag of a requeued ticket
+         */
+        void add(Ticket ticket, double weight) {
+            if (weight > 0) {
+                double start = Math.max(virtualTime, finishTags.getOrDefault(ticket.tenant, 0.0));
+                ticket.startTag = start;
+                finishTags.put(ticket.tenant, start + 1.0 / weight);
+            }
+            ticket.enqueuedAt = System.nanoTime();
+            tickets.add(ticket);
+        }
+
+        Ticket poll(long now) {
+            Ticket ticket = tickets.poll();
+            if (ticket == null) {
+                return null;
+            }
+            virtualTime = Math.max(virtualTime, ticket.startTag);
+            if (finishTags.size() > PRUNE_THRESHOLD) {
+                // Tenants whose tag the virtual clock has passed start afresh anyway
+                finishTags.values().removeIf(tag -> tag <= virtualTime);
+            }
+            long wait = now - ticket.enqueuedAt;
+            dispatched++;
+            totalWaitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+            ticket.startedAt = now;
+            return ticket;
+        }
+    }
+
+    /**
+     * A call waiting for or holding a slot.
+     */
+    private abstract class Ticket {
+        final Priority priority;
+        final String tenant;
+        long sequence;
+        double startTag;
+        long enqueuedAt;
+        long startedAt;
+        volatile boolean preempting;
+
+        Ticket(Priority priority, String tenant) {
+            this.priority = priority;
+            this.tenant = tenant == null ? "" : tenant;
+        }
+
+        /** The ticket was given a slot; called without the lock */
+        abstract void start();
+
+        /** Whether the call could be restarted; called with the lock held */
+        abstract boolean isPreemptible();
+
+        /** Stops the running call so that it releases its slot with requeue; called without the lock */
+        abstract void preempt();
+    }
+
+    private final class CallTicket<T> extends Ticket {
+        private final Function<OllamaClient, CompletableFuture<T>> call;
+        /** Whether the call may be cancelled and applied again */
+        private final boolean repeatable;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile CompletableFuture<T> attempt;
+
+        CallTicket(Priority priority, String tenant, Function<OllamaClient, CompletableFuture<T>> call,
+                   boolean repeatable) {
+            super(priority, tenant);
+            this.call = call;
+            this.repeatable = repeatable;
+        }
+
+        @Override
+        void start() {
+            if (result.isDone()) {
+                release(this, false);
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = call.apply(client);
+            } catch (RuntimeException e) {
+                release(this, false);
+                result.completeExceptionally(e);
+                return;
+            }
+            attempt = future;
+            // Release before completing the caller's future, so the slot is free by the time the caller sees the result
+            future.whenComplete((value, error) -> {
+                if (error instanceof CancellationException && preempting && !result.isDone()) {
+                    release(this, true);
+                } else {
+                    release(this, false);
+                    if (error == null) {
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                }
+            });
+            if (preempting || result.isCancelled()) {
+                future.cancel(true);
+            }
+        }
+
+        @Override
+        boolean isPreemptible() {
+            return repeatable;
+        }
+
+        @Override
+        void preempt() {
+            CompletableFuture<T> future = attempt;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        void cancel() {
+            CompletableFuture<T> future = attempt;
+            if (future != null) {
+                future.cancel(true);
+            } else {
+                release(this, false);
+            }
+        }
+    }
+
+    /**
+     * A stream call, driven by the thread that consumes the stream.
+     */
+    private abstract class StreamTicket<T> extends Ticket implements Iterator<T> {
+        private final Semaphore granted = new Semaphore(0);
+        /** Read and closed by the consuming thread only */
+        private volatile Stream<T> current;
+        /** The HTTP call of the current attempt, cancelled by a preempting thread */
+        private volatile Call call;
+        private Iterator<T> frames;
+        private T next;
+        private volatile boolean done;
+        private boolean finished;
+        volatile int delivered;
+
+        StreamTicket(Priority priority, String tenant) {
+            super(priority, tenant);
+        }
+
+        /** Sends the call, continuing from the frames delivered so far */
+        abstract Stream<T> open(Consumer<Call> onCall) throws IOException;
+
+        /** Records a delivered frame and tells whether it is the last one */
+        abstract boolean onFrame(T frame);
+
+        /** Whether the call can be sent again without the caller noticing */
+        abstract boolean canResume();
+
+        Stream<T> stream() throws IOException {
+            enqueue(this);
+            attach();
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+        }
+
+        @Override
+        void start() {
+            granted.release();
+        }
+
+        @Override
+        boolean isPreemptible() {
+            return !done && canResume();
+        }
+
+        @Override
+        void preempt() {
+            // Closing the stream here would race with the consuming thread reading it; a cancelled call
+            // makes the blocked read fail instead, and the consuming thread closes the stream and requeues
+            cancelCall();
+        }
+
+        private void cancelCall() {
+            Call running = call;
+            if (running != null) {
+                running.cancel();
+            }
+        }
+
+        /**
+         * Waits for a slot and opens the call in it.
+         */
+        private void attach() throws IOException {
+            while (true) {
+                try {
+                    granted.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    finished = true;
+                    release(this, false);
+                    throw new InterruptedIOException("Interrupted while waiting for a slot");
+                }
+                try {
+                    current = open(opened -> {
+                        call = opened;
+                        if (preempting) {
+                            // Preempted before the call existed
+                            opened.cancel();
+                        }
+                    });
+                } catch (IOException | RuntimeException e) {
+                    call = null;
+                    if (preempting && !done) {
+                        // Preempted while the call was being opened
+                        release(this, true);
+                        continue;
+                    }
+                    finished = true;
+                    release(this, false);
+                    throw e;
+                }
+                frames = current.iterator();
+                if (preempting) {
+                    // Preempted after the response arrived; the first read fails
+                    cancelCall();
+                }
+                return;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !finished) {
+                RuntimeException error = null;
+                try {
+                    if (frames.hasNext()) {
+                        next = frames.next();
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                if (preempting && !done) {
+                    resume();
+                    continue;
+                }
+                close();
+                if (error != null) {
+                    throw error;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T frame = next;
+            next = null;
+            delivered++;
+            if (onFrame(frame)) {
+                done = true;
+            }
+            return frame;
+        }
+
+        private void resume() {
+            current.close();
+            current = null;
+            call = null;
+            release(this, true);
+            try {
+                attach();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error resuming preempted stream", e);
+            }
+        }
+
+        void close() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            Stream<T> stream = current;
+            if (stream != null) {
+                stream.close();
+            }
+            release(this, false);
+        }
+    }
+
+    /**
+     * Queue and wait-time counters of one priority class since the scheduler was created.
+     */
+    public static final class Stats {
+        private final Priority priority;
+        private final int queued;
+        private final int running;
+        private final long dispatched;
+        private final long preempted;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        private Stats(Priority priority, int queued, int running, long dispatched, long preempted,
+                      long totalWaitNanos, long maxWaitNanos) {
+            this.priority = priority;
+            this.queued = queued;
+            this.running = running;
+            this.dispatched = dispatched;
+            this.preempted = preempted;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /** @return Calls waiting for a slot */
+        public int getQueued() {
+            return queued;
+        }
+
+        /** @return Calls holding a slot */
+        public int getRunning() {
+            return running;
+        }
+
+        /** @return Times a call of the class was given a slot, including after preemption */
+        public long getDispatched() {
+            return dispatched;
+        }
+
+        /** @return Calls of the class that were preempted and requeued */
+        public long getPreempted() {
+            return preempted;
+        }
+
+        /** @return Mean time from queueing to getting a slot */
+        public long getMeanWait(TimeUnit unit) {
+            return dispatched == 0 ? 0 : unit.convert(totalWaitNanos / dispatched, TimeUnit.NANOSECONDS);
+        }
+
+        /** @return Longest time from queueing to getting a slot */
+        public long getMaxWait(TimeUnit unit) {
+            return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: queued=%d running=%d dispatched=%d preempted=%d meanWait=%dms maxWait=%dms",
+                    priority, queued, running, dispatched, preempted, getMeanWait(TimeUnit.MILLISECONDS),
+                    getMaxWait(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.matrixhero.ollama.client.session;
+
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.Message;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the message history of one conversation within a token budget.
+ * <p>
+ * {@link com.matrixhero.ollama.client.OllamaClient#chat} appends every reply to the request's
+ * messages, so a long-lived conversation grows without bound and eventually overflows the model's
+ * context window. Calling {@link #apply(ChatRequest)} before each turn drops the oldest messages
+ * until the estimated prompt fits the budget. Messages with a pinned role (system and tool results
+ * by default) and the last few turns are never dropped; a turn starts at a user message. An assistant
+ * message with tool calls and the tool results that follow it are kept or dropped together, so that
+ * no result is left without the call it answers.
+ * <p>
+ * Estimates are cached per message instance and only recomputed when the message's content, images
+ * or tool calls are replaced, so each turn costs one estimate per new message rather than a recount
+ * of the whole history. Use one instance per conversation; it is not thread-safe.
+ */
+@Slf4j
+public class ChatHistory {
+    private final int maxTokens;
+    private TokenEstimator estimator = TokenEstimator.defaults();
+    private Set<Message.Role> pinnedRoles = EnumSet.of(Message.Role.SYSTEM, Message.Role.TOOL);
+    private int keepLastTurns = 2;
+
+    private Map<Message, Estimate> estimates = new IdentityHashMap<>();
+    private long estimated = 0;
+    private long dropped = 0;
+    private int lastTokens = 0;
+
+    /**
+     * @param maxTokens The token budget for the messages and system prompt of a request
+     */
+    public ChatHistory(int maxTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("maxTokens must be positive");
+        }
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Creates a history sized to a context window, leaving room for the reply.
+     * @param numCtx The context window size, as set in {@code Options.numCtx}
+     * @param replyTokens Tokens reserved for the model's reply
+     * @return The history
+     */
+    public static ChatHistory forContext(int numCtx, int replyTokens) {
+        return new ChatHistory(numCtx - replyTokens);
+    }
+
+    /**
+     * @param estimator The token estimator, {@link TokenEstimator#defaults()} by default
+     * @return This history for method chaining
+     */
+    public ChatHistory withEstimator(TokenEstimator estimator) {
+        this.estimator = estimator;
+        this.estimates = new IdentityHashMap<>();
+        return this;
+    }
+
+    /**
+     * @param roles Roles whose messages are never dropped; system and tool by default
+     * @return This history for method chaining
+     */
+    public ChatHistory withPinnedRoles(Message.Role... roles) {
+        this.pinnedRoles = roles.length == 0 ? EnumSet.noneOf(Message.Role.class) : EnumSet.of(roles[0], roles);
+        return this;
+    }
+
+    /**
+     * @param turns Number of most recent turns that are never dropped, 2 by default
+     * @return This history for method chaining
+     */
+    public ChatHistory withKeepLastTurns(int turns) {
+        this.keepLastTurns = turns;
+        return this;
+    }
+
+    /**
+     * Drops the oldest unpinned messages of the request until it fits the budget.
+     * @param request The request whose messages are trimmed in place
+     * @return The estimated number of tokens of the trimmed messages and system prompt
+     */
+    public int apply(ChatRequest request) {
+        List<Message> messages = request.getMessages();
+        Map<Message, Estimate> current = new IdentityHashMap<>(messages.size() * 2);
+        int[] tokens = new int[messages.size()];
+        long total = request.getSystem() == null ? 0 : estimator.estimate(new Message(Message.Role.SYSTEM, request.getSystem()));
+        for (int i = 0; i < tokens.length; i++) {
+            Message message = messages.get(i);
+            Estimate estimate = estimates.get(message);
+            if (estimate == null || !estimate.matches(message)) {
+                estimate = new Estimate(message, estimator.estimate(message));
+                estimated++;
+            }
+            current.put(message, estimate);
+            tokens[i] = estimate.tokens;
+            total += estimate.tokens;
+        }
+        // Forget messages that have left the history
+        estimates = current;
+
+        if (total > maxTokens) {
+            int protectedFrom = recentTurnsStart(messages);
+            List<Message> kept = new ArrayList<>(messages.size());
+            int removed = 0;
+            for (int i = 0; i < tokens.length; ) {
+                int end = groupEnd(messages, i);
+                boolean drop = total > maxTokens && i < protectedFrom && !isPinned(messages, i, end);
+                for (; i < end; i++) {
+                    Message message = messages.get(i);
+                    if (drop) {
+                        total -= tokens[i];
+                        estimates.remove(message);
+                        removed++;
+                    } else {
+                        kept.add(message);
+                    }
+                }
+            }
+            if (removed > 0) {
+                messages.clear();
+                messages.addAll(kept);
+                dropped += removed;
+            }
+            if (total > maxTokens) {
+                log.warn("Chat history of {} messages still needs ~{} tokens after trimming, budget is {}",
+                        messages.size(), total, maxTokens);
+            }
+        }
+        lastTokens = (int) Math.min(Integer.MAX_VALUE, total);
+        return lastTokens;
+    }
+
+    /**
+     * @return The end of the group starting at a message: past the tool results that follow an
+     *         assistant message with tool calls, otherwise just past the message
+     */
+    private static int groupEnd(List<Message> messages, int start) {
+        Message first = messages.get(start);
+        int end = start + 1;
+        if (first.getRole() == Message.Role.ASSISTANT && first.getToolCalls() != null && !first.getToolCalls().isEmpty()) {
+            while (end < messages.size() && messages.get(end).getRole() == Message.Role.TOOL) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private boolean isPinned(List<Message> messages, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (pinnedRoles.contains(messages.get(i).getRole())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The index of the first message of the protected recent turns; the last message is always protected
+     */
+    private int recentTurnsStart(List<Message> messages) {
+        int start = messages.size() - 1;
+        int turns = 0;
+        for (int i = messages.size() - 1; i >= 0 && turns < keepLastTurns; i--) {
+            if (messages.get(i).getRole() == Message.Role.USER) {
+                start = i;
+                turns++;
+            }
+        }
+        return Math.max(0, start);
+    }
+
+    /**
+     * @return The token budget
+     */
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return The estimated tokens of the request after the last {@link #apply(ChatRequest)}
+     */
+    public int getLastTokens() {
+        return lastTokens;
+    }
+
+    /**
+     * @return How many message estimates have been computed; stays flat for unchanged messages
+     */
+    public long getEstimatedMessages() {
+        return estimated;
+    }
+
+    /**
+     * @return How many messages have been dropped to fit the budget
+     */
+    public long getDroppedMessages() {
+        return dropped;
+    }
+
+    /**
+     * Cached estimate of one message, valid while its fields still refer to the same values.
+     */
+    private static final class Estimate {
+        private final String content;
+        private final Object images;
+        private final Object toolCalls;
+        private final int imageCount;
+        private final int toolCallCount;
+        private final int tokens;
+
+        Estimate(Message message, int tokens) {
+            this.content = message.getContent();
+            this.images = message.getImages();
+            this.toolCalls = message.getToolCalls();
+            this.imageCount = message.getImages() == null ? 0 : message.getImages().size();
+            this.toolCallCount = message.getToolCalls() == null ? 0 : message.getToolCalls().size();
+            this.tokens = tokens;
+        }
+
+        boolean matches(Message message) {
+            return content == message.getContent()
+                    && images == message.getImages()
+                    && toolCalls == message.getToolCalls()
+                    && imageCount == (message.getImages() == null ? 0 : message.getImages().size())
+                    && toolCallCount == (message.getToolCalls() == null ? 0 : message.getToolCalls().size());
+        }
+    }
+}
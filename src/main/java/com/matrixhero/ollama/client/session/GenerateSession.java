@@ -0,0 +1,306 @@
+package com.matrixhero.ollama.client.session;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import com.matrixhero.ollama.client.model.Options;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Stream;
+
+/**
+ * A multi-turn conversation over the generate API that threads the {@code context} returned by each
+ * response into the next request, so the server can reuse the evaluated prefix instead of
+ * re-evaluating the whole conversation on every turn.
+ * <p>
+ * The context is kept as an {@code int[]} rather than a list of boxed integers. Sessions are
+ * {@link Serializable}; the client is not part of the serialized state and must be attached again
+ * with {@link #attach(OllamaClient)} after deserialization, or use {@link #load(Path, OllamaClient)}.
+ * <p>
+ * Each completed turn records its prompt and eval counts and durations, so prefix reuse shows up as
+ * a {@code promptEvalCount} that stays close to the length of the new prompt instead of growing.
+ * Turns run one at a time; a session must not be shared by concurrent callers.
+ */
+public class GenerateSession implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int[] EMPTY = new int[0];
+
+    private transient OllamaClient client;
+    private final String model;
+    private String system;
+    private Options options;
+    private String format;
+    private Integer keepAlive;
+    private int[] context = EMPTY;
+    private final List<Turn> turns = new ArrayList<>();
+
+    /**
+     * @param client The client used to run turns
+     * @param model The model to generate with; the context is only valid for this model
+     */
+    public GenerateSession(OllamaClient client, String model) {
+        this.client = client;
+        this.model = model;
+    }
+
+    /**
+     * Sets the system prompt. It is sent with the first turn only; later turns carry it in the context.
+     * @param system The system prompt
+     * @return This session for method chaining
+     */
+    public GenerateSession withSystem(String system) {
+        this.system = system;
+        return this;
+    }
+
+    /**
+     * @param options The generation options sent with every turn
+     * @return This session for method chaining
+     */
+    public GenerateSession withOptions(Options options) {
+        this.options = options;
+        return this;
+    }
+
+    /**
+     * @param format The response format sent with every turn, e.g. {@code json}
+     * @return This session for method chaining
+     */
+    public GenerateSession withFormat(String format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Keeps the model loaded between turns so its KV cache survives the pause.
+     * @param keepAlive Keep-alive duration in seconds
+     * @return This session for method chaining
+     */
+    public GenerateSession withKeepAlive(Integer keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * Attaches a client, typically after the session has been deserialized.
+     * @param client The client used to run turns
+     * @return This session for method chaining
+     */
+    public GenerateSession attach(OllamaClient client) {
+        this.client = client;
+        return this;
+    }
+
+    /**
+     * Runs one turn and threads the returned context into the next.
+     * @param prompt The new user input for this turn only
+     * @return The generation response
+     * @throws IOException if there's an error communicating with the server
+     */
+    public GenerateResponse generate(String prompt) throws IOException {
+        GenerateResponse response = client().generate(request(prompt));
+        complete(response);
+        return response;
+    }
+
+    /**
+     * Runs one turn with streaming. The context is taken from the final frame, so the session only
+     * advances once the stream has been consumed to the end; an abandoned stream leaves it unchanged.
+     * @param prompt The new user input for this turn only
+     * @return A stream of generation responses
+     * @throws IOException if there's an error communicating with the server
+     */
+    public Stream<GenerateResponse> generateStream(String prompt) throws IOException {
+        return client().generateStream(request(prompt)).peek(frame -> {
+            if (Boolean.TRUE.equals(frame.getDone())) {
+                complete(frame);
+            }
+        });
+    }
+
+    private OllamaClient client() {
+        if (client == null) {
+            throw new IllegalStateException("No client attached to this session");
+        }
+        return client;
+    }
+
+    private GenerateRequest request(String prompt) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel(model);
+        request.setPrompt(prompt);
+        request.setOptions(options);
+        request.setFormat(format);
+        request.setKeepAlive(keepAlive);
+        if (context.length == 0) {
+            request.setSystem(system);
+        } else {
+            request.setContext(new IntList(context));
+        }
+        return request;
+    }
+
+    private void complete(GenerateResponse response) {
+        List<Integer> returned = response.getContext();
+        if (returned != null) {
+            int[] next = new int[returned.size()];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = returned.get(i);
+            }
+            context = next;
+        }
+        turns.add(new Turn(turns.size(), response, context.length));
+    }
+
+    /**
+     * @return The model this session generates with
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * @return A copy of the current context tokens
+     */
+    public int[] getContext() {
+        return context.clone();
+    }
+
+    /**
+     * @return The number of tokens in the current context
+     */
+    public int getContextLength() {
+        return context.length;
+    }
+
+    /**
+     * @return The completed turns, oldest first
+     */
+    public List<Turn> getTurns() {
+        return Collections.unmodifiableList(turns);
+    }
+
+    /**
+     * Drops the context and turn history; the next turn starts a new conversation.
+     */
+    public void reset() {
+        context = EMPTY;
+        turns.clear();
+    }
+
+    /**
+     * Writes this session to a file.
+     * @param path The file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+            out.writeObject(this);
+        }
+    }
+
+    /**
+     * Reads a session written by {@link #save(Path)} and attaches a client to it.
+     * @param path The file to read
+     * @param client The client used to run turns
+     * @return The resumed session
+     * @throws IOException if the file cannot be read or does not contain a session
+     */
+    public static GenerateSession load(Path path, OllamaClient client) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(path))) {
+            return ((GenerateSession) in.readObject()).attach(client);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a generate session: " + path, e);
+        }
+    }
+
+    /**
+     * Statistics of one completed turn. Durations are in nanoseconds.
+     */
+    public static final class Turn implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+        private final int promptEvalCount;
+        private final long promptEvalDuration;
+        private final int evalCount;
+        private final long evalDuration;
+        private final int contextLength;
+
+        Turn(int index, GenerateResponse response, int contextLength) {
+            this.index = index;
+            this.promptEvalCount = response.getPromptEvalCount() == null ? 0 : response.getPromptEvalCount();
+            this.promptEvalDuration = response.getPromptEvalDuration() == null ? 0 : response.getPromptEvalDuration();
+            this.evalCount = response.getEvalCount() == null ? 0 : response.getEvalCount();
+            this.evalDuration = response.getEvalDuration() == null ? 0 : response.getEvalDuration();
+            this.contextLength = contextLength;
+        }
+
+        /** Zero-based position of the turn in the session */
+        public int getIndex() {
+            return index;
+        }
+
+        /** Prompt tokens the server had to evaluate for this turn */
+        public int getPromptEvalCount() {
+            return promptEvalCount;
+        }
+
+        /** Time spent evaluating the prompt */
+        public long getPromptEvalDuration() {
+            return promptEvalDuration;
+        }
+
+        /** Tokens generated in this turn */
+        public int getEvalCount() {
+            return evalCount;
+        }
+
+        /** Time spent generating */
+        public long getEvalDuration() {
+            return evalDuration;
+        }
+
+        /** Context length after this turn */
+        public int getContextLength() {
+            return contextLength;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("turn=%d promptEval=%d/%dms eval=%d/%dms context=%d", index,
+                    promptEvalCount, promptEvalDuration / 1_000_000, evalCount, evalDuration / 1_000_000, contextLength);
+        }
+    }
+
+    /**
+     * Read-only list view of the context, so a request can be serialized without boxing a copy.
+     */
+    private static final class IntList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
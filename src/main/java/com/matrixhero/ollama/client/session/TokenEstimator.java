@@ -0,0 +1,48 @@
+package com.matrixhero.ollama.client.session;
+
+import com.matrixhero.ollama.client.model.Message;
+
+/**
+ * Estimates how many prompt tokens a message will take once the model's chat template is applied.
+ * Estimates only need to be stable and roughly proportional; {@link ChatHistory} computes one per
+ * message and reuses it until the message changes.
+ */
+@FunctionalInterface
+public interface TokenEstimator {
+    /**
+     * @param message The message to estimate
+     * @return The estimated number of tokens
+     */
+    int estimate(Message message);
+
+    /**
+     * Estimates tokens from text length: content and tool call arguments at a fixed number of characters
+     * per token, plus a fixed cost per message for the role markers of the template and per image.
+     * @param charsPerToken Average characters per token, about 4 for English and 1.5 for Chinese
+     * @param perMessage Tokens added for every message
+     * @param perImage Tokens added for every attached image
+     * @return The estimator
+     */
+    static TokenEstimator charsPerToken(double charsPerToken, int perMessage, int perImage) {
+        return message -> {
+            long chars = message.getContent() == null ? 0 : message.getContent().length();
+            if (message.getToolCalls() != null) {
+                for (Message.ToolCall call : message.getToolCalls()) {
+                    if (call.getFunction() != null) {
+                        chars += String.valueOf(call.getFunction().getName()).length();
+                        chars += String.valueOf(call.getFunction().getArguments()).length();
+                    }
+                }
+            }
+            int images = message.getImages() == null ? 0 : message.getImages().size();
+            return perMessage + (int) Math.ceil(chars / charsPerToken) + images * perImage;
+        };
+    }
+
+    /**
+     * @return A conservative default: 3 characters per token, 4 tokens per message and 768 per image
+     */
+    static TokenEstimator defaults() {
+        return charsPerToken(3.0, 4, 768);
+    }
+}
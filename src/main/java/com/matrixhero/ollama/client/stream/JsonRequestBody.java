@@ -0,0 +1,70 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * Request body that serializes a value as JSON straight into the connection's sink.
+ * The JSON is never materialized as a {@code String} or byte array; it is produced in chunks by a
+ * streaming {@link JsonGenerator} while OkHttp writes the request, so large payloads such as
+ * images are encoded directly onto the wire.
+ * <p>
+ * Resolving the serializers of a request type is the expensive part of serialization, so callers
+ * that send many requests should reuse one {@link ObjectWriter} per type.
+ * <p>
+ * The value is serialized again on every write, so the body can be replayed by retries as long as
+ * the value itself can be, and it must not be modified until the call has completed.
+ */
+public class JsonRequestBody extends RequestBody {
+    public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final ObjectWriter writer;
+    private final Object value;
+
+    /**
+     * @param objectMapper The mapper used to serialize the value
+     * @param value The request payload
+     */
+    public JsonRequestBody(ObjectMapper objectMapper, Object value) {
+        this(objectMapper.writerFor(value.getClass()), value);
+    }
+
+    /**
+     * @param writer The writer used to serialize the value, typically cached per request type
+     * @param value The request payload
+     */
+    public JsonRequestBody(ObjectWriter writer, Object value) {
+        this.writer = writer;
+        this.value = value;
+    }
+
+    /**
+     * @return The request payload
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // The sink belongs to the connection, so the generator must not close it
+        JsonGenerator generator = writer.createGenerator(sink.outputStream());
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            writer.writeValue(generator, value);
+        } finally {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.matrixhero.ollama.client.exception.OllamaTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ResponseBody;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Incremental decoder for newline-delimited JSON (NDJSON) response bodies.
+ * Frames are parsed one at a time straight from the response source with a streaming
+ * {@link JsonParser}, so each frame is available as soon as it arrives on the wire
+ * instead of after the whole body has been buffered.
+ *
+ * @param <T> The frame type
+ */
+@Slf4j
+public class NdjsonDecoder<T> implements Iterator<T>, Closeable {
+    private final ResponseBody body;
+    private final MappingIterator<T> frames;
+    private boolean closed = false;
+
+    /**
+     * Creates a decoder over the given response body.
+     *
+     * @param body The streaming response body, closed together with this decoder
+     * @param objectMapper The JSON processor used to bind each frame
+     * @param type The frame type
+     * @throws IOException if the parser cannot be created
+     */
+    public NdjsonDecoder(ResponseBody body, ObjectMapper objectMapper, Class<T> type) throws IOException {
+        this(body, objectMapper.readerFor(type));
+    }
+
+    /**
+     * Creates a decoder over the given response body.
+     * Frames are parsed from the raw UTF-8 bytes; the parser reads whatever the socket has delivered
+     * and only blocks when a frame is incomplete.
+     *
+     * @param body The streaming response body, closed together with this decoder
+     * @param reader The reader used to bind each frame, typically cached for the frame type
+     * @throws IOException if the parser cannot be created
+     */
+    public NdjsonDecoder(ResponseBody body, ObjectReader reader) throws IOException {
+        this.body = body;
+        JsonParser parser = reader.getFactory().createParser(body.source().inputStream());
+        this.frames = reader.readValues(parser);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (frames.hasNextValue()) {
+                return true;
+            }
+        } catch (SocketTimeoutException e) {
+            close();
+            throw new OllamaTimeoutException("Request timed out while reading stream", e);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Error reading stream", e);
+        }
+        // Release the connection as soon as the last frame has been consumed
+        close();
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return frames.nextValue();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Error parsing response", e);
+        }
+    }
+
+    /**
+     * Wraps this decoder in a sequential stream that closes the response when the stream is closed.
+     *
+     * @return A stream of decoded frames
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+            false
+        ).onClose(this::close);
+    }
+
+    /**
+     * Closes the parser and the underlying response body.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            frames.close();
+        } catch (IOException e) {
+            log.debug("Error closing stream parser", e);
+        }
+        body.close();
+    }
+}
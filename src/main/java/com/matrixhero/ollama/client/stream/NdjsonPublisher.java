@@ -0,0 +1,246 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressure-aware publisher of NDJSON frames from a single HTTP call.
+ * The call is started on the first request for demand, and frames are only read from the
+ * socket while the subscriber has outstanding demand, so unread bytes stay in the TCP window
+ * instead of piling up on the heap. Cancelling the subscription cancels the HTTP call.
+ * <p>
+ * The publisher is cold and unicast: it can be subscribed to once.
+ *
+ * @param <T> The frame type
+ */
+@Slf4j
+public class NdjsonPublisher<T> implements Publisher<T> {
+    private final Call call;
+    private final ObjectReader reader;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Creates a publisher over a call that has not been executed yet.
+     *
+     * @param call The HTTP call producing an NDJSON body
+     * @param objectMapper The JSON processor used to bind each frame
+     * @param type The frame type
+     * @param executor The executor on which blocking socket reads are performed
+     */
+    public NdjsonPublisher(Call call, ObjectMapper objectMapper, Class<T> type, Executor executor) {
+        this(call, objectMapper.readerFor(type), executor);
+    }
+
+    /**
+     * Creates a publisher over a call that has not been executed yet.
+     *
+     * @param call The HTTP call producing an NDJSON body
+     * @param reader The reader used to bind each frame, for the frame type
+     * @param executor The executor on which blocking socket reads are performed
+     */
+    public NdjsonPublisher(Call call, ObjectReader reader, Executor executor) {
+        this.call = call;
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("This publisher only supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new FrameSubscription(subscriber));
+    }
+
+    private final class FrameSubscription implements Subscription, Callback {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile NdjsonDecoder<T> decoder;
+        private volatile Throwable error;
+        private volatile boolean cancelled = false;
+        private volatile boolean terminated = false;
+
+        FrameSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested demand must be positive, got " + n);
+                call.cancel();
+                schedule();
+                return;
+            }
+            addDemand(n);
+            if (started.compareAndSet(false, true)) {
+                call.enqueue(this);
+            } else {
+                schedule();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            call.cancel();
+            schedule();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            error = e;
+            drain();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            ResponseBody body = response.body();
+            try {
+                if (!response.isSuccessful()) {
+                    String errorBody = body != null ? body.string() : "No error body";
+                    throw new OllamaResponseException(response.code(),
+                            String.format("Request failed with code %d: %s", response.code(), errorBody));
+                }
+                if (body == null) {
+                    throw new IOException("Empty response body");
+                }
+                NdjsonDecoder<T> frames = new NdjsonDecoder<>(body, reader);
+                decoder = frames;
+                if (cancelled || terminated) {
+                    // The subscription ended before the response arrived, so terminate() found no decoder to close
+                    frames.close();
+                    return;
+                }
+            } catch (IOException e) {
+                response.close();
+                error = e;
+            }
+            // Already on a dispatcher thread, so the first frames are read here
+            drain();
+        }
+
+        private void addDemand(long n) {
+            long current;
+            long next;
+            do {
+                current = demand.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet(current, next));
+        }
+
+        /**
+         * Runs the emission loop on the executor, since reading the next frame may block on the socket.
+         */
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::emit);
+            }
+        }
+
+        /**
+         * Runs the emission loop on the calling thread.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() == 0) {
+                emit();
+            }
+        }
+
+        /**
+         * Emits frames while there is demand. Only one thread runs the loop at a time;
+         * signals arriving meanwhile are picked up by the running loop.
+         */
+        private void emit() {
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+                if (error != null) {
+                    terminate();
+                    subscriber.onError(error);
+                    return;
+                }
+                NdjsonDecoder<T> frames = decoder;
+                if (frames != null) {
+                    long requested = demand.get();
+                    long emitted = 0;
+                    try {
+                        while (emitted != requested && !cancelled) {
+                            if (!frames.hasNext()) {
+                                terminate();
+                                subscriber.onComplete();
+                                return;
+                            }
+                            subscriber.onNext(frames.next());
+                            emitted++;
+                        }
+                    } catch (RuntimeException e) {
+                        terminate();
+                        if (!cancelled) {
+                            subscriber.onError(e);
+                        }
+                        return;
+                    }
+                    if (emitted != 0 && requested != Long.MAX_VALUE) {
+                        demand.addAndGet(-emitted);
+                    }
+                    if (cancelled) {
+                        continue;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            terminated = true;
+            NdjsonDecoder<T> frames = decoder;
+            if (frames != null) {
+                frames.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.matrixhero.ollama.client.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World (HNSW) approximate nearest-neighbour index over a {@link VectorStore}.
+ * <p>
+ * The index holds only the graph; vectors stay in the store's memory-mapped segments and nodes are
+ * identified by their store ordinal. Similarity is cosine.
+ * <p>
+ * Inserts may run concurrently: each node's neighbour lists are replaced copy-on-write under that
+ * node's monitor, so searches read them without locking. {@link #save(Path)} waits for in-flight
+ * inserts and blocks new ones while it writes.
+ */
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+    private static final int DEFAULT_EF_SEARCH = 64;
+    private static final int[] NO_NEIGHBOURS = new int[0];
+
+    private final VectorStore store;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Object registryLock = new Object();
+    private final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private final AtomicInteger count = new AtomicInteger();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private volatile Node[] nodes = new Node[1024];
+    private volatile Node entryPoint;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param store The store holding the vectors
+     * @param m Neighbours per node on upper layers; layer 0 keeps {@code 2 * m}
+     * @param efConstruction Candidate list size while inserting; larger builds slower but recalls better
+     */
+    public HnswIndex(VectorStore store, int m, int efConstruction) {
+        if (m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("M must be at least 2 and efConstruction at least 1");
+        }
+        this.store = store;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+    }
+
+    /**
+     * @return The number of indexed vectors
+     */
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Indexes every store vector that is not in the index yet.
+     */
+    public void addAll() {
+        long total = store.size();
+        for (long ordinal = 0; ordinal < total; ordinal++) {
+            if (node((int) ordinal) == null) {
+                add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Stores a vector and indexes it.
+     *
+     * @param id The caller-assigned id
+     * @param vector The vector components
+     * @return The store ordinal of the vector
+     * @throws IOException if the store cannot append
+     */
+    public long add(long id, float[] vector) throws IOException {
+        long ordinal = store.add(id, vector);
+        add(ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Indexes a vector that is already in the store. Safe to call from several threads at once.
+     *
+     * @param ordinal The store ordinal of the vector
+     * @throws IllegalArgumentException if the vector is already indexed
+     */
+    public void add(long ordinal) {
+        if (ordinal < 0 || ordinal >= store.size() || ordinal > Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " is not in the store");
+        }
+        float[] vector = store.copy(ordinal);
+        float inverseNorm = VectorStore.inverseNorm(vector);
+        Node node = new Node((int) ordinal, randomLevel(), inverseNorm);
+
+        saveLock.readLock().lock();
+        try {
+            register(node);
+            Node entry;
+            synchronized (registryLock) {
+                entry = entryPoint;
+                if (entry == null) {
+                    entryPoint = node;
+                    return;
+                }
+            }
+            insert(node, vector, entry);
+            if (node.level > entry.level) {
+                synchronized (registryLock) {
+                    if (node.level > entryPoint.level) {
+                        entryPoint = node;
+                    }
+                }
+            }
+        } finally {
+            saveLock.readLock().unlock();
+        }
+    }
+
+    private void register(Node node) {
+        synchronized (registryLock) {
+            Node[] current = nodes;
+            if (node.ordinal >= current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, node.ordinal + 1));
+            }
+            if (current[node.ordinal] != null) {
+                throw new IllegalArgumentException("Ordinal " + node.ordinal + " is already indexed");
+            }
+            current[node.ordinal] = node;
+            nodes = current;
+        }
+        count.incrementAndGet();
+    }
+
+    private void insert(Node node, float[] vector, Node entry) {
+        int current = entry.ordinal;
+        float currentScore = similarity(vector, node.inverseNorm, entry);
+        for (int level = entry.level; level > node.level; level--) {
+            current = greedyClosest(vector, node.inverseNorm, current, currentScore, level);
+            currentScore = similarity(vector, node.inverseNorm, node(current));
+        }
+
+        int[] entries = {current};
+        for (int level = Math.min(node.level, entry.level); level >= 0; level--) {
+            ScoredHeap found = searchLayer(vector, node.inverseNorm, entries, efConstruction, level);
+            int[] candidates = new int[found.size()];
+            float[] scores = new float[found.size()];
+            found.drainInto(candidates, scores);
+
+            int[] selected = selectNeighbours(candidates, scores, maxNeighbours(level));
+            // Other inserters may already have linked to the node, so merge rather than overwrite
+            addNeighbours(node, level, selected);
+            for (int neighbour : selected) {
+                addNeighbours(node(neighbour), level, new int[]{node.ordinal});
+            }
+            entries = candidates;
+        }
+    }
+
+    /**
+     * Adds links to a node's neighbour list under its monitor, pruning the list when it overflows.
+     */
+    private void addNeighbours(Node target, int level, int[] added) {
+        synchronized (target) {
+            int[] current = target.neighbours(level);
+            int[] grown = Arrays.copyOf(current, current.length + added.length);
+            int size = current.length;
+            next:
+            for (int candidate : added) {
+                if (candidate == target.ordinal) {
+                    continue;
+                }
+                for (int i = 0; i < size; i++) {
+                    if (grown[i] == candidate) {
+                        continue next;
+                    }
+                }
+                grown[size++] = candidate;
+            }
+            if (size == current.length) {
+                return;
+            }
+            grown = Arrays.copyOf(grown, size);
+            int max = maxNeighbours(level);
+            if (grown.length <= max) {
+                target.setNeighbours(level, grown);
+                return;
+            }
+            ScoredHeap ranked = new ScoredHeap(grown.length, true);
+            for (int neighbour : grown) {
+                ranked.push(neighbour, similarity(target, node(neighbour)));
+            }
+            int[] candidates = new int[grown.length];
+            float[] scores = new float[grown.length];
+            ranked.drainInto(candidates, scores);
+            target.setNeighbours(level, selectNeighbours(candidates, scores, max));
+        }
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept only if it is closer to the base node than to
+     * any neighbour already kept, which preserves links towards distinct regions of the graph.
+     * Remaining slots are filled with the closest pruned candidates.
+     *
+     * @param candidates Candidates ordered by descending similarity to the base node
+     * @param scores Their similarities to the base node
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int max) {
+        if (candidates.length <= max) {
+            return candidates;
+        }
+        int[] selected = new int[max];
+        int selectedCount = 0;
+        boolean[] taken = new boolean[candidates.length];
+        for (int i = 0; i < candidates.length && selectedCount < max; i++) {
+            Node candidate = node(candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (similarity(candidate, node(selected[j])) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = candidates[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && selectedCount < max; i++) {
+            if (!taken[i]) {
+                selected[selectedCount++] = candidates[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Finds the k indexed vectors most similar to the query with the default search breadth.
+     *
+     * @param query The query vector
+     * @param k The number of results
+     * @return Up to k results, most similar first
+     */
+    public List<SearchResult> search(float[] query, int k) {
+        return search(query, k, Math.max(k, DEFAULT_EF_SEARCH));
+    }
+
+    /**
+     * Finds the k indexed vectors most similar to the query.
+     *
+     * @param query The query vector
+     * @param k The number of results
+     * @param ef Candidate list size; larger is slower but recalls better
+     * @return Up to k results, most similar first
+     */
+    public List<SearchResult> search(float[] query, int k, int ef) {
+        if (query.length != store.dimension()) {
+            throw new IllegalArgumentException(String.format(
+                    "Query has %d components, expected %d", query.length, store.dimension()));
+        }
+        Node entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return Collections.emptyList();
+        }
+        float inverseNorm = VectorStore.inverseNorm(query);
+        int current = entry.ordinal;
+        float currentScore = similarity(query, inverseNorm, entry);
+        for (int level = entry.level; level > 0; level--) {
+            current = greedyClosest(query, inverseNorm, current, currentScore, level);
+            currentScore = similarity(query, inverseNorm, node(current));
+        }
+        ScoredHeap found = searchLayer(query, inverseNorm, new int[]{current}, Math.max(ef, k), 0);
+        while (found.size() > k) {
+            found.pop();
+        }
+        return found.drainDescending(store);
+    }
+
+    private int greedyClosest(float[] query, float inverseNorm, int start, float startScore, int level) {
+        int current = start;
+        float currentScore = startScore;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : node(current).neighbours(level)) {
+                float score = similarity(query, inverseNorm, node(neighbour));
+                if (score > currentScore) {
+                    current = neighbour;
+                    currentScore = score;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer, returning up to ef results in a min-heap.
+     */
+    private ScoredHeap searchLayer(float[] query, float inverseNorm, int[] entries, int ef, int level) {
+        Visited seen = visited.get();
+        seen.reset(nodes.length);
+        ScoredHeap candidates = new ScoredHeap(ef * 2, true);
+        ScoredHeap results = new ScoredHeap(ef + 1, false);
+        for (int entry : entries) {
+            if (seen.add(entry)) {
+                float score = similarity(query, inverseNorm, node(entry));
+                candidates.push(entry, score);
+                results.push(entry, score);
+                if (results.size() > ef) {
+                    results.pop();
+                }
+            }
+        }
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.peekScore();
+            if (results.size() >= ef && candidateScore < results.peekScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            for (int neighbour : node(candidate).neighbours(level)) {
+                if (!seen.add(neighbour)) {
+                    continue;
+                }
+                float score = similarity(query, inverseNorm, node(neighbour));
+                if (results.size() < ef || score > results.peekScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private float similarity(float[] query, float queryInverseNorm, Node node) {
+        return store.dot(node.ordinal, query) * queryInverseNorm * node.inverseNorm;
+    }
+
+    private float similarity(Node a, Node b) {
+        return store.dot(a.ordinal, b.ordinal) * a.inverseNorm * b.inverseNorm;
+    }
+
+    private Node node(int ordinal) {
+        Node[] current = nodes;
+        return ordinal < current.length ? current[ordinal] : null;
+    }
+
+    private int maxNeighbours(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(uniform) * levelMultiplier);
+    }
+
+    /**
+     * Writes the graph to a file. Vectors are not written; they stay in the store.
+     *
+     * @param file The target file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        saveLock.writeLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            Node[] current = nodes;
+            Node entry = entryPoint;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(count.get());
+            out.writeInt(entry == null ? -1 : entry.ordinal);
+            for (Node node : current) {
+                if (node == null) {
+                    continue;
+                }
+                out.writeInt(node.ordinal);
+                out.writeInt(node.level);
+                out.writeFloat(node.inverseNorm);
+                for (int level = 0; level <= node.level; level++) {
+                    int[] neighbours = node.neighbours(level);
+                    out.writeInt(neighbours.length);
+                    for (int neighbour : neighbours) {
+                        out.writeInt(neighbour);
+                    }
+                }
+            }
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #save(Path)}.
+     *
+     * @param file The graph file
+     * @param store The store holding the indexed vectors
+     * @return The loaded index, ready for searches and further inserts
+     * @throws IOException if the file cannot be read or refers to vectors missing from the store
+     */
+    public static HnswIndex load(Path file, VectorStore store) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an HNSW index file: " + file);
+            }
+            HnswIndex index = new HnswIndex(store, in.readInt(), in.readInt());
+            int nodeCount = in.readInt();
+            int entry = in.readInt();
+            Node[] loaded = new Node[(int) Math.max(1, store.size())];
+            for (int i = 0; i < nodeCount; i++) {
+                int ordinal = in.readInt();
+                if (ordinal < 0 || ordinal >= store.size()) {
+                    throw new IOException("Index refers to ordinal " + ordinal + " missing from the store");
+                }
+                Node node = new Node(ordinal, in.readInt(), in.readFloat());
+                for (int level = 0; level <= node.level; level++) {
+                    int[] neighbours = new int[in.readInt()];
+                    for (int j = 0; j < neighbours.length; j++) {
+                        neighbours[j] = in.readInt();
+                    }
+                    node.setNeighbours(level, neighbours);
+                }
+                loaded[ordinal] = node;
+            }
+            index.nodes = loaded;
+            index.count.set(nodeCount);
+            index.entryPoint = entry < 0 ? null : loaded[entry];
+            return index;
+        }
+    }
+
+    private static final class Node {
+        private final int ordinal;
+        private final int level;
+        private final float inverseNorm;
+        private final AtomicReferenceArray<int[]> neighbours;
+
+        private Node(int ordinal, int level, float inverseNorm) {
+            this.ordinal = ordinal;
+            this.level = level;
+            this.inverseNorm = inverseNorm;
+            this.neighbours = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbours.set(i, NO_NEIGHBOURS);
+            }
+        }
+
+        private int[] neighbours(int level) {
+            return neighbours.get(level);
+        }
+
+        private void setNeighbours(int level, int[] ids) {
+            neighbours.set(level, ids);
+        }
+    }
+
+    /**
+     * Per-thread visited marks, cleared in O(1) by bumping the generation.
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation = 0;
+
+        private void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        private boolean add(int node) {
+            if (node >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(marks.length * 2, node + 1));
+            }
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.matrixhero.ollama.client.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary heap of (node, score) pairs kept in parallel primitive arrays, so searches do not box.
+ * A min-heap exposes the lowest score at the top, a max-heap the highest.
+ */
+final class ScoredHeap {
+    private final boolean max;
+    private int[] nodes;
+    private float[] scores;
+    private int size;
+
+    ScoredHeap(int capacity, boolean max) {
+        this.max = max;
+        this.nodes = new int[Math.max(capacity, 4)];
+        this.scores = new float[nodes.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    float peekScore() {
+        return scores[0];
+    }
+
+    void push(int node, float score) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!above(score, scores[parent])) {
+                break;
+            }
+            nodes[i] = nodes[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        scores[i] = score;
+    }
+
+    /**
+     * Removes the top entry and returns its node.
+     */
+    int pop() {
+        int top = nodes[0];
+        int lastNode = nodes[--size];
+        float lastScore = scores[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && above(scores[right], scores[child])) {
+                child = right;
+            }
+            if (!above(scores[child], lastScore)) {
+                break;
+            }
+            nodes[i] = nodes[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        nodes[i] = lastNode;
+        scores[i] = lastScore;
+        return top;
+    }
+
+    private boolean above(float a, float b) {
+        return max ? a > b : a < b;
+    }
+
+    /**
+     * Empties the heap into parallel arrays ordered by descending score.
+     */
+    void drainInto(int[] resultNodes, float[] resultScores) {
+        int count = size;
+        if (max) {
+            for (int i = 0; i < count; i++) {
+                resultScores[i] = peekScore();
+                resultNodes[i] = pop();
+            }
+        } else {
+            for (int i = count - 1; i >= 0; i--) {
+                resultScores[i] = peekScore();
+                resultNodes[i] = pop();
+            }
+        }
+    }
+
+    /**
+     * Empties the heap into search results ordered by descending score.
+     */
+    List<SearchResult> drainDescending(VectorStore store) {
+        int count = size;
+        int[] resultNodes = new int[count];
+        float[] resultScores = new float[count];
+        drainInto(resultNodes, resultScores);
+        List<SearchResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new SearchResult(resultNodes[i], store.id(resultNodes[i]), resultScores[i]));
+        }
+        return Collections.unmodifiableList(results);
+    }
+}
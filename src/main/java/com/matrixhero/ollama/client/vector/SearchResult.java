@@ -0,0 +1,36 @@
+package com.matrixhero.ollama.client.vector;
+
+/**
+ * A nearest-neighbour search hit.
+ */
+public final class SearchResult {
+    private final long ordinal;
+    private final long id;
+    private final float score;
+
+    SearchResult(long ordinal, long id, float score) {
+        this.ordinal = ordinal;
+        this.id = id;
+        this.score = score;
+    }
+
+    /** Position of the vector in the {@link VectorStore} */
+    public long getOrdinal() {
+        return ordinal;
+    }
+
+    /** Caller-assigned id stored with the vector */
+    public long getId() {
+        return id;
+    }
+
+    /** Cosine similarity to the query, higher is closer */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult(ordinal=" + ordinal + ", id=" + id + ", score=" + score + ")";
+    }
+}
@@ -0,0 +1,182 @@
+package com.matrixhero.ollama.client.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One fixed-capacity, memory-mapped segment file of a {@link VectorStore}.
+ * <p>
+ * Layout (little-endian): a 32-byte header {@code [magic][version][dimension][capacity][long count]}
+ * followed by {@code capacity} records of {@code [long id][dimension * float32]}.
+ * The count is written after the record it covers, so a crash never exposes a partial record.
+ */
+final class VectorSegment implements Closeable {
+    static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x4F564543; // "OVEC"
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int dimension;
+    private final int capacity;
+    private final int recordSize;
+    private volatile int count;
+
+    private VectorSegment(FileChannel channel, MappedByteBuffer mapped, int dimension, int capacity, int count) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.dimension = dimension;
+        this.capacity = capacity;
+        this.recordSize = recordSize(dimension);
+        this.count = count;
+    }
+
+    static int recordSize(int dimension) {
+        return Long.BYTES + dimension * Float.BYTES;
+    }
+
+    static VectorSegment create(Path file, int dimension, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = HEADER_SIZE + (long) capacity * recordSize(dimension);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, dimension).putInt(12, capacity).putLong(COUNT_OFFSET, 0);
+        return new VectorSegment(channel, mapped, dimension, capacity, 0);
+    }
+
+    static VectorSegment open(Path file, int dimension) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated vector segment: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw new IOException("Not a vector segment: " + file);
+            }
+            if (mapped.getInt(8) != dimension) {
+                throw new IOException(String.format("Segment %s has dimension %d, expected %d",
+                        file, mapped.getInt(8), dimension));
+            }
+            int capacity = mapped.getInt(12);
+            long count = mapped.getLong(COUNT_OFFSET);
+            if (count < 0 || count > capacity || channel.size() < HEADER_SIZE + (long) capacity * recordSize(dimension)) {
+                throw new IOException("Corrupt vector segment header: " + file);
+            }
+            return new VectorSegment(channel, mapped, dimension, capacity, (int) count);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static int readDimension(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return header.getInt(8);
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    /**
+     * Opens a slot for the next record and returns a view of its vector components.
+     * The record only becomes visible once {@link #commit()} is called.
+     */
+    FloatBuffer append(long id) {
+        int offset = offset(count);
+        mapped.putLong(offset, id);
+        return vectorView(offset);
+    }
+
+    void commit() {
+        count++;
+        mapped.putLong(COUNT_OFFSET, count);
+    }
+
+    long id(int index) {
+        return mapped.getLong(offset(index));
+    }
+
+    /**
+     * Dot product of a stored vector with the query, read with absolute gets so nothing is allocated.
+     */
+    float dot(int index, float[] query) {
+        int offset = offset(index) + Long.BYTES;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += mapped.getFloat(offset + i * Float.BYTES) * query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Cosine similarity of a stored vector with the query, computing the stored norm in the same pass.
+     */
+    float cosine(int index, float[] query, float queryInverseNorm) {
+        int offset = offset(index) + Long.BYTES;
+        float dot = 0f;
+        float norm = 0f;
+        for (int i = 0; i < dimension; i++) {
+            float component = mapped.getFloat(offset + i * Float.BYTES);
+            dot += component * query[i];
+            norm += component * component;
+        }
+        return norm == 0f ? 0f : dot * queryInverseNorm / (float) Math.sqrt(norm);
+    }
+
+    float dot(int index, VectorSegment other, int otherIndex) {
+        int offset = offset(index) + Long.BYTES;
+        int otherOffset = other.offset(otherIndex) + Long.BYTES;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += mapped.getFloat(offset + i * Float.BYTES) * other.mapped.getFloat(otherOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    FloatBuffer vector(int index) {
+        return vectorView(offset(index)).asReadOnlyBuffer();
+    }
+
+    private FloatBuffer vectorView(int offset) {
+        ByteBuffer view = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(offset + Long.BYTES).limit(offset + recordSize);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    private int offset(int index) {
+        return HEADER_SIZE + index * recordSize;
+    }
+
+    void flush() {
+        mapped.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapped.force();
+        channel.close();
+    }
+}
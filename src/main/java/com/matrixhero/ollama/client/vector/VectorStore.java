@@ -0,0 +1,339 @@
+package com.matrixhero.ollama.client.vector;
+
+import com.matrixhero.ollama.client.embed.EmbeddingMatrix;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.FloatEmbedResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap store of float32 embedding vectors and their ids, kept in memory-mapped segment files.
+ * <p>
+ * Vectors are appended to fixed-capacity segment files ({@code segment-00000.vec}, ...) in a directory
+ * and read back through zero-copy {@link FloatBuffer} views, so millions of vectors add nothing to
+ * the Java heap. Reopening a store only maps its segments; nothing is deserialized.
+ * Each vector is addressed by its ordinal (insertion position) and carries a caller-assigned id.
+ * <p>
+ * Appends are serialized; reads are lock-free and may run concurrently with appends.
+ */
+public class VectorStore implements Closeable {
+    private static final long DEFAULT_SEGMENT_BYTES = 256L << 20;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".vec";
+
+    private final Path directory;
+    private final int dimension;
+    private final int segmentCapacity;
+    private volatile VectorSegment[] segments;
+    private volatile long size;
+
+    /**
+     * Opens an existing store, taking the dimension from its first segment.
+     *
+     * @param directory The store directory
+     * @throws IOException if the directory does not contain a store
+     */
+    public VectorStore(Path directory) throws IOException {
+        this(directory, VectorSegment.readDimension(segmentFile(directory, 0)));
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed, with segments of about 256 MB.
+     *
+     * @param directory The store directory
+     * @param dimension The vector length
+     * @throws IOException if the store cannot be opened or has a different dimension
+     */
+    public VectorStore(Path directory, int dimension) throws IOException {
+        this(directory, dimension, (int) Math.max(1, DEFAULT_SEGMENT_BYTES / VectorSegment.recordSize(dimension)));
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed.
+     *
+     * @param directory The store directory
+     * @param dimension The vector length
+     * @param segmentCapacity Vectors per segment file, ignored when the store already exists
+     * @throws IOException if the store cannot be opened or has a different dimension
+     */
+    public VectorStore(Path directory, int dimension, int segmentCapacity) throws IOException {
+        if (dimension <= 0 || segmentCapacity <= 0) {
+            throw new IllegalArgumentException("Dimension and segment capacity must be positive");
+        }
+        if (VectorSegment.HEADER_SIZE + (long) segmentCapacity * VectorSegment.recordSize(dimension) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments cannot exceed 2 GB");
+        }
+        this.directory = directory;
+        this.dimension = dimension;
+        Files.createDirectories(directory);
+
+        List<VectorSegment> opened = new ArrayList<>();
+        long total = 0;
+        try {
+            for (int i = 0; Files.exists(segmentFile(directory, i)); i++) {
+                VectorSegment segment = VectorSegment.open(segmentFile(directory, i), dimension);
+                opened.add(segment);
+                if (segment.capacity() != opened.get(0).capacity()) {
+                    throw new IOException("Segment " + i + " has a different capacity than segment 0");
+                }
+                total += segment.count();
+                if (!segment.isFull() && Files.exists(segmentFile(directory, i + 1))) {
+                    throw new IOException("Segment " + i + " is not full but is followed by another segment");
+                }
+            }
+        } catch (IOException e) {
+            for (VectorSegment segment : opened) {
+                segment.close();
+            }
+            throw e;
+        }
+        // An existing store keeps the capacity it was created with, since ordinals depend on it
+        this.segmentCapacity = opened.isEmpty() ? segmentCapacity : opened.get(0).capacity();
+        this.segments = opened.toArray(new VectorSegment[0]);
+        this.size = total;
+    }
+
+    private static Path segmentFile(Path directory, int index) {
+        return directory.resolve(String.format("%s%05d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return The vector length
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return The number of stored vectors
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends a vector.
+     *
+     * @param id The caller-assigned id
+     * @param vector The vector components
+     * @return The ordinal of the stored vector
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized long add(long id, float[] vector) throws IOException {
+        checkDimension(vector.length);
+        nextSlot(id).put(vector);
+        return commit();
+    }
+
+    /**
+     * Appends a vector, narrowing its components to float32.
+     *
+     * @param id The caller-assigned id
+     * @param vector The vector components
+     * @return The ordinal of the stored vector
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized long add(long id, double[] vector) throws IOException {
+        checkDimension(vector.length);
+        FloatBuffer slot = nextSlot(id);
+        for (double component : vector) {
+            slot.put((float) component);
+        }
+        return commit();
+    }
+
+    /**
+     * Appends the vector of an embedding response.
+     *
+     * @param id The caller-assigned id
+     * @param response A response of {@code OllamaClient.embed}
+     * @return The ordinal of the stored vector
+     * @throws IOException if a new segment cannot be created
+     */
+    public long add(long id, EmbedResponse response) throws IOException {
+        return add(id, response.getEmbedding());
+    }
+
+    /**
+     * Appends the vector of a float32 embedding response.
+     *
+     * @param id The caller-assigned id
+     * @param response A response of {@code OllamaClient.embedFloat}
+     * @return The ordinal of the stored vector
+     * @throws IOException if a new segment cannot be created
+     */
+    public long add(long id, FloatEmbedResponse response) throws IOException {
+        return add(id, response.getEmbedding());
+    }
+
+    /**
+     * Appends all vectors of a batch, as produced by {@code BatchEmbedder.embedFloat},
+     * copying each row straight from the matrix into the mapped segment.
+     *
+     * @param ids One caller-assigned id per row
+     * @param matrix The vectors
+     * @return The ordinal of the first stored vector
+     * @throws IOException if a new segment cannot be created
+     */
+    public synchronized long addAll(long[] ids, EmbeddingMatrix matrix) throws IOException {
+        if (ids.length != matrix.rows()) {
+            throw new IllegalArgumentException(String.format("Got %d ids for %d vectors", ids.length, matrix.rows()));
+        }
+        checkDimension(matrix.dimension());
+        long first = size;
+        for (int row = 0; row < ids.length; row++) {
+            nextSlot(ids[row]).put(matrix.rowBuffer(row));
+            commit();
+        }
+        return first;
+    }
+
+    private void checkDimension(int length) {
+        if (length != dimension) {
+            throw new IllegalArgumentException(String.format("Vector has %d components, expected %d", length, dimension));
+        }
+    }
+
+    private FloatBuffer nextSlot(long id) throws IOException {
+        VectorSegment[] current = segments;
+        if (current.length == 0 || current[current.length - 1].isFull()) {
+            VectorSegment[] grown = new VectorSegment[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            grown[current.length] = VectorSegment.create(segmentFile(directory, current.length), dimension, segmentCapacity);
+            segments = grown;
+            current = grown;
+        }
+        return current[current.length - 1].append(id);
+    }
+
+    private long commit() {
+        VectorSegment[] current = segments;
+        current[current.length - 1].commit();
+        return size++;
+    }
+
+    /**
+     * @param ordinal The vector position
+     * @return The id stored with the vector
+     */
+    public long id(long ordinal) {
+        checkOrdinal(ordinal);
+        return segment(ordinal).id(index(ordinal));
+    }
+
+    /**
+     * Returns a read-only, zero-copy view of a vector in the mapped segment.
+     *
+     * @param ordinal The vector position
+     * @return A view of exactly {@code dimension} components
+     */
+    public FloatBuffer vector(long ordinal) {
+        checkOrdinal(ordinal);
+        return segment(ordinal).vector(index(ordinal));
+    }
+
+    /**
+     * Copies a vector onto the heap.
+     *
+     * @param ordinal The vector position
+     * @return The vector components
+     */
+    public float[] copy(long ordinal) {
+        float[] vector = new float[dimension];
+        vector(ordinal).get(vector);
+        return vector;
+    }
+
+    /**
+     * Finds the k stored vectors most similar to the query by cosine similarity, scanning every vector.
+     * Cost is linear in the store size; use {@link HnswIndex} for approximate sub-linear search.
+     *
+     * @param query The query vector
+     * @param k The number of results
+     * @return Up to k results, most similar first
+     */
+    public List<SearchResult> search(float[] query, int k) {
+        checkDimension(query.length);
+        float queryInverseNorm = inverseNorm(query);
+        long count = size;
+        if (count > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Search is limited to 2^31 vectors");
+        }
+        ScoredHeap best = new ScoredHeap(k + 1, false);
+        for (long ordinal = 0; ordinal < count; ordinal++) {
+            float score = segment(ordinal).cosine(index(ordinal), query, queryInverseNorm);
+            if (best.size() < k || score > best.peekScore()) {
+                best.push((int) ordinal, score);
+                if (best.size() > k) {
+                    best.pop();
+                }
+            }
+        }
+        return best.drainDescending(this);
+    }
+
+    float dot(long ordinal, float[] query) {
+        return segment(ordinal).dot(index(ordinal), query);
+    }
+
+    float dot(long ordinal, long other) {
+        return segment(ordinal).dot(index(ordinal), segment(other), index(other));
+    }
+
+    static float inverseNorm(float[] vector) {
+        double sum = 0;
+        for (float component : vector) {
+            sum += component * component;
+        }
+        return sum == 0 ? 0f : (float) (1.0 / Math.sqrt(sum));
+    }
+
+    private void checkOrdinal(long ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of range for " + size + " vectors");
+        }
+    }
+
+    private VectorSegment segment(long ordinal) {
+        return segments[(int) (ordinal / segments[0].capacity())];
+    }
+
+    private int index(long ordinal) {
+        return (int) (ordinal % segments[0].capacity());
+    }
+
+    /**
+     * Forces all appended vectors to disk.
+     */
+    public void flush() {
+        for (VectorSegment segment : segments) {
+            segment.flush();
+        }
+    }
+
+    /**
+     * Flushes all segments and closes their files. Java offers no way to unmap a file explicitly, so
+     * the mappings are only released once they are garbage collected; until then the files stay
+     * mapped, and on Windows cannot be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (VectorSegment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
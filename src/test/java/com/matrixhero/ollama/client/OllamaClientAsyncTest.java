@@ -0,0 +1,119 @@
+package com.matrixhero.ollama.client;
+
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the CompletableFuture based API against a local server.
+ */
+class OllamaClientAsyncTest {
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testGenerateAsync() throws Exception {
+        server.enqueue(new MockResponse().setBody(
+                "{\"model\":\"qwen2.5:7b\",\"response\":\"hi\",\"done\":true,\"eval_count\":3}"));
+
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("qwen2.5:7b");
+        request.setPrompt("hello");
+
+        GenerateResponse response = client.generateAsync(request).get(5, TimeUnit.SECONDS);
+        assertEquals("hi", response.getResponse());
+        assertEquals(3, response.getEvalCount());
+
+        RecordedRequest recorded = server.takeRequest();
+        assertEquals("/api/generate", recorded.getPath());
+        assertTrue(recorded.getBody().readUtf8().contains("\"stream\":false"));
+    }
+
+    @Test
+    void testChatAsyncAppendsHistory() throws Exception {
+        server.enqueue(new MockResponse().setBody(
+                "{\"model\":\"qwen2.5:7b\",\"message\":{\"role\":\"assistant\",\"content\":\"fine\"},\"done\":true}"));
+
+        ChatRequest request = new ChatRequest();
+        request.setModel("qwen2.5:7b");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "how are you?")));
+
+        ChatResponse response = client.chatAsync(request).get(5, TimeUnit.SECONDS);
+        assertEquals("fine", response.getMessage().getContent());
+        assertEquals(2, request.getMessages().size());
+    }
+
+    @Test
+    void testFailedResponseCompletesExceptionally() {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"error\":\"model not found\"}"));
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.listAsync().get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertTrue(e.getCause().getMessage().contains("model not found"));
+    }
+
+    @Test
+    void testCancelAbortsCall() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"model\":\"nomic-embed-text\",\"embedding\":[0.1]}")
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("{\"models\":[]}"));
+
+        EmbedRequest request = new EmbedRequest();
+        request.setModel("nomic-embed-text");
+        request.setInput("text");
+
+        // One call at a time, so a call that kept running would hold up the next one
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(1);
+        dispatcher.setMaxRequestsPerHost(1);
+        try (OllamaClient single = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .httpClient(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+                .build()) {
+            CompletableFuture<EmbedResponse> future = single.embedAsync(request);
+            server.takeRequest(5, TimeUnit.SECONDS);
+            assertTrue(future.cancel(true));
+            assertTrue(future.isCancelled());
+
+            // The HTTP call is aborted well before the server would have answered
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (dispatcher.runningCallsCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, dispatcher.runningCallsCount());
+
+            // The cancelled call no longer occupies the only slot, so the next call goes through at once
+            ListResponse list = single.listAsync().get(1, TimeUnit.SECONDS);
+            assertTrue(list.getModels().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.matrixhero.ollama.client;
+
+import com.matrixhero.ollama.client.agent.Agent;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for client configuration through {@link OllamaClient.Builder}.
+ */
+class OllamaClientBuilderTest {
+    private MockWebServer server;
+    private String host;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        host = "http://" + server.getHostName() + ":" + server.getPort();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testMaxRequestsPerHostAllowsMoreThanFiveConcurrentCalls() throws Exception {
+        int parallel = 8;
+        CountDownLatch arrived = new CountDownLatch(parallel);
+        CountDownLatch release = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                arrived.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody("{\"model\":\"m\",\"response\":\"ok\",\"done\":true}");
+            }
+        });
+
+        try (OllamaClient client = OllamaClient.builder().host(host).maxRequestsPerHost(parallel).build()) {
+            List<CompletableFuture<GenerateResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < parallel; i++) {
+                GenerateRequest request = new GenerateRequest();
+                request.setModel("m");
+                request.setPrompt("p" + i);
+                futures.add(client.generateAsync(request));
+            }
+            assertTrue(arrived.await(5, TimeUnit.SECONDS), "all requests should be in flight at once");
+            release.countDown();
+            for (CompletableFuture<GenerateResponse> future : futures) {
+                assertEquals("ok", future.get(5, TimeUnit.SECONDS).getResponse());
+            }
+        }
+    }
+
+    @Test
+    void testPrewarmOpensConnections() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("Ollama is running"));
+        }
+        try (OllamaClient client = OllamaClient.builder().host(host).tcpNoDelay(true).build()) {
+            client.prewarm(3).get(5, TimeUnit.SECONDS);
+            assertEquals(3, server.getRequestCount());
+            assertEquals("HEAD", server.takeRequest().getMethod());
+        }
+    }
+
+    @Test
+    void testSharedHttpClientIsNotShutDownByClose() throws Exception {
+        OkHttpClient shared = new OkHttpClient();
+        server.enqueue(new MockResponse().setBody("{\"models\":[]}"));
+        server.enqueue(new MockResponse().setBody("{\"models\":[]}"));
+
+        OllamaClient first = OllamaClient.builder().host(host).httpClient(shared).build();
+        OllamaClient second = OllamaClient.builder().host(host).httpClient(shared).build();
+        first.listAsync().get(5, TimeUnit.SECONDS);
+        first.close();
+        assertNotNull(second.listAsync().get(5, TimeUnit.SECONDS).getModels());
+        assertFalse(shared.dispatcher().executorService().isShutdown());
+        second.close();
+        shared.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    void testWithTimeoutKeepsAgents() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        OllamaClient client = OllamaClient.builder().host(host).build().withAgent(new Agent() {
+            @Override
+            public String getName() {
+                return "echo";
+            }
+
+            @Override
+            public String getDescription() {
+                return "Echoes the input";
+            }
+
+            @Override
+            public boolean canHandle(String input) {
+                return input.startsWith("echo");
+            }
+
+            @Override
+            public String execute(String input) {
+                calls.incrementAndGet();
+                return "agent saw: " + input;
+            }
+        });
+
+        server.enqueue(new MockResponse().setBody(
+                "{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\"done\"},\"done\":true}"));
+        try (OllamaClient copy = client.withReadTimeout(60)) {
+            ChatRequest request = new ChatRequest();
+            request.setModel("m");
+            request.getMessages().add(new Message(Message.Role.USER, "echo hello"));
+            assertEquals("done", copy.chat(request).getMessage().getContent());
+            assertEquals(1, calls.get());
+            assertTrue(server.takeRequest().getBody().readUtf8().contains("agent saw: echo hello"));
+        }
+    }
+}
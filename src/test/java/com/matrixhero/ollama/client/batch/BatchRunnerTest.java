@@ -0,0 +1,179 @@
+package com.matrixhero.ollama.client.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JSONL batch runner against a local stand-in server.
+ */
+class BatchRunnerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private MockWebServer server;
+    private OllamaClient client;
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.incrementAndGet();
+                try {
+                    JsonNode body = MAPPER.readTree(request.getBody().readUtf8());
+                    if (request.getPath().equals("/api/chat")) {
+                        String content = body.at("/messages/0/content").asText();
+                        return new MockResponse().setBody("{\"message\":{\"role\":\"assistant\",\"content\":\""
+                                + content.toUpperCase() + "\"},\"done\":true}");
+                    }
+                    String prompt = body.get("prompt").asText();
+                    if (failing.get() && prompt.startsWith("fail")) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                    return new MockResponse().setBody("{\"response\":\"" + prompt.toUpperCase() + "\",\"done\":true}");
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(400);
+                }
+            }
+        });
+        server.start();
+        client = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testRunsGenerateAndChatRecords() throws Exception {
+        Path input = dir.resolve("in.jsonl");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            lines.add(i % 3 == 0
+                    ? "{\"id\":\"c" + i + "\",\"model\":\"llama3\",\"messages\":[{\"role\":\"user\",\"content\":\"m" + i + "\"}]}"
+                    : "{\"model\":\"llama3\",\"prompt\":\"p" + i + "\"}");
+        }
+        lines.add("");
+        lines.add("not json");
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        Path output = dir.resolve("out.jsonl");
+
+        List<BatchRunner.Progress> reports = new ArrayList<>();
+        BatchRunner.Progress progress = new BatchRunner(client, input, output)
+                .withParallelism(4)
+                .withCheckpointEvery(7, 1, TimeUnit.MINUTES)
+                .withProgressListener(reports::add, 1, TimeUnit.HOURS)
+                .run();
+
+        assertEquals(31, progress.getTotal());
+        assertEquals(30, progress.getCompleted());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getRemaining());
+        assertEquals(0, progress.getInFlight());
+        assertTrue(progress.getThroughput() > 0);
+        assertEquals(1, reports.size());
+
+        Map<Integer, JsonNode> results = read(output);
+        assertEquals(30, results.size());
+        assertEquals("P1", results.get(1).at("/response/response").asText());
+        assertEquals("M3", results.get(3).at("/response/message/content").asText());
+        assertEquals("c3", results.get(3).get("id").asText());
+        assertTrue(Files.exists(dir.resolve("out.jsonl.checkpoint")));
+    }
+
+    @Test
+    void testResumeSkipsFinishedLinesAndRetriesFailures() throws Exception {
+        Path input = dir.resolve("in.jsonl");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lines.add("{\"model\":\"llama3\",\"prompt\":\"" + (i % 5 == 0 ? "fail" : "p") + i + "\"}");
+        }
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        Path output = dir.resolve("out.jsonl");
+
+        failing.set(true);
+        BatchRunner.Progress first = new BatchRunner(client, input, output).withParallelism(3).run();
+        assertEquals(16, first.getCompleted());
+        assertEquals(4, first.getFailed());
+        assertEquals(20, requests.get());
+
+        // A crash after the checkpoint leaves a torn line behind
+        Files.write(output, "{\"line\":99,\"resp".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        failing.set(false);
+        BatchRunner.Progress second = new BatchRunner(client, input, output).withParallelism(3).run();
+        assertEquals(16, second.getSkipped());
+        assertEquals(4, second.getCompleted());
+        assertEquals(0, second.getFailed());
+        assertEquals(24, requests.get());
+
+        Map<Integer, JsonNode> results = read(output);
+        assertEquals(20, results.size());
+        assertEquals("FAIL10", results.get(10).at("/response/response").asText());
+
+        BatchRunner.Progress third = new BatchRunner(client, input, output).run();
+        assertEquals(20, third.getSkipped());
+        assertEquals(0, third.getCompleted());
+        assertEquals(24, requests.get());
+        assertEquals(20, read(output).size());
+    }
+
+    @Test
+    void testAbortsAfterTooManyFailures() throws Exception {
+        Path input = dir.resolve("in.jsonl");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lines.add("{\"model\":\"llama3\",\"prompt\":\"fail" + i + "\"}");
+        }
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        failing.set(true);
+
+        BatchRunner runner = new BatchRunner(client, input, dir.resolve("out.jsonl"))
+                .withParallelism(1)
+                .withMaxFailures(2);
+        assertThrows(IOException.class, runner::run);
+        assertTrue(requests.get() < 50);
+    }
+
+    private static Map<Integer, JsonNode> read(Path output) throws IOException {
+        Map<Integer, JsonNode> results = new HashMap<>();
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            JsonNode node = MAPPER.readTree(line);
+            assertNull(results.put(node.get("line").asInt(), node), "Duplicate line " + node.get("line"));
+        }
+        return results;
+    }
+}
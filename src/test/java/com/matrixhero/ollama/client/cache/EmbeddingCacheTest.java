@@ -0,0 +1,114 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the two-tier embedding cache.
+ */
+class EmbeddingCacheTest {
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("{\"model\":\"nomic-embed-text\",\"embedding\":[0.25,-0.5,1.0]}");
+            }
+        });
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testMemoryTierHitsAndEvictions() throws IOException {
+        // Room for two three-dimensional entries
+        try (EmbeddingCache cache = new EmbeddingCache(client, 2 * (128 + 3 * 8))) {
+            cache.embed(request("a"));
+            cache.embed(request("b"));
+            EmbedResponse hit = cache.embed(request("a"));
+            assertArrayEquals(new double[]{0.25, -0.5, 1.0}, hit.getEmbedding());
+
+            // "b" is least recently used and gets evicted
+            cache.embed(request("c"));
+            cache.embed(request("b"));
+
+            EmbeddingCache.Stats stats = cache.stats();
+            assertEquals(1, stats.getMemoryHits());
+            assertEquals(4, stats.getMisses());
+            assertEquals(2, stats.getEvictions());
+            assertEquals(4, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testDiskTierSurvivesRestart() throws IOException {
+        Path file = tempDir.resolve("embeddings.cache");
+        try (EmbeddingCache cache = new EmbeddingCache(client, 1 << 20, file)) {
+            cache.embed(request("persisted"));
+        }
+
+        try (EmbeddingCache cache = new EmbeddingCache(client, 1 << 20, file)) {
+            EmbedResponse response = cache.embed(request("persisted"));
+            assertArrayEquals(new double[]{0.25, -0.5, 1.0}, response.getEmbedding());
+            assertEquals(1, cache.stats().getDiskHits());
+            assertEquals(1, cache.stats().getDiskEntries());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testTornRecordIsTruncated() throws IOException {
+        Path file = tempDir.resolve("embeddings.cache");
+        try (EmbeddingCache cache = new EmbeddingCache(client, 1 << 20, file)) {
+            cache.embed(request("complete"));
+        }
+        // Simulate a crash in the middle of an append
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}));
+        }
+
+        try (EmbeddingCache cache = new EmbeddingCache(client, 1 << 20, file)) {
+            assertEquals(1, cache.stats().getDiskEntries());
+            cache.embed(request("complete"));
+            cache.embed(request("appended"));
+            assertEquals(2, cache.stats().getDiskEntries());
+        }
+    }
+
+    private static EmbedRequest request(String input) {
+        EmbedRequest request = new EmbedRequest();
+        request.setModel("nomic-embed-text");
+        request.setInput(input);
+        return request;
+    }
+}
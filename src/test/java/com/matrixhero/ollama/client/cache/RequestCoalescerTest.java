@@ -0,0 +1,164 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for singleflight coalescing of identical in-flight calls.
+ */
+class RequestCoalescerTest {
+    private MockWebServer server;
+    private OllamaClient client;
+    private RequestCoalescer coalescer;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                switch (request.getPath()) {
+                    case "/api/embeddings":
+                        return new MockResponse().setBody("{\"embedding\":[0.5,0.25]}");
+                    case "/api/chat":
+                        StringBuilder frames = new StringBuilder();
+                        for (int i = 0; i < 5; i++) {
+                            frames.append("{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\"")
+                                    .append(i).append("\"},\"done\":").append(i == 4).append("}\n");
+                        }
+                        return new MockResponse().setBody(frames.toString())
+                                .throttleBody(90, 50, TimeUnit.MILLISECONDS);
+                    default:
+                        return new MockResponse().setBody("{\"model\":\"m\",\"response\":\"ok\",\"done\":true}");
+                }
+            }
+        });
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+        coalescer = new RequestCoalescer(client);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testConcurrentIdenticalEmbedsShareOneCall() throws Exception {
+        List<CompletableFuture<EmbedResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            EmbedRequest request = new EmbedRequest();
+            request.setModel("nomic-embed-text");
+            request.setInput("hello");
+            futures.add(coalescer.embedAsync(request));
+        }
+        release.countDown();
+        EmbedResponse first = futures.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<EmbedResponse> future : futures) {
+            assertSame(first, future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(7, coalescer.getStats().getCoalesced());
+    }
+
+    @Test
+    void testOnlyDeterministicGenerateIsCoalesced() throws Exception {
+        CompletableFuture<GenerateResponse> a = coalescer.generateAsync(generateRequest(0.8));
+        CompletableFuture<GenerateResponse> b = coalescer.generateAsync(generateRequest(0.8));
+        CompletableFuture<GenerateResponse> c = coalescer.generateAsync(generateRequest(0.0));
+        CompletableFuture<GenerateResponse> d = coalescer.generateAsync(generateRequest(0.0));
+        release.countDown();
+        for (CompletableFuture<GenerateResponse> future : Arrays.asList(a, b, c, d)) {
+            assertEquals("ok", future.get(5, TimeUnit.SECONDS).getResponse());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void testCancelledSubscriberDoesNotCancelOthers() throws Exception {
+        CompletableFuture<GenerateResponse> a = coalescer.generateAsync(generateRequest(0.0));
+        CompletableFuture<GenerateResponse> b = coalescer.generateAsync(generateRequest(0.0));
+        a.cancel(true);
+        release.countDown();
+        assertEquals("ok", b.get(5, TimeUnit.SECONDS).getResponse());
+    }
+
+    @Test
+    void testEveryCallerOfSharedChatGetsTheReply() throws Exception {
+        ChatRequest leader = chatRequest();
+        ChatRequest joiner = chatRequest();
+        CompletableFuture<ChatResponse> a = coalescer.chatAsync(leader);
+        CompletableFuture<ChatResponse> b = coalescer.chatAsync(joiner);
+        release.countDown();
+        assertSame(a.get(5, TimeUnit.SECONDS), b.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+
+        assertEquals(2, leader.getMessages().size());
+        assertEquals(leader.getMessages(), joiner.getMessages());
+        assertEquals(leader.getSystem(), joiner.getSystem());
+    }
+
+    @Test
+    void testLateJoinerOfChatStreamReceivesEveryFrame() throws Exception {
+        release.countDown();
+        try (Stream<ChatResponse> leader = coalescer.chatStream(chatRequest())) {
+            Iterator<ChatResponse> frames = leader.iterator();
+            assertEquals("0", frames.next().getMessage().getContent());
+            assertEquals("1", frames.next().getMessage().getContent());
+
+            try (Stream<ChatResponse> joiner = coalescer.chatStream(chatRequest())) {
+                String joined = joiner.map(frame -> frame.getMessage().getContent()).collect(Collectors.joining());
+                assertEquals("01234", joined);
+            }
+            StringBuilder rest = new StringBuilder();
+            frames.forEachRemaining(frame -> rest.append(frame.getMessage().getContent()));
+            assertEquals("234", rest.toString());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, coalescer.getStats().getCoalesced());
+    }
+
+    private static GenerateRequest generateRequest(double temperature) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("m");
+        request.setPrompt("hello");
+        Options options = new Options();
+        options.setTemperature(temperature);
+        request.setOptions(options);
+        return request;
+    }
+
+    private static ChatRequest chatRequest() {
+        ChatRequest request = new ChatRequest();
+        request.setModel("m");
+        request.getMessages().add(new Message(Message.Role.USER, "hi"));
+        Options options = new Options();
+        options.setSeed(42);
+        request.setOptions(options);
+        return request;
+    }
+}
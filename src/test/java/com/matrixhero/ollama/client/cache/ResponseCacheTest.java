@@ -0,0 +1,210 @@
+package com.matrixhero.ollama.client.cache;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the deterministic generate and chat response cache.
+ */
+class ResponseCacheTest {
+    private MockWebServer server;
+    private OllamaClient client;
+    private final AtomicLong clock = new AtomicLong();
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                boolean stream = request.getBody().readUtf8().contains("\"stream\":true");
+                if (request.getPath().equals("/api/chat")) {
+                    if (stream) {
+                        return new MockResponse().setBody(
+                                "{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\"Hel\"},\"done\":false}\n"
+                                        + "{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\"lo\"},\"done\":false}\n"
+                                        + "{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\"\"},"
+                                        + "\"done\":true,\"eval_count\":2,\"eval_duration\":7000000}\n");
+                    }
+                    return new MockResponse().setBody("{\"model\":\"m\",\"message\":{\"role\":\"assistant\","
+                            + "\"content\":\"Hello\"},\"done\":true,\"eval_count\":2,\"eval_duration\":7000000}");
+                }
+                return new MockResponse().setBody("{\"model\":\"m\",\"response\":\"four\",\"done\":true,"
+                        + "\"context\":[1,2,3],\"eval_duration\":5000000,\"total_duration\":9000000}");
+            }
+        });
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+        cache = new ResponseCache(client, 1 << 20, 1, TimeUnit.MINUTES, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    private static GenerateRequest generateRequest(String prompt, Integer seed) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("m");
+        request.setPrompt(prompt);
+        Options options = new Options();
+        options.setSeed(seed);
+        request.setOptions(options);
+        return request;
+    }
+
+    private static ChatRequest chatRequest() {
+        ChatRequest request = new ChatRequest();
+        request.setModel("m");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "hi")));
+        Options options = new Options();
+        options.setTemperature(0.0);
+        request.setOptions(options);
+        return request;
+    }
+
+    @Test
+    void testDeterministicGenerateIsServedFromCache() throws Exception {
+        GenerateResponse first = cache.generate(generateRequest("2+2?", 42));
+        GenerateResponse second = cache.generate(generateRequest("2+2?", 42));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals("four", second.getResponse());
+        assertEquals(first.getContext(), second.getContext());
+        assertNotSame(first, second);
+        ResponseCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate(), 1e-9);
+        assertEquals(5000000, stats.getSavedEvalDuration());
+        assertEquals(9000000, stats.getSavedTotalDuration());
+    }
+
+    @Test
+    void testNonDeterministicRequestBypassesCache() throws Exception {
+        cache.generate(generateRequest("2+2?", null));
+        cache.generate(generateRequest("2+2?", null));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, cache.stats().getUncacheable());
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    @Test
+    void testStreamedChatIsCachedAndReplayed() throws Exception {
+        List<ChatResponse> live;
+        try (Stream<ChatResponse> stream = cache.chatStream(chatRequest())) {
+            live = stream.collect(Collectors.toList());
+        }
+        assertEquals(3, live.size());
+
+        ChatResponse unary = cache.chat(chatRequest());
+        assertEquals("Hello", unary.getMessage().getContent());
+        assertEquals(7000000L, unary.getEvalDuration());
+
+        List<ChatResponse> replayed;
+        try (Stream<ChatResponse> stream = cache.chatStream(chatRequest())) {
+            replayed = stream.collect(Collectors.toList());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals("Hello", replayed.stream().map(r -> r.getMessage().getContent()).collect(Collectors.joining()));
+        ChatResponse last = replayed.get(replayed.size() - 1);
+        assertTrue(last.getDone());
+        assertEquals(2, last.getEvalCount());
+        assertFalse(replayed.get(0).getDone());
+        assertEquals(2, cache.stats().getHits());
+    }
+
+    @Test
+    void testChatHitUpdatesHistoryLikeMiss() throws Exception {
+        ChatRequest missed = chatRequest();
+        cache.chat(missed);
+        ChatRequest hit = chatRequest();
+        assertEquals("Hello", cache.chatAsync(hit).get(5, TimeUnit.SECONDS).getMessage().getContent());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.stats().getHits());
+
+        assertEquals(2, hit.getMessages().size());
+        assertEquals(missed.getMessages(), hit.getMessages());
+        assertEquals(missed.getSystem(), hit.getSystem());
+    }
+
+    @Test
+    void testStreamImageIsKeyedWithoutBeingRead() throws Exception {
+        ChatRequest cached = chatRequest();
+        cached.getMessages().get(0).setImages(Collections.singletonList(streamImage()));
+        assertEquals("Hello", cache.chat(cached).getMessage().getContent());
+
+        ChatRequest coalesced = chatRequest();
+        coalesced.getMessages().get(0).setImages(Collections.singletonList(streamImage()));
+        assertEquals("Hello", new RequestCoalescer(client).chat(coalesced).getMessage().getContent());
+        assertEquals(2, server.getRequestCount());
+
+        // Equal bytes from another stream cannot be recognized without reading them
+        ChatRequest again = chatRequest();
+        again.getMessages().get(0).setImages(Collections.singletonList(streamImage()));
+        cache.chat(again);
+        assertEquals(0, cache.stats().getHits());
+
+        // Images that can be read again are keyed by their content
+        ChatRequest bytes = chatRequest();
+        bytes.getMessages().get(0).setImages(Collections.singletonList(new Image(new byte[]{1, 2, 3})));
+        cache.chat(bytes);
+        ChatRequest sameBytes = chatRequest();
+        sameBytes.getMessages().get(0).setImages(Collections.singletonList(new Image(new byte[]{1, 2, 3})));
+        cache.chat(sameBytes);
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(4, server.getRequestCount());
+    }
+
+    private static Image streamImage() {
+        return Image.of(new ByteArrayInputStream(new byte[]{1, 2, 3}), 3);
+    }
+
+    @Test
+    void testEntriesExpire() throws Exception {
+        cache.generate(generateRequest("2+2?", 42));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        cache.generate(generateRequest("2+2?", 42));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenOverWeight() throws Exception {
+        cache = new ResponseCache(client, 700, 1, TimeUnit.MINUTES, clock::get);
+        cache.generate(generateRequest("a", 1));
+        cache.generate(generateRequest("b", 1));
+        cache.generate(generateRequest("a", 1));
+        cache.generate(generateRequest("c", 1));
+
+        ResponseCache.Stats stats = cache.stats();
+        assertEquals(2, stats.getEntries());
+        assertEquals(1, stats.getEvictions());
+        assertTrue(stats.getWeight() <= 700);
+
+        cache.generate(generateRequest("a", 1));
+        assertEquals(3, server.getRequestCount());
+    }
+}
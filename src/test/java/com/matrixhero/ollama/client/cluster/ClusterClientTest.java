@@ -0,0 +1,201 @@
+package com.matrixhero.ollama.client.cluster;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import com.matrixhero.ollama.client.model.Message;
+import com.matrixhero.ollama.client.resilience.AdaptiveConcurrencyLimiter;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for model-aware routing across several servers.
+ */
+class ClusterClientTest {
+    private MockWebServer first;
+    private MockWebServer second;
+    private ClusterClient cluster;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        first = new MockWebServer();
+        second = new MockWebServer();
+        first.setDispatcher(new NodeDispatcher("first", "{\"models\":[{\"name\":\"llama3:latest\"}]}",
+                "{\"models\":[{\"name\":\"llama3:latest\"},{\"name\":\"qwen2.5:7b\"}]}"));
+        second.setDispatcher(new NodeDispatcher("second", "{\"models\":[]}",
+                "{\"models\":[{\"name\":\"llama3:latest\"},{\"name\":\"mistral:latest\"},"
+                        + "{\"name\":\"registry:5000/llava:latest\"}]}"));
+        first.start();
+        second.start();
+        cluster = new ClusterClient(Arrays.asList(url(first), url(second))).withPollInterval(0, TimeUnit.SECONDS);
+        cluster.refresh().get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        cluster.close();
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    void testPrefersNodeWithModelLoadedOrInstalled() throws Exception {
+        assertEquals("first", cluster.generate(request("llama3")).getResponse());
+        assertEquals("second", cluster.generate(request("mistral")).getResponse());
+        assertEquals("first", cluster.generate(request("qwen2.5:7b")).getResponse());
+    }
+
+    @Test
+    void testRegistryPortIsNotTakenForTag() throws Exception {
+        // Ties are broken from a random node, so a node ranked wrongly would be picked sooner or later
+        for (int i = 0; i < 20; i++) {
+            assertSame(cluster.getNodes().get(1), cluster.select("registry:5000/llava"));
+        }
+        assertEquals("second", cluster.generate(request("registry:5000/llava")).getResponse());
+    }
+
+    @Test
+    void testBuilderKeepsItsHost() {
+        OllamaClient.Builder builder = OllamaClient.builder().host("http://localhost:1");
+        try (ClusterClient other = new ClusterClient(Arrays.asList(url(first), url(second)), builder)
+                .withPollInterval(0, TimeUnit.SECONDS);
+             OllamaClient client = builder.build()) {
+            assertEquals(url(second), other.getNodes().get(1).getHost());
+            assertEquals("http://localhost:1", client.getHost());
+        }
+    }
+
+    @Test
+    void testFallsBackToLeastBusyNodeBeyondSlack() throws Exception {
+        cluster.withLoadedModelSlack(1);
+        CompletableFuture<GenerateResponse> a = cluster.generateAsync(blocking("llama3"));
+        CompletableFuture<GenerateResponse> b = cluster.generateAsync(blocking("llama3"));
+        CompletableFuture<GenerateResponse> c = cluster.generateAsync(blocking("llama3"));
+        // first has llama3 loaded and keeps it until it is more than one request busier than second
+        assertEquals(2, cluster.getNodes().get(0).getOutstanding());
+        assertEquals(1, cluster.getNodes().get(1).getOutstanding());
+        assertTrue(cluster.getNodes().get(1).isLoaded("llama3"));
+
+        release.countDown();
+        assertEquals("first", a.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals("first", b.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals("second", c.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals(0, cluster.getNodes().get(0).getOutstanding());
+        assertEquals(0, cluster.getNodes().get(1).getOutstanding());
+    }
+
+    @Test
+    void testStreamReleasesNodeWhenExhausted() throws Exception {
+        GenerateRequest request = request("mistral");
+        try (Stream<GenerateResponse> stream = cluster.generateStream(request)) {
+            assertEquals(1, cluster.getNodes().get(1).getOutstanding());
+            assertEquals(1, stream.count());
+            assertEquals(0, cluster.getNodes().get(1).getOutstanding());
+        }
+        assertEquals(0, cluster.getNodes().get(1).getOutstanding());
+    }
+
+    @Test
+    void testChatFailoverLeavesHistoryAsOneCall() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter()
+                .withLimits(1, 1, 1)
+                .withQueue(4, 200, TimeUnit.MILLISECONDS);
+        OllamaClient.Builder builder = OllamaClient.builder().concurrencyLimiter(limiter);
+        try (ClusterClient limited = new ClusterClient(Arrays.asList(url(first), url(second)), builder)
+                .withPollInterval(0, TimeUnit.SECONDS)) {
+            limited.refresh().get(5, TimeUnit.SECONDS);
+            // Occupies the only slot on first, the only node with the model installed
+            CompletableFuture<GenerateResponse> busy = limited.generateAsync(blocking("qwen2.5:7b"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (limiter.getStats().stream().noneMatch(stats -> "qwen2.5:7b".equals(stats.getModel())
+                            && stats.getInFlight() == 1)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            ChatRequest request = chat();
+            assertEquals("second", limited.chat(request).getMessage().getContent());
+            ChatRequest direct = chat();
+            limited.getNodes().get(1).getClient().chat(direct);
+            assertEquals(direct.getMessages(), request.getMessages());
+            assertEquals(direct.getSystem(), request.getSystem());
+
+            release.countDown();
+            assertEquals("first", busy.get(5, TimeUnit.SECONDS).getResponse());
+        }
+    }
+
+    private static ChatRequest chat() {
+        ChatRequest request = new ChatRequest();
+        request.setModel("qwen2.5:7b");
+        request.setSystem("Be brief");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "hello")));
+        return request;
+    }
+
+    private static GenerateRequest request(String model) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel(model);
+        request.setPrompt("hello");
+        return request;
+    }
+
+    private static GenerateRequest blocking(String model) {
+        GenerateRequest request = request(model);
+        request.setPrompt("block");
+        return request;
+    }
+
+    private static String url(MockWebServer server) {
+        return "http://" + server.getHostName() + ":" + server.getPort();
+    }
+
+    private class NodeDispatcher extends Dispatcher {
+        private final String name;
+        private final String running;
+        private final String installed;
+
+        NodeDispatcher(String name, String running, String installed) {
+            this.name = name;
+            this.running = running;
+            this.installed = installed;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            String path = request.getPath();
+            if ("/api/ps".equals(path)) {
+                return new MockResponse().setBody(running);
+            }
+            if ("/api/tags".equals(path)) {
+                return new MockResponse().setBody(installed);
+            }
+            if (request.getBody().clone().readUtf8().contains("\"block\"")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            if ("/api/chat".equals(path)) {
+                return new MockResponse().setBody("{\"model\":\"m\",\"message\":{\"role\":\"assistant\",\"content\":\""
+                        + name + "\"},\"done\":true}");
+            }
+            return new MockResponse().setBody("{\"model\":\"m\",\"response\":\"" + name + "\",\"done\":true}");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.matrixhero.ollama.client.embed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for batched embedding against a local server that embeds "tN" as [N].
+ */
+class BatchEmbedderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testVectorsInInputOrderAndOnlyFailedBatchRetried() throws Exception {
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    JsonNode input = objectMapper.readTree(request.getBody().readUtf8()).get("input");
+                    // The batch holding t4 fails once
+                    if (input.toString().contains("\"t4\"") && failedOnce.compareAndSet(false, true)) {
+                        return new MockResponse().setResponseCode(500).setBody("{\"error\":\"busy\"}");
+                    }
+                    StringBuilder body = new StringBuilder("{\"model\":\"nomic-embed-text\",\"embeddings\":[");
+                    for (int i = 0; i < input.size(); i++) {
+                        body.append(i == 0 ? "" : ",").append('[').append(input.get(i).asText().substring(1)).append(']');
+                    }
+                    return new MockResponse().setBody(body.append("]}").toString());
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(400);
+                }
+            }
+        });
+
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            inputs.add("t" + i);
+        }
+
+        List<double[]> vectors = new BatchEmbedder(client)
+                .withBatchSize(3)
+                .withParallelism(2)
+                .withRetries(2, 10)
+                .embed("nomic-embed-text", inputs);
+
+        assertEquals(10, vectors.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, vectors.get(i)[0], 0.0);
+        }
+        // Four batches plus a single retry of the failed one
+        assertEquals(5, server.getRequestCount());
+        assertEquals("/api/embed", server.takeRequest().getPath());
+    }
+
+    @Test
+    void testFloatBatchesLandInOneContiguousMatrix() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    JsonNode input = objectMapper.readTree(request.getBody().readUtf8()).get("input");
+                    StringBuilder body = new StringBuilder("{\"model\":\"nomic-embed-text\",\"embeddings\":[");
+                    for (int i = 0; i < input.size(); i++) {
+                        String n = input.get(i).asText().substring(1);
+                        body.append(i == 0 ? "" : ",").append('[').append(n).append(',').append(n).append(".5]");
+                    }
+                    return new MockResponse().setBody(body.append("]}").toString());
+                } catch (IOException e) {
+                    return new MockResponse().setResponseCode(400);
+                }
+            }
+        });
+
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            inputs.add("t" + i);
+        }
+
+        EmbeddingMatrix matrix = new BatchEmbedder(client)
+                .withBatchSize(3)
+                .embedFloat("nomic-embed-text", inputs);
+
+        assertEquals(7, matrix.rows());
+        assertEquals(2, matrix.dimension());
+        assertEquals(14, matrix.data().length);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i, matrix.get(i, 0), 0.0f);
+            assertEquals(i + 0.5f, matrix.rowBuffer(i).get(1), 0.0f);
+        }
+    }
+
+    @Test
+    void testGivesUpAfterRetries() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(500);
+            }
+        });
+
+        List<String> inputs = new ArrayList<>();
+        inputs.add("t0");
+        OllamaResponseException e = assertThrows(OllamaResponseException.class, () -> new BatchEmbedder(client)
+                .withRetries(1, 1)
+                .embed("nomic-embed-text", inputs));
+        assertEquals(500, e.getStatusCode());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void testClientErrorIsNotRetried() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(404).setBody("{\"error\":\"model not found\"}");
+            }
+        });
+
+        OllamaResponseException e = assertThrows(OllamaResponseException.class, () -> new BatchEmbedder(client)
+                .withRetries(3, 1)
+                .embed("missing", Collections.singletonList("t0")));
+        assertEquals(404, e.getStatusCode());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void testMatrixTooLargeForOneArrayFailsClearly() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("{\"embeddings\":[[1.0,2.0],[3.0,4.0]]}");
+            }
+        });
+        List<String> inputs = new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return "t" + index;
+            }
+
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE;
+            }
+        };
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new BatchEmbedder(client)
+                .withBatchSize(2)
+                .withParallelism(1)
+                .embedFloat("nomic-embed-text", inputs));
+        assertTrue(e.getMessage().contains("do not fit in one array"));
+    }
+}
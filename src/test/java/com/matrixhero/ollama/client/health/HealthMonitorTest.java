@@ -0,0 +1,184 @@
+package com.matrixhero.ollama.client.health;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.cluster.ClusterClient;
+import com.matrixhero.ollama.client.exception.CircuitOpenException;
+import com.matrixhero.ollama.client.exception.OllamaTimeoutException;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for circuit breaking against a server that stalls.
+ */
+class HealthMonitorTest {
+    private static final String OK = "{\"model\":\"m\",\"response\":\"ok\",\"done\":true}";
+
+    private MockWebServer server;
+    private HealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        monitor = new HealthMonitor()
+                .withWindowSize(4)
+                .withMinimumCalls(2)
+                .withFailureRateThreshold(0.5)
+                .withOpenDuration(500, TimeUnit.MILLISECONDS)
+                .withHalfOpenPermits(1)
+                .withProbe(0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        monitor.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testOpensOnStallsFailsFastAndRecovers() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        try (OllamaClient client = client(server)) {
+            assertThrows(OllamaTimeoutException.class, () -> client.generate(request()));
+            assertThrows(OllamaTimeoutException.class, () -> client.generate(request()));
+            CircuitBreaker breaker = monitor.breaker(client.getHost());
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertFalse(client.isAvailable());
+
+            long start = System.nanoTime();
+            assertThrows(CircuitOpenException.class, () -> client.generate(request()));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+            assertEquals(2, server.getRequestCount());
+
+            Thread.sleep(600);
+            assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+            server.enqueue(new MockResponse().setBody(OK));
+            assertEquals("ok", client.generate(request()).getResponse());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        }
+    }
+
+    @Test
+    void testHalfOpenFailureReopens() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        try (OllamaClient client = client(server)) {
+            assertThrows(IOException.class, () -> client.generate(request()));
+            assertThrows(IOException.class, () -> client.generate(request()));
+            Thread.sleep(600);
+            assertThrows(IOException.class, () -> client.generate(request()));
+            assertEquals(3, server.getRequestCount());
+            assertEquals(CircuitBreaker.State.OPEN, monitor.breaker(client.getHost()).getState());
+        }
+    }
+
+    @Test
+    void testProbesOpenIdleNodeAndClusterFailsOver() throws Exception {
+        MockWebServer healthy = new MockWebServer();
+        healthy.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(okhttp3.mockwebserver.RecordedRequest request) {
+                return new MockResponse().setBody(request.getPath().startsWith("/api/generate")
+                        ? OK : "{\"models\":[]}");
+            }
+        });
+        healthy.start();
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+            @Override
+            public MockResponse dispatch(okhttp3.mockwebserver.RecordedRequest request) {
+                return new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE);
+            }
+        });
+        monitor.withOpenDuration(1, TimeUnit.MINUTES).withProbe(50, 100, TimeUnit.MILLISECONDS);
+        OllamaClient.Builder builder = OllamaClient.builder()
+                .readTimeout(Duration.ofMillis(200))
+                .healthMonitor(monitor);
+        try (ClusterClient cluster = new ClusterClient(Arrays.asList(url(server), url(healthy)), builder)
+                .withPollInterval(0, TimeUnit.SECONDS)) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cluster.getNodes().get(0).getClient().isAvailable() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertFalse(cluster.getNodes().get(0).getClient().isAvailable());
+            for (int i = 0; i < 5; i++) {
+                assertEquals("ok", cluster.generate(request()).getResponse());
+            }
+        } finally {
+            healthy.shutdown();
+        }
+    }
+
+    @Test
+    void testLongGenerationsAreNotSlowCalls() throws Exception {
+        monitor.withSlowCallThreshold(50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody(OK).setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        }
+        try (OllamaClient client = client(server)) {
+            // Headers of a non-streaming generation arrive with the whole answer
+            for (int i = 0; i < 4; i++) {
+                assertEquals("ok", client.generate(request()).getResponse());
+            }
+            CircuitBreaker breaker = monitor.breaker(client.getHost());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(0.0, breaker.getFailureRate());
+
+            // A stream that is slow to its first token is slow
+            for (int i = 0; i < 2; i++) {
+                server.enqueue(new MockResponse().setBody(OK + "\n").setHeadersDelay(100, TimeUnit.MILLISECONDS));
+                try (Stream<GenerateResponse> stream = client.generateStream(request())) {
+                    stream.forEach(frame -> { });
+                }
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+    }
+
+    @Test
+    void testCloseStopsProbesOnceLastClientIsClosed() {
+        monitor.withProbe(1, 1, TimeUnit.MINUTES);
+        OllamaClient first = client(server);
+        OllamaClient second = client(server);
+        assertTrue(monitor.isWatched(first.getHost()));
+        first.close();
+        first.close();
+        assertTrue(monitor.isWatched(first.getHost()));
+        second.close();
+        assertFalse(monitor.isWatched(first.getHost()));
+    }
+
+    private OllamaClient client(MockWebServer server) {
+        return OllamaClient.builder()
+                .host(url(server))
+                .readTimeout(Duration.ofMillis(200))
+                .healthMonitor(monitor)
+                .build();
+    }
+
+    private static GenerateRequest request() {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("m");
+        request.setPrompt("hello");
+        return request;
+    }
+
+    private static String url(MockWebServer server) {
+        return "http://" + server.getHostName() + ":" + server.getPort();
+    }
+}
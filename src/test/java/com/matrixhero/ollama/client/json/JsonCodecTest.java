@@ -0,0 +1,67 @@
+package com.matrixhero.ollama.client.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.ChatResponse;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cached readers and writers and the accelerated mode.
+ */
+class JsonCodecTest {
+    private static final String FRAME = "{\"model\":\"m\",\"created_at\":\"2024-01-01T00:00:00Z\","
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"你好\"},\"done\":true,\"eval_count\":3,\"eval_duration\":42}";
+
+    @Test
+    void testReadersAndWritersAreCached() {
+        JsonCodec codec = new JsonCodec(new ObjectMapper());
+        assertSame(codec.reader(ChatResponse.class), codec.reader(ChatResponse.class));
+        assertSame(codec.writer(GenerateRequest.class), codec.writer(GenerateRequest.class));
+    }
+
+    @Test
+    void testAcceleratedCodecBindsTheSameValues() throws Exception {
+        assertTrue(JsonCodec.isAccelerationAvailable());
+        byte[] json = FRAME.getBytes(StandardCharsets.UTF_8);
+
+        ChatResponse plain = JsonCodec.defaults().read(json, ChatResponse.class);
+        ChatResponse accelerated = JsonCodec.accelerated().read(json, ChatResponse.class);
+
+        assertEquals(plain, accelerated);
+        assertEquals("你好", accelerated.getMessage().getContent());
+        assertEquals(42L, accelerated.getEvalDuration());
+    }
+
+    @Test
+    void testClientStreamsThroughConfiguredCodec() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().setBody("{\"response\":\"he\",\"done\":false}\n{\"response\":\"llo\",\"done\":true}\n"));
+            server.start();
+            OllamaClient client = OllamaClient.builder()
+                    .host("http://" + server.getHostName() + ":" + server.getPort())
+                    .jsonCodec(JsonCodec.accelerated())
+                    .build();
+            GenerateRequest request = new GenerateRequest();
+            request.setModel("m");
+            request.setPrompt("hi");
+            List<String> frames;
+            try (Stream<GenerateResponse> stream = client.generateStream(request)) {
+                frames = stream.map(GenerateResponse::getResponse).collect(Collectors.toList());
+            }
+            assertEquals(Arrays.asList("he", "llo"), frames);
+            client.close();
+        }
+    }
+}
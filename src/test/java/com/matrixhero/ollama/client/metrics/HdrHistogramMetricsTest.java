@@ -0,0 +1,104 @@
+package com.matrixhero.ollama.client.metrics;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the client timings recorded into HdrHistogram series.
+ */
+class HdrHistogramMetricsTest {
+    private MockWebServer server;
+    private HdrHistogramMetrics metrics;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        metrics = new HdrHistogramMetrics();
+        client = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .maxRequests(1)
+                .metrics(metrics)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    private static GenerateRequest generateRequest() {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llama3");
+        request.setPrompt("hi");
+        return request;
+    }
+
+    @Test
+    void testRecordsLatencyAndServerTokensPerSecond() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\",\"content\":\"ok\"},"
+                + "\"done\":true,\"total_duration\":3000000000,\"eval_count\":50,\"eval_duration\":2000000000}"));
+        ChatRequest request = new ChatRequest();
+        request.setModel("llama3");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "hi")));
+        client.chat(request);
+
+        HdrHistogramMetrics.Series series = metrics.get("/api/chat", "llama3");
+        assertNotNull(series);
+        assertEquals(1, series.getLatency().getTotalCount());
+        assertEquals(25.0, series.getTokensPerSecond().getValueAtPercentile(50), 0.1);
+        assertEquals(0, series.getFailures());
+    }
+
+    @Test
+    void testRecordsTimeToFirstTokenAndGaps() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"model\":\"llama3\",\"response\":\"a\",\"done\":false}\n"
+                        + "{\"model\":\"llama3\",\"response\":\"b\",\"done\":false}\n"
+                        + "{\"model\":\"llama3\",\"response\":\"c\",\"done\":false}\n"
+                        + "{\"model\":\"llama3\",\"response\":\"\",\"done\":true,\"eval_count\":3,\"eval_duration\":30000000,"
+                        + "\"total_duration\":40000000}\n")
+                .throttleBody(45, 30, TimeUnit.MILLISECONDS));
+        try (Stream<GenerateResponse> frames = client.generateStream(generateRequest())) {
+            assertEquals(4, frames.count());
+        }
+
+        HdrHistogramMetrics.Series series = metrics.get("/api/generate", "llama3");
+        assertEquals(1, series.getTimeToFirstToken().getTotalCount());
+        assertEquals(2, series.getTokenGap().getTotalCount());
+        assertTrue(series.getTokenGap().getMinValue() >= TimeUnit.MILLISECONDS.toNanos(15));
+        assertEquals(1, series.getLatency().getTotalCount());
+        assertEquals(100.0, series.getTokensPerSecond().getValueAtPercentile(50), 0.5);
+    }
+
+    @Test
+    void testRecordsDispatcherQueueTimeAndFailures() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"model\":\"llama3\",\"response\":\"a\",\"done\":true}")
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        CompletableFuture<GenerateResponse> first = client.generateAsync(generateRequest());
+        CompletableFuture<GenerateResponse> second = client.generateAsync(generateRequest());
+        first.get(5, TimeUnit.SECONDS);
+        assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+
+        HdrHistogramMetrics.Series series = metrics.get("/api/generate", "llama3");
+        assertEquals(2, series.getQueueTime().getTotalCount());
+        assertTrue(series.getQueueTime().getMaxValue() >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(1, series.getFailures());
+    }
+}
@@ -0,0 +1,107 @@
+package com.matrixhero.ollama.client.metrics;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for cold-load classification and reload thrash detection.
+ */
+class ModelLoadDetectorTest {
+    private static final long COLD = TimeUnit.SECONDS.toNanos(3);
+    private static final long WARM = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void testClassifiesFromClientResponses() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ModelLoadDetector detector = new ModelLoadDetector();
+            HdrHistogramMetrics histograms = new HdrHistogramMetrics();
+            OllamaClient client = OllamaClient.builder()
+                    .host("http://" + server.getHostName() + ":" + server.getPort())
+                    .metrics(ClientMetrics.composite(histograms, detector.forNode("node-a")))
+                    .build();
+            server.enqueue(json("{\"model\":\"llama3\",\"response\":\"hi\",\"done\":true,"
+                    + "\"total_duration\":4000000000,\"load_duration\":" + COLD + "}"));
+            server.enqueue(json("{\"model\":\"llama3\",\"response\":\"hi\",\"done\":true,"
+                    + "\"total_duration\":90000000,\"load_duration\":" + WARM + "}"));
+
+            GenerateRequest request = new GenerateRequest();
+            request.setModel("llama3");
+            request.setPrompt("hello");
+            client.generate(request);
+            client.generate(request);
+
+            ModelLoadDetector.ModelStats stats = detector.getStats("node-a", "llama3");
+            assertEquals(2, stats.getResponses());
+            assertEquals(1, stats.getColdLoads());
+            assertEquals(0.5, stats.getColdRate(), 1e-9);
+            assertEquals(COLD, stats.getMaxLoadDuration());
+            assertNull(detector.getStats(ModelLoadDetector.DEFAULT_NODE, "llama3"));
+            assertEquals(2, histograms.get("/api/generate", "llama3").getLatency().getTotalCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void testThrashEventOncePerWindow() {
+        AtomicLong clock = new AtomicLong();
+        List<ModelLoadDetector.ThrashEvent> events = new ArrayList<>();
+        List<String> coldLoads = new ArrayList<>();
+        ModelLoadDetector detector = new ModelLoadDetector(clock::get)
+                .withThrashThreshold(3, 1, TimeUnit.MINUTES)
+                .withListener(new ModelLoadDetector.Listener() {
+                    @Override
+                    public void coldLoad(String node, String model, long loadNanos) {
+                        coldLoads.add(model);
+                    }
+
+                    @Override
+                    public void thrash(ModelLoadDetector.ThrashEvent event) {
+                        events.add(event);
+                    }
+                });
+
+        for (String model : Arrays.asList("llama3", "mistral", "llama3", "mistral", "llama3")) {
+            detector.record("a", model, COLD);
+            detector.record("a", model, WARM);
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        }
+        assertEquals(Arrays.asList("llama3", "mistral", "llama3", "mistral", "llama3"), coldLoads);
+        assertEquals(1, events.size());
+        assertEquals("a", events.get(0).getNode());
+        assertEquals(3, events.get(0).getReloads());
+        assertEquals(Arrays.asList("llama3", "mistral"), events.get(0).getModels());
+        assertEquals(5, detector.getRecentReloads("a"));
+        assertEquals(5.0, detector.getReloadRate("a"), 1e-9);
+
+        // A quiet window lets the reloads expire and a new burst report again
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertEquals(0, detector.getRecentReloads("a"));
+        for (int i = 0; i < 3; i++) {
+            detector.record("a", "llama3", COLD);
+        }
+        assertEquals(2, events.size());
+        assertEquals(Collections.singletonList("llama3"), events.get(1).getModels());
+        assertEquals(2, detector.getThrashEvents());
+        assertEquals(0, detector.getRecentReloads("b"));
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setBody(body).addHeader("Content-Type", "application/json");
+    }
+}
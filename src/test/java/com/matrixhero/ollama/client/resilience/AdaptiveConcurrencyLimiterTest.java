@@ -0,0 +1,185 @@
+package com.matrixhero.ollama.client.resilience;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.exception.ConcurrencyLimitException;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the adaptive per-model concurrency limit against a local server.
+ */
+class AdaptiveConcurrencyLimiterTest {
+    private static final String FRAME = "{\"model\":\"llama3\",\"response\":\"a\",\"done\":false}\n";
+    private static final String DONE = "{\"model\":\"llama3\",\"response\":\"\",\"done\":true}\n";
+
+    private MockWebServer server;
+    private String host;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        host = "http://" + server.getHostName() + ":" + server.getPort();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void testStreamHoldsSlotAndExcessIsShed() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter()
+                .withLimits(1, 1, 1)
+                .withQueue(0, 0, TimeUnit.MILLISECONDS);
+        try (OllamaClient client = OllamaClient.builder().host(host).concurrencyLimiter(limiter).build()) {
+            server.enqueue(new MockResponse().setBody(FRAME + FRAME + DONE));
+            server.enqueue(new MockResponse().setBody("{\"embedding\":[1.0]}"));
+
+            try (Stream<GenerateResponse> stream = client.generateStream(generateRequest())) {
+                Iterator<GenerateResponse> frames = stream.iterator();
+                assertEquals("a", frames.next().getResponse());
+                assertEquals(1, limiter.getStats().get(0).getInFlight());
+                assertThrows(ConcurrencyLimitException.class, () -> client.generate(generateRequest()));
+            }
+            assertEquals(1, server.getRequestCount());
+
+            // The closed stream gave its slot back; other models have their own limit
+            EmbedRequest embed = new EmbedRequest();
+            embed.setModel("nomic-embed-text");
+            embed.setInput("hi");
+            assertArrayEquals(new double[]{1.0}, client.embed(embed).getEmbedding());
+            AdaptiveConcurrencyLimiter.Stats stats = limiter.getStats().stream()
+                    .filter(s -> s.getModel().equals("llama3")).findFirst().get();
+            assertEquals(0, stats.getInFlight());
+            assertEquals(1, stats.getAccepted());
+            assertEquals(1, stats.getShed());
+        }
+    }
+
+    @Test
+    void testExcessWaitsForSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter()
+                .withLimits(1, 1, 1)
+                .withQueue(4, 5, TimeUnit.SECONDS);
+        try (OllamaClient client = OllamaClient.builder().host(host).concurrencyLimiter(limiter).build()) {
+            server.enqueue(new MockResponse().setBody(FRAME + DONE));
+            server.enqueue(new MockResponse().setBody("{\"model\":\"llama3\",\"response\":\"b\",\"done\":true}"));
+
+            CompletableFuture<GenerateResponse> queued;
+            try (Stream<GenerateResponse> stream = client.generateStream(generateRequest())) {
+                stream.iterator().next();
+                queued = client.generateAsync(generateRequest());
+                long deadline = System.currentTimeMillis() + 5000;
+                while (limiter.getQueueDepth(host, "llama3") == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(1, limiter.getQueueDepth(host, "llama3"));
+                assertFalse(queued.isDone());
+            }
+            assertEquals("b", queued.get(5, TimeUnit.SECONDS).getResponse());
+            assertEquals(0, limiter.getQueueDepth(host, "llama3"));
+        }
+    }
+
+    @Test
+    void testQueuedAsyncCallsLeaveDispatcherToOtherModels() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter()
+                .withLimits(1, 1, 1)
+                .withQueue(4, 5, TimeUnit.SECONDS);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String body = request.getBody().readUtf8();
+                if (body.contains("\"stream\":true")) {
+                    return new MockResponse().setBody(FRAME + DONE);
+                }
+                String model = body.contains("mistral") ? "mistral" : "llama3";
+                return new MockResponse().setBody("{\"model\":\"" + model + "\",\"response\":\"b\",\"done\":true}");
+            }
+        });
+        try (OllamaClient client = OllamaClient.builder().host(host).concurrencyLimiter(limiter)
+                .maxRequestsPerHost(2).build()) {
+            List<CompletableFuture<GenerateResponse>> queued = new ArrayList<>();
+            try (Stream<GenerateResponse> stream = client.generateStream(generateRequest())) {
+                stream.iterator().next();
+                for (int i = 0; i < 3; i++) {
+                    queued.add(client.generateAsync(generateRequest()));
+                }
+                assertEquals(3, limiter.getQueueDepth(host, "llama3"));
+
+                // Waiting llama3 calls hold neither dispatcher threads nor the host's two slots
+                GenerateRequest other = generateRequest();
+                other.setModel("mistral");
+                assertEquals("mistral", client.generateAsync(other).get(5, TimeUnit.SECONDS).getModel());
+                assertTrue(queued.stream().noneMatch(CompletableFuture::isDone));
+            }
+            for (CompletableFuture<GenerateResponse> call : queued) {
+                assertEquals("b", call.get(5, TimeUnit.SECONDS).getResponse());
+            }
+            assertEquals(0, limiter.getQueueDepth(host, "llama3"));
+            assertEquals(0, limiter.getStats().stream().mapToInt(AdaptiveConcurrencyLimiter.Stats::getInFlight).sum());
+        }
+    }
+
+    @Test
+    void testCanceledWaiterLeavesQueue() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter()
+                .withLimits(1, 1, 1)
+                .withQueue(4, 5, TimeUnit.SECONDS);
+        try (OllamaClient client = OllamaClient.builder().host(host).concurrencyLimiter(limiter).build()) {
+            server.enqueue(new MockResponse().setBody(FRAME + DONE));
+
+            try (Stream<GenerateResponse> stream = client.generateStream(generateRequest())) {
+                stream.iterator().next();
+                CompletableFuture<GenerateResponse> queued = client.generateAsync(generateRequest());
+                assertEquals(1, limiter.getQueueDepth(host, "llama3"));
+                queued.cancel(true);
+                assertEquals(0, limiter.getQueueDepth(host, "llama3"));
+            }
+            assertEquals(1, server.getRequestCount());
+            assertEquals(0, limiter.getStats().get(0).getInFlight());
+        }
+    }
+
+    @Test
+    void testOverloadCutsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter().withLimits(10, 2, 20);
+        try (OllamaClient client = OllamaClient.builder().host(host).concurrencyLimiter(limiter).build()) {
+            assertEquals(10, limiter.getLimit(host, "llama3"));
+            for (int i = 0; i < 3; i++) {
+                server.enqueue(new MockResponse().setResponseCode(503));
+                assertThrows(OllamaResponseException.class, () -> client.generate(generateRequest()));
+            }
+            // 10 * 0.9^3
+            assertEquals(7, limiter.getLimit(host, "llama3"));
+            assertEquals(3, limiter.getStats().get(0).getDrops());
+        }
+    }
+
+    private static GenerateRequest generateRequest() {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llama3");
+        request.setPrompt("hello");
+        return request;
+    }
+}
@@ -0,0 +1,72 @@
+package com.matrixhero.ollama.client.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for hedged calls.
+ */
+class HedgingPolicyTest {
+
+    @Test
+    void testNoHedgeUntilEnoughSamples() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy();
+        assertEquals(-1, policy.getDelayMillis());
+        assertEquals("a", policy.hedge(attempt -> CompletableFuture.completedFuture("a")).get());
+        assertEquals(0, policy.getStats().getHedges());
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedAndCancelled() throws Exception {
+        HedgingPolicy policy = warmedUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> result = policy.hedge(attempt ->
+                attempt == 0 ? primary : CompletableFuture.completedFuture("hedge"));
+
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertTrue(primary.isCancelled());
+        HedgingPolicy.Stats stats = policy.getStats();
+        assertEquals(1, stats.getHedges());
+        assertEquals(1, stats.getHedgeWins());
+        assertEquals(1, stats.getCancelled());
+    }
+
+    @Test
+    void testHedgeRatioCapsExtraLoad() throws Exception {
+        HedgingPolicy policy = warmedUp().withMaxHedgeRatio(0.0);
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> result = policy.hedge(attempt -> attempt == 0 ? primary
+                : CompletableFuture.completedFuture("hedge"));
+        Thread.sleep(100);
+        assertFalse(result.isDone());
+        primary.complete("primary");
+        assertEquals("primary", result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, policy.getStats().getHedges());
+    }
+
+    @Test
+    void testFailsOnlyWhenEveryAttemptFailed() throws Exception {
+        HedgingPolicy policy = warmedUp();
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        CompletableFuture<String> result = policy.hedge(attempt -> attempt == 0 ? primary : hedge);
+        Thread.sleep(100);
+        primary.completeExceptionally(new IllegalStateException("primary"));
+        assertFalse(result.isDone());
+        hedge.completeExceptionally(new IllegalStateException("hedge"));
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    private static HedgingPolicy warmedUp() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(0.95, 16).withDelayBounds(20, 1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 16; i++) {
+            policy.hedge(attempt -> CompletableFuture.completedFuture("warm")).get();
+        }
+        assertEquals(20, policy.getDelayMillis());
+        return policy;
+    }
+}
@@ -0,0 +1,132 @@
+package com.matrixhero.ollama.client.resilience;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.exception.OllamaResponseException;
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.EmbedRequest;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import com.matrixhero.ollama.client.model.Message;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for retries with exponential backoff against a local server.
+ */
+class RetryInterceptorTest {
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .readTimeout(Duration.ofMillis(300))
+                .retryPolicy(new ExponentialBackoff().withDelays(1, 10, 2.0))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testEmbedRecoversFromUnavailableAndTimeout() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"embedding\":[0.5,0.25]}"));
+
+        assertArrayEquals(new double[]{0.5, 0.25}, client.embedAsync(embedRequest()).get(5, TimeUnit.SECONDS).getEmbedding());
+        assertEquals(3, server.getRequestCount());
+        RetryInterceptor.Stats stats = client.getRetryStats();
+        assertEquals(1, stats.getCalls());
+        assertEquals(2, stats.getRetries());
+        assertEquals(1, stats.getRecovered());
+    }
+
+    @Test
+    void testGivesUpAfterBudget() {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(502));
+        }
+        OllamaResponseException error = assertThrows(OllamaResponseException.class, () -> client.embed(embedRequest()));
+        assertEquals(502, error.getStatusCode());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, client.getRetryStats().getExhausted());
+    }
+
+    @Test
+    void testClientErrorsAndChatAreNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":\"bad\"}"));
+        assertThrows(IOException.class, () -> client.embed(embedRequest()));
+        assertEquals(1, server.getRequestCount());
+
+        server.enqueue(new MockResponse().setResponseCode(503));
+        ChatRequest chat = new ChatRequest();
+        chat.setModel("m");
+        chat.getMessages().add(new Message(Message.Role.USER, "hi"));
+        assertThrows(IOException.class, () -> client.chat(chat));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, client.getRetryStats().getRetries());
+    }
+
+    @Test
+    void testAsyncBackoffDoesNotHoldDispatcherSlot() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"embedding\":[1.0]}"));
+        server.enqueue(new MockResponse().setBody("{\"embedding\":[2.0]}"));
+        try (OllamaClient single = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .maxRequests(1)
+                .retryPolicy((operation, attempts, error, statusCode) -> attempts < 2 ? 500 : -1)
+                .build()) {
+            CompletableFuture<EmbedResponse> retried = single.embedAsync(embedRequest());
+            CompletableFuture<EmbedResponse> other = single.embedAsync(embedRequest());
+
+            // The second call runs while the first waits out its backoff
+            assertArrayEquals(new double[]{1.0}, other.get(5, TimeUnit.SECONDS).getEmbedding());
+            assertFalse(retried.isDone());
+            assertArrayEquals(new double[]{2.0}, retried.get(5, TimeUnit.SECONDS).getEmbedding());
+            assertEquals(1, single.getRetryStats().getRecovered());
+        }
+    }
+
+    @Test
+    void testCancelDuringBackoffStopsRetries() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        try (OllamaClient slow = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .retryPolicy((operation, attempts, error, statusCode) -> 500)
+                .build()) {
+            CompletableFuture<EmbedResponse> future = slow.embedAsync(embedRequest());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (slow.getRetryStats().getRetries() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            future.cancel(true);
+            Thread.sleep(700);
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    private static EmbedRequest embedRequest() {
+        EmbedRequest request = new EmbedRequest();
+        request.setModel("nomic-embed-text");
+        request.setInput("hello");
+        return request;
+    }
+}
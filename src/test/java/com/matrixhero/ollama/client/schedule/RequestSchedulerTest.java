@@ -0,0 +1,175 @@
+package com.matrixhero.ollama.client.schedule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for priority classes, fair queueing and preemption against a local server.
+ */
+class RequestSchedulerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = OllamaClient.builder()
+                .host("http://" + server.getHostName() + ":" + server.getPort())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testPriorityThenFairShareAcrossTenants() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1);
+        server.enqueue(new MockResponse().setBody(chatFrame("held", true)));
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody("{\"response\":\"ok\",\"done\":true}"));
+        }
+
+        List<CompletableFuture<GenerateResponse>> futures = new ArrayList<>();
+        try (Stream<ChatResponse> held = scheduler.chatStream(Priority.STANDARD, "ui", chatRequest("hold"))) {
+            futures.add(scheduler.generateAsync(Priority.BATCH, "nightly", generateRequest("a1")));
+            futures.add(scheduler.generateAsync(Priority.BATCH, "nightly", generateRequest("a2")));
+            futures.add(scheduler.generateAsync(Priority.BATCH, "nightly", generateRequest("a3")));
+            futures.add(scheduler.generateAsync(Priority.BATCH, "reports", generateRequest("b1")));
+            futures.add(scheduler.generateAsync(Priority.INTERACTIVE, "ui", generateRequest("i1")));
+            assertEquals(4, scheduler.getStats(Priority.BATCH).getQueued());
+            assertEquals(1, scheduler.getStats(Priority.STANDARD).getRunning());
+            held.forEach(frame -> { });
+        }
+        for (CompletableFuture<GenerateResponse> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals("hold", body(server.takeRequest()).at("/messages/0/content").asText());
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            order.add(body(server.takeRequest()).get("prompt").asText());
+        }
+        assertEquals(Arrays.asList("i1", "a1", "b1", "a2", "a3"), order);
+        RequestScheduler.Stats batch = scheduler.getStats(Priority.BATCH);
+        assertEquals(4, batch.getDispatched());
+        assertEquals(0, batch.getQueued());
+        assertTrue(batch.getMaxWait(TimeUnit.NANOSECONDS) >= batch.getMeanWait(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void testPreemptedCallIsSentAgain() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1).withPreemption(Priority.BATCH);
+        server.enqueue(new MockResponse().setBody("{\"response\":\"lost\",\"done\":true}")
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("{\"response\":\"urgent\",\"done\":true}"));
+        server.enqueue(new MockResponse().setBody("{\"response\":\"bulk\",\"done\":true}"));
+
+        CompletableFuture<GenerateResponse> bulk = scheduler.generateAsync(Priority.BATCH, "job", generateRequest("b"));
+        assertEquals("b", body(server.takeRequest(5, TimeUnit.SECONDS)).get("prompt").asText());
+
+        assertEquals("urgent", scheduler.generate(Priority.INTERACTIVE, "ui", generateRequest("i")).getResponse());
+        assertEquals("bulk", bulk.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, scheduler.getStats(Priority.BATCH).getPreempted());
+        assertEquals(2, scheduler.getStats(Priority.BATCH).getDispatched());
+    }
+
+    @Test
+    void testRunningChatIsNotPreempted() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1).withPreemption(Priority.BATCH);
+        server.enqueue(new MockResponse().setBody("{\"message\":{\"role\":\"assistant\",\"content\":\"done\"},\"done\":true}")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("{\"response\":\"urgent\",\"done\":true}"));
+
+        ChatRequest request = chatRequest("summarize");
+        CompletableFuture<ChatResponse> bulk = scheduler.chatAsync(Priority.BATCH, "job", request);
+        server.takeRequest(5, TimeUnit.SECONDS);
+
+        // The interactive call waits for the chat rather than cancelling it
+        assertEquals("urgent", scheduler.generate(Priority.INTERACTIVE, "ui", generateRequest("i")).getResponse());
+        assertEquals("done", bulk.get(5, TimeUnit.SECONDS).getMessage().getContent());
+        assertEquals(2, request.getMessages().size());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, scheduler.getStats(Priority.BATCH).getPreempted());
+    }
+
+    @Test
+    void testPreemptedChatStreamContinues() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(client, 1).withPreemption(Priority.BATCH);
+        // The throttle also applies to reading the request, so the first period must fit the request
+        StringBuilder first = new StringBuilder(chatFrame("Hel", false));
+        first.insert(first.length() - 1, String.join("", Collections.nCopies(512 - first.length(), " ")));
+        server.enqueue(new MockResponse().setBody(first + chatFrame("never", false) + chatFrame("", true))
+                .throttleBody(first.length(), 2, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("{\"message\":{\"role\":\"assistant\",\"content\":\"sure\"},\"done\":true}"));
+        server.enqueue(new MockResponse().setBody(chatFrame("lo", false) + chatFrame("", true)));
+
+        StringBuilder text = new StringBuilder();
+        CompletableFuture<ChatResponse> urgent;
+        try (Stream<ChatResponse> stream = scheduler.chatStream(Priority.BATCH, "job", chatRequest("greet"))) {
+            Iterator<ChatResponse> frames = stream.iterator();
+            text.append(frames.next().getMessage().getContent());
+            urgent = scheduler.chatAsync(Priority.INTERACTIVE, "ui", chatRequest("help"));
+            while (frames.hasNext()) {
+                text.append(frames.next().getMessage().getContent());
+            }
+        }
+        assertEquals("Hello", text.toString());
+        assertEquals("sure", urgent.get(5, TimeUnit.SECONDS).getMessage().getContent());
+
+        server.takeRequest();
+        assertEquals("help", body(server.takeRequest()).at("/messages/0/content").asText());
+        JsonNode resumed = body(server.takeRequest());
+        assertEquals("assistant", resumed.at("/messages/1/role").asText());
+        assertEquals("Hel", resumed.at("/messages/1/content").asText());
+        assertEquals(1, scheduler.getStats(Priority.BATCH).getPreempted());
+    }
+
+    private static String chatFrame(String content, boolean done) {
+        return "{\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},\"done\":" + done + "}\n";
+    }
+
+    private static JsonNode body(RecordedRequest request) throws IOException {
+        return MAPPER.readTree(request.getBody().readUtf8());
+    }
+
+    private static GenerateRequest generateRequest(String prompt) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llama3");
+        request.setPrompt(prompt);
+        return request;
+    }
+
+    private static ChatRequest chatRequest(String content) {
+        ChatRequest request = new ChatRequest();
+        request.setModel("llama3");
+        request.getMessages().add(new Message(Message.Role.USER, content));
+        return request;
+    }
+}
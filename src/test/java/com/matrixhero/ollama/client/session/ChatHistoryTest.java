@@ -0,0 +1,121 @@
+package com.matrixhero.ollama.client.session;
+
+import com.matrixhero.ollama.client.model.ChatRequest;
+import com.matrixhero.ollama.client.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for token-budgeted trimming of chat history.
+ */
+class ChatHistoryTest {
+    /** One token per character, no per-message overhead */
+    private static final TokenEstimator CHARS = TokenEstimator.charsPerToken(1.0, 0, 0);
+
+    private static List<String> contents(ChatRequest request) {
+        return request.getMessages().stream().map(Message::getContent).collect(Collectors.toList());
+    }
+
+    @Test
+    void testDropsOldestUnpinnedMessages() {
+        ChatRequest request = new ChatRequest();
+        request.getMessages().add(new Message(Message.Role.SYSTEM, "sys"));
+        request.getMessages().add(new Message(Message.Role.USER, "u1...."));
+        request.getMessages().add(new Message(Message.Role.ASSISTANT, "a1...."));
+        request.getMessages().add(new Message(Message.Role.TOOL, "tool"));
+        request.getMessages().add(new Message(Message.Role.USER, "u2...."));
+        request.getMessages().add(new Message(Message.Role.ASSISTANT, "a2...."));
+        request.getMessages().add(new Message(Message.Role.USER, "u3...."));
+
+        ChatHistory history = new ChatHistory(24).withEstimator(CHARS).withKeepLastTurns(1);
+        int tokens = history.apply(request);
+
+        assertEquals(Arrays.asList("sys", "tool", "a2....", "u3...."), contents(request));
+        assertEquals(19, tokens);
+        assertEquals(3, history.getDroppedMessages());
+    }
+
+    @Test
+    void testToolCallIsKeptOrDroppedWithItsResults() {
+        ChatHistory pinned = new ChatHistory(20).withEstimator(CHARS).withKeepLastTurns(1);
+        ChatRequest request = toolConversation();
+        pinned.apply(request);
+        assertEquals(Arrays.asList("call", "tool", "a2....", "u3...."), contents(request));
+
+        ChatHistory unpinned = new ChatHistory(20).withEstimator(CHARS).withKeepLastTurns(1).withPinnedRoles();
+        request = toolConversation();
+        unpinned.apply(request);
+        assertEquals(Arrays.asList("u2....", "a2....", "u3...."), contents(request));
+        assertEquals(3, unpinned.getDroppedMessages());
+    }
+
+    private static ChatRequest toolConversation() {
+        Message.ToolCall toolCall = new Message.ToolCall();
+        toolCall.setId("1");
+        Message call = new Message(Message.Role.ASSISTANT, "call");
+        call.setToolCalls(Arrays.asList(toolCall));
+
+        ChatRequest request = new ChatRequest();
+        request.getMessages().add(new Message(Message.Role.USER, "u1...."));
+        request.getMessages().add(call);
+        request.getMessages().add(new Message(Message.Role.TOOL, "tool"));
+        request.getMessages().add(new Message(Message.Role.USER, "u2...."));
+        request.getMessages().add(new Message(Message.Role.ASSISTANT, "a2...."));
+        request.getMessages().add(new Message(Message.Role.USER, "u3...."));
+        return request;
+    }
+
+    @Test
+    void testKeepsRecentTurnsEvenOverBudget() {
+        ChatRequest request = new ChatRequest();
+        request.getMessages().add(new Message(Message.Role.USER, "question one"));
+        request.getMessages().add(new Message(Message.Role.ASSISTANT, "answer one"));
+        request.getMessages().add(new Message(Message.Role.USER, "question two"));
+
+        ChatHistory history = new ChatHistory(5).withEstimator(CHARS).withKeepLastTurns(2);
+        history.apply(request);
+
+        assertEquals(3, request.getMessages().size());
+        assertEquals(0, history.getDroppedMessages());
+    }
+
+    @Test
+    void testUnchangedMessagesAreNotRecounted() {
+        ChatRequest request = new ChatRequest();
+        request.getMessages().add(new Message(Message.Role.USER, "hello"));
+        ChatHistory history = new ChatHistory(1000).withEstimator(CHARS);
+        history.apply(request);
+        assertEquals(1, history.getEstimatedMessages());
+
+        for (int turn = 0; turn < 10; turn++) {
+            request.getMessages().add(new Message(Message.Role.ASSISTANT, "reply " + turn));
+            request.getMessages().add(new Message(Message.Role.USER, "next " + turn));
+            history.apply(request);
+        }
+        assertEquals(21, history.getEstimatedMessages());
+
+        Message first = request.getMessages().get(0);
+        first.setContent("hello again");
+        assertEquals(history.getLastTokens() + 6, history.apply(request));
+        assertEquals(22, history.getEstimatedMessages());
+    }
+
+    @Test
+    void testSystemPromptCountsTowardsBudget() {
+        ChatRequest request = new ChatRequest();
+        request.setSystem("0123456789");
+        request.getMessages().add(new Message(Message.Role.USER, "old"));
+        request.getMessages().add(new Message(Message.Role.ASSISTANT, "old"));
+        request.getMessages().add(new Message(Message.Role.USER, "new"));
+
+        ChatHistory history = new ChatHistory(14).withEstimator(CHARS).withKeepLastTurns(1);
+
+        assertEquals(13, history.apply(request));
+        assertEquals(1, request.getMessages().size());
+    }
+}
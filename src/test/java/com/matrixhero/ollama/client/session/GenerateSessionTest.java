@@ -0,0 +1,102 @@
+package com.matrixhero.ollama.client.session;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.GenerateResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for threading the generate context across session turns.
+ */
+class GenerateSessionTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    private static MockResponse turn(String context, int promptEvalCount) {
+        return new MockResponse().setBody("{\"model\":\"m\",\"response\":\"ok\",\"done\":true,\"context\":" + context
+                + ",\"prompt_eval_count\":" + promptEvalCount + ",\"prompt_eval_duration\":3000000,\"eval_count\":2}");
+    }
+
+    @Test
+    void testContextIsThreadedIntoNextTurn() throws Exception {
+        server.enqueue(turn("[1,2,3]", 3));
+        server.enqueue(turn("[1,2,3,4,5]", 2));
+        GenerateSession session = new GenerateSession(client, "m").withSystem("Be brief");
+
+        session.generate("hello");
+        session.generate("again");
+
+        JsonNode first = objectMapper.readTree(server.takeRequest().getBody().readUtf8());
+        assertEquals("Be brief", first.get("system").asText());
+        assertTrue(first.get("context").isNull());
+        JsonNode second = objectMapper.readTree(server.takeRequest().getBody().readUtf8());
+        assertEquals("[1,2,3]", second.get("context").toString());
+        assertTrue(second.get("system").isNull());
+
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, session.getContext());
+        assertEquals(2, session.getTurns().size());
+        GenerateSession.Turn last = session.getTurns().get(1);
+        assertEquals(2, last.getPromptEvalCount());
+        assertEquals(3000000, last.getPromptEvalDuration());
+        assertEquals(5, last.getContextLength());
+    }
+
+    @Test
+    void testStreamAdvancesOnFinalFrame() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"model\":\"m\",\"response\":\"o\",\"done\":false}\n"
+                + "{\"model\":\"m\",\"response\":\"k\",\"done\":true,\"context\":[7,8]}\n"));
+        GenerateSession session = new GenerateSession(client, "m");
+
+        try (Stream<GenerateResponse> stream = session.generateStream("hi")) {
+            assertEquals(2, stream.count());
+        }
+        assertArrayEquals(new int[]{7, 8}, session.getContext());
+        assertEquals(1, session.getTurns().size());
+    }
+
+    @Test
+    void testSavedSessionResumes(@TempDir Path dir) throws Exception {
+        server.enqueue(turn("[4,5,6]", 3));
+        server.enqueue(turn("[4,5,6,7]", 1));
+        GenerateSession session = new GenerateSession(client, "m");
+        session.generate("hello");
+        Path file = dir.resolve("session.bin");
+        session.save(file);
+
+        GenerateSession resumed = GenerateSession.load(file, client);
+        assertEquals("m", resumed.getModel());
+        assertArrayEquals(new int[]{4, 5, 6}, resumed.getContext());
+        assertEquals(1, resumed.getTurns().size());
+
+        resumed.generate("again");
+        server.takeRequest();
+        JsonNode second = objectMapper.readTree(server.takeRequest().getBody().readUtf8());
+        assertEquals("[4,5,6]", second.get("context").toString());
+    }
+}
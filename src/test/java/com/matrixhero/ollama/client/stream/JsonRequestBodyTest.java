@@ -0,0 +1,112 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matrixhero.ollama.client.model.GenerateRequest;
+import com.matrixhero.ollama.client.model.Image;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for streaming JSON request bodies and lazily encoded images.
+ */
+class JsonRequestBodyTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static byte[] imageBytes() {
+        byte[] data = new byte[100_003];
+        new Random(7).nextBytes(data);
+        return data;
+    }
+
+    private JsonNode write(Object value) throws IOException {
+        Buffer sink = new Buffer();
+        new JsonRequestBody(objectMapper, value).writeTo(sink);
+        return objectMapper.readTree(sink.readUtf8());
+    }
+
+    private static GenerateRequest request(Image... images) {
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("llava");
+        request.setPrompt("describe");
+        request.setImages(Arrays.asList(images));
+        return request;
+    }
+
+    @Test
+    void testBodyMatchesStringSerialization() throws IOException {
+        GenerateRequest request = request(new Image("aGVsbG8="));
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(request)), write(request));
+        assertEquals("aGVsbG8=", write(request).get("images").get(0).asText());
+    }
+
+    @Test
+    void testLazySourcesAreEncodedIntoTheBody(@TempDir Path dir) throws IOException {
+        byte[] data = imageBytes();
+        String expected = Base64.getEncoder().encodeToString(data);
+        Path file = dir.resolve("image.png");
+        Files.write(file, data);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+
+        Image fromBytes = new Image(data);
+        Image fromPath = new Image(file);
+        Image fromBuffer = Image.of(buffer);
+        Image fromStream = Image.of(new ByteArrayInputStream(data), data.length);
+        JsonNode images = write(request(fromBytes, fromPath, fromBuffer, fromStream)).get("images");
+
+        for (JsonNode image : images) {
+            assertEquals(expected, image.asText());
+        }
+        assertTrue(fromBytes.isLazy());
+        assertEquals(0, buffer.position());
+        assertEquals(expected, fromPath.getValue());
+        assertFalse(fromPath.isLazy());
+    }
+
+    @Test
+    void testBodyIsReplayableExceptForStreams() throws IOException {
+        byte[] data = imageBytes();
+        GenerateRequest replayable = request(new Image(data));
+        assertEquals(write(replayable), write(replayable));
+
+        GenerateRequest oneShot = request(Image.of(new ByteArrayInputStream(data), -1));
+        write(oneShot);
+        assertThrows(IOException.class, () -> write(oneShot));
+    }
+
+    @Test
+    void testComparingAndPrintingDoNotEncode() throws IOException {
+        byte[] data = imageBytes();
+        Image image = new Image(data);
+        GenerateRequest request = request(image);
+
+        assertEquals(request, request(image));
+        assertNotEquals(request, request(new Image(data)));
+        assertEquals(request.hashCode(), request(image).hashCode());
+        assertTrue(request.toString().contains("Image(source=bytes, length=100003)"));
+        assertTrue(image.isLazy());
+
+        Image stream = Image.of(new ByteArrayInputStream(data), data.length);
+        assertEquals("Image(source=stream, length=100003)", stream.toString());
+        assertNotEquals(stream, image);
+        assertTrue(stream.isLazy());
+        // The stream is still there to be written
+        assertEquals(Base64.getEncoder().encodeToString(data), write(request(stream)).get("images").get(0).asText());
+
+        assertEquals(new Image("aGVsbG8="), new Image("aGVsbG8="));
+        assertEquals("Image(value=8 Base64 chars)", new Image("aGVsbG8=").toString());
+    }
+}
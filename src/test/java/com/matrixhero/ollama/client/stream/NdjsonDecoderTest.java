@@ -0,0 +1,95 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for incremental NDJSON decoding against a local slow-drip server.
+ */
+class NdjsonDecoderTest {
+    private static final long DRIP_PERIOD_MS = 300;
+
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testFirstFrameArrivesBeforeBodyCompletes() throws IOException {
+        String first = "{\"model\":\"qwen2.5:7b\",\"response\":\"Hel\",\"done\":false}\n";
+        String second = "{\"model\":\"qwen2.5:7b\",\"response\":\"lo \",\"done\":false}\n";
+        String last = "{\"model\":\"qwen2.5:7b\",\"response\":\"\",\"done\":true}\n";
+        // Each chunk of first.length() bytes is followed by a pause, so the body needs two pauses to complete
+        server.enqueue(new MockResponse()
+                .setBody(first + second + last)
+                .throttleBody(first.length(), DRIP_PERIOD_MS, TimeUnit.MILLISECONDS));
+
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("qwen2.5:7b");
+        request.setPrompt("hello");
+
+        try (Stream<GenerateResponse> stream = client.generateStream(request)) {
+            Iterator<GenerateResponse> frames = stream.iterator();
+            GenerateResponse firstFrame = frames.next();
+            long firstFrameAt = System.nanoTime();
+            assertEquals("Hel", firstFrame.getResponse());
+
+            assertEquals("lo ", frames.next().getResponse());
+            assertTrue(frames.next().getDone());
+            assertFalse(frames.hasNext());
+
+            // The rest of the body was still in flight when the first frame was handed out
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstFrameAt);
+            assertTrue(remainingMs >= DRIP_PERIOD_MS * 2 - 50,
+                    "Body completed " + remainingMs + "ms after the first frame");
+        }
+    }
+
+    @Test
+    void testChatStreamDecodesUtf8Frames() throws IOException {
+        server.enqueue(new MockResponse().setBody(
+                "{\"model\":\"qwen2.5:7b\",\"message\":{\"role\":\"assistant\",\"content\":\"你好\"},\"done\":false}\n" +
+                "{\"model\":\"qwen2.5:7b\",\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done\":true}\n"));
+
+        ChatRequest request = new ChatRequest();
+        request.setModel("qwen2.5:7b");
+        request.setUseAgents(false);
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "你好")));
+
+        List<ChatResponse> responses;
+        try (Stream<ChatResponse> stream = client.chatStream(request)) {
+            responses = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(2, responses.size());
+        assertEquals("你好", responses.get(0).getMessage().getContent());
+        assertEquals(Message.Role.ASSISTANT, responses.get(0).getMessage().getRole());
+        assertTrue(responses.get(1).getDone());
+    }
+}
@@ -0,0 +1,133 @@
+package com.matrixhero.ollama.client.stream;
+
+import com.matrixhero.ollama.client.OllamaClient;
+import com.matrixhero.ollama.client.model.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for demand-driven reactive streaming.
+ */
+class NdjsonPublisherTest {
+    private MockWebServer server;
+    private OllamaClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OllamaClient("http://" + server.getHostName() + ":" + server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void testFramesFollowDemand() throws Exception {
+        server.enqueue(new MockResponse().setBody(
+                "{\"model\":\"qwen2.5:7b\",\"response\":\"a\",\"done\":false}\n" +
+                "{\"model\":\"qwen2.5:7b\",\"response\":\"b\",\"done\":false}\n" +
+                "{\"model\":\"qwen2.5:7b\",\"response\":\"\",\"done\":true}\n"));
+
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("qwen2.5:7b");
+        request.setPrompt("hello");
+
+        RecordingSubscriber<GenerateResponse> subscriber = new RecordingSubscriber<>();
+        client.generatePublisher(request).subscribe(subscriber);
+        assertEquals(0, server.getRequestCount(), "Call should start on first demand");
+
+        subscriber.subscription.request(1);
+        assertEquals("a", subscriber.items.poll(5, TimeUnit.SECONDS).getResponse());
+        // No further frames are delivered without demand
+        assertNull(subscriber.items.poll(200, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals("b", subscriber.items.poll(5, TimeUnit.SECONDS).getResponse());
+        assertTrue(subscriber.items.poll(5, TimeUnit.SECONDS).getDone());
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void testCancelStopsDelivery() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody("{\"model\":\"qwen2.5:7b\",\"message\":{\"role\":\"assistant\",\"content\":\"a\"},\"done\":false}\n" +
+                        "{\"model\":\"qwen2.5:7b\",\"message\":{\"role\":\"assistant\",\"content\":\"b\"},\"done\":true}\n")
+                .throttleBody(64, 1, TimeUnit.SECONDS));
+
+        ChatRequest request = new ChatRequest();
+        request.setModel("qwen2.5:7b");
+        request.setMessages(Collections.singletonList(new Message(Message.Role.USER, "hi")));
+
+        RecordingSubscriber<ChatResponse> subscriber = new RecordingSubscriber<>();
+        client.chatPublisher(request).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.cancel();
+
+        assertNull(subscriber.items.poll(1500, TimeUnit.MILLISECONDS));
+        assertEquals(1, subscriber.completed.getCount());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void testErrorStatusSignalsOnError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("{\"error\":\"boom\"}"));
+
+        GenerateRequest request = new GenerateRequest();
+        request.setModel("qwen2.5:7b");
+
+        RecordingSubscriber<GenerateResponse> subscriber = new RecordingSubscriber<>();
+        client.generatePublisher(request).subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.failed.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.error.getMessage().contains("boom"));
+    }
+
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+        final BlockingQueue<T> items = new LinkedBlockingQueue<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
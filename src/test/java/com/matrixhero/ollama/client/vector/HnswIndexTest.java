@@ -0,0 +1,111 @@
+package com.matrixhero.ollama.client.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HNSW index.
+ */
+class HnswIndexTest {
+    private static final int DIMENSION = 32;
+    private static final int SIZE = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testConcurrentInsertsRecallAgainstBruteForce() throws Exception {
+        try (VectorStore store = new VectorStore(tempDir.resolve("store"), DIMENSION)) {
+            Random random = new Random(7);
+            for (int i = 0; i < SIZE; i++) {
+                store.add(i, randomVector(random));
+            }
+            HnswIndex index = new HnswIndex(store, 16, 100);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int offset = t;
+                    futures.add(executor.submit(() -> {
+                        for (long ordinal = offset; ordinal < SIZE; ordinal += 4) {
+                            index.add(ordinal);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(SIZE, index.size());
+            assertTrue(recall(store, index, random) >= 0.9);
+        }
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        try (VectorStore store = new VectorStore(tempDir.resolve("store"), DIMENSION)) {
+            Random random = new Random(11);
+            HnswIndex index = new HnswIndex(store, 8, 50);
+            for (int i = 0; i < 500; i++) {
+                index.add(1000 + i, randomVector(random));
+            }
+            Path file = tempDir.resolve("index.hnsw");
+            index.save(file);
+
+            HnswIndex loaded = HnswIndex.load(file, store);
+            assertEquals(index.size(), loaded.size());
+            float[] query = randomVector(random);
+            List<SearchResult> expected = index.search(query, 10);
+            List<SearchResult> actual = loaded.search(query, 10);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            }
+
+            loaded.add(2000, query);
+            assertEquals(2000, loaded.search(query, 1).get(0).getId());
+        }
+    }
+
+    private static double recall(VectorStore store, HnswIndex index, Random random) {
+        int queries = 50;
+        int k = 10;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            Set<Long> exact = new HashSet<>();
+            for (SearchResult result : store.search(query, k)) {
+                exact.add(result.getId());
+            }
+            for (SearchResult result : index.search(query, k)) {
+                if (exact.contains(result.getId())) {
+                    hits++;
+                }
+            }
+        }
+        return hits / (double) (queries * k);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,64 @@
+package com.matrixhero.ollama.client.vector;
+
+import com.matrixhero.ollama.client.embed.EmbeddingMatrix;
+import com.matrixhero.ollama.client.model.EmbedResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped vector store.
+ */
+class VectorStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAppendAcrossSegmentsAndReopen() throws IOException {
+        Path directory = tempDir.resolve("store");
+        try (VectorStore store = new VectorStore(directory, 3, 2)) {
+            assertEquals(0, store.add(100, new float[]{1, 2, 3}));
+            EmbedResponse response = new EmbedResponse();
+            response.setEmbedding(new double[]{4, 5, 6});
+            assertEquals(1, store.add(101, response));
+            float[] data = {7, 8, 9, 10, 11, 12};
+            assertEquals(2, store.addAll(new long[]{102, 103}, new EmbeddingMatrix(data, 2, 3)));
+            store.add(104, new float[]{13, 14, 15});
+            assertEquals(5, store.size());
+        }
+        assertTrue(Files.exists(directory.resolve("segment-00002.vec")));
+
+        try (VectorStore store = new VectorStore(directory)) {
+            assertEquals(3, store.dimension());
+            assertEquals(5, store.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(100 + i, store.id(i));
+                FloatBuffer vector = store.vector(i);
+                assertEquals(3, vector.remaining());
+                assertEquals(3 * i + 1, vector.get(0), 0.0f);
+                assertEquals(3 * i + 3, vector.get(2), 0.0f);
+            }
+            assertArrayEquals(new float[]{10, 11, 12}, store.copy(3), 0.0f);
+
+            // Appends continue in the partially filled last segment
+            assertEquals(5, store.add(105, new float[]{16, 17, 18}));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.vector(6));
+        }
+    }
+
+    @Test
+    void testRejectsWrongDimension() throws IOException {
+        Path directory = tempDir.resolve("store");
+        try (VectorStore store = new VectorStore(directory, 3)) {
+            assertThrows(IllegalArgumentException.class, () -> store.add(1, new float[]{1, 2}));
+            store.add(1, new float[]{1, 2, 3});
+        }
+        assertThrows(IOException.class, () -> new VectorStore(directory, 4));
+    }
+}